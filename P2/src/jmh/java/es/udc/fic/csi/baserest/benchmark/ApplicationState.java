@@ -0,0 +1,122 @@
+package es.udc.fic.csi.baserest.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import es.udc.fic.csi.baserest.BaseRestApplication;
+import es.udc.fic.csi.baserest.entity.Client;
+import es.udc.fic.csi.baserest.entity.Department;
+import es.udc.fic.csi.baserest.entity.Employee;
+import es.udc.fic.csi.baserest.entity.Product;
+import es.udc.fic.csi.baserest.entity.Sale;
+import es.udc.fic.csi.baserest.entity.User;
+import es.udc.fic.csi.baserest.repository.ClientRepository;
+import es.udc.fic.csi.baserest.repository.DepartmentRepository;
+import es.udc.fic.csi.baserest.repository.EmployeeRepository;
+import es.udc.fic.csi.baserest.repository.ProductRepository;
+import es.udc.fic.csi.baserest.repository.SaleRepository;
+import es.udc.fic.csi.baserest.repository.UserRepository;
+
+/**
+ * The application, without the web server, on a seeded in-memory H2 database.
+ *
+ * Started once per benchmark fork and shared by all its threads.
+ *
+ * @author angelotefic
+ */
+@State(Scope.Benchmark)
+public class ApplicationState {
+
+    static final int PRODUCTS = 1_000;
+
+    static final int CLIENTS = 200;
+
+    static final int SALES = 5_000;
+
+    static final int DEPARTMENTS = 10;
+
+    static final int EMPLOYEES = 2_000;
+
+    static final int USERS = 2_000;
+
+    ConfigurableApplicationContext context;
+
+    List<Long> productIds;
+
+    List<Long> clientIds;
+
+    List<Integer> departmentIds;
+
+    List<Employee> employees;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(BaseRestApplication.class)
+                .web(WebApplicationType.NONE)
+                // As arguments, which override the properties files
+                .run("--spring.datasource.url=jdbc:h2:mem:jmh", "--logging.level.root=WARN");
+
+        var products = new ArrayList<Product>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new Product("Product" + i, 1.5f + i, 1_000));
+        }
+        productIds = bean(ProductRepository.class).saveAll(products).stream().map(Product::getId).toList();
+
+        var clients = new ArrayList<Client>();
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.add(new Client("Client" + i, "Surname" + i, "client" + i + "@example.com", "+34600000" + i,
+                    "Street " + i, List.of(1L, 2L, 3L)));
+        }
+        clients = new ArrayList<>(bean(ClientRepository.class).saveAll(clients));
+        clientIds = clients.stream().map(Client::getId).toList();
+
+        var sales = new ArrayList<Sale>();
+        var start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < SALES; i++) {
+            var product = products.get(i % PRODUCTS);
+            sales.add(new Sale(product, clients.get(i % CLIENTS), 1 + i % 5, product.getPrice(), start.plusMinutes(i)));
+        }
+        bean(SaleRepository.class).saveAll(sales);
+
+        var departments = new ArrayList<Department>();
+        for (int i = 0; i < DEPARTMENTS; i++) {
+            departments.add(new Department("Department" + i));
+        }
+        departments = new ArrayList<>(bean(DepartmentRepository.class).saveAll(departments));
+        departmentIds = departments.stream().map(Department::getId).toList();
+
+        // A tree of four subordinates per supervisor, so the chains are a few levels deep
+        var staff = new ArrayList<Employee>();
+        for (int i = 0; i < EMPLOYEES; i++) {
+            Employee supervisor = i == 0 ? null : staff.get((i - 1) / 4);
+            staff.add(new Employee("Employee" + i, "Street " + i, 20 + i % 45, 1_500.0 + i % 1_000, 100_000 + i,
+                    departments.get(i % DEPARTMENTS), supervisor));
+        }
+        employees = bean(EmployeeRepository.class).saveAll(staff);
+
+        var users = new ArrayList<User>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new User("User" + i, 18 + i % 60));
+        }
+        bean(UserRepository.class).saveAll(users);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
@@ -0,0 +1,158 @@
+package es.udc.fic.csi.baserest.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.udc.fic.csi.baserest.conversors.ClientConversors;
+import es.udc.fic.csi.baserest.conversors.EmployeeConversors;
+import es.udc.fic.csi.baserest.conversors.ProductConversors;
+import es.udc.fic.csi.baserest.conversors.SaleConversors;
+import es.udc.fic.csi.baserest.conversors.UserConversors;
+import es.udc.fic.csi.baserest.dto.ClientDto;
+import es.udc.fic.csi.baserest.dto.EmployeeDto;
+import es.udc.fic.csi.baserest.dto.ProductDto;
+import es.udc.fic.csi.baserest.dto.SaleDto;
+import es.udc.fic.csi.baserest.dto.UserDto;
+import es.udc.fic.csi.baserest.entity.Client;
+import es.udc.fic.csi.baserest.entity.Employee;
+import es.udc.fic.csi.baserest.entity.Product;
+import es.udc.fic.csi.baserest.entity.Sale;
+import es.udc.fic.csi.baserest.entity.User;
+import es.udc.fic.csi.baserest.service.DepartmentCache;
+
+/**
+ * Entity to DTO mappings, and back, of every request.
+ *
+ * The employee mappings look the department name up in the
+ * {@link DepartmentCache} of a running application.
+ *
+ * @author angelotefic
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversorsBenchmark {
+
+    private static final int LIST_SIZE = 100;
+
+    private Product product;
+
+    private ProductDto productDto;
+
+    private List<Product> products;
+
+    private Client client;
+
+    private ClientDto clientDto;
+
+    private User user;
+
+    private UserDto userDto;
+
+    private Sale sale;
+
+    private SaleDto saleDto;
+
+    private Employee employee;
+
+    private List<Employee> employees;
+
+    private DepartmentCache departments;
+
+    @Setup
+    public void setUp(ApplicationState application) {
+        product = new Product("Product", 9.99f, 100);
+        product.setId(1L);
+        productDto = ProductConversors.toProductDto(product);
+        products = new ArrayList<>();
+        for (int i = 0; i < LIST_SIZE; i++) {
+            products.add(new Product("Product" + i, 1.5f + i, i));
+        }
+
+        client = new Client("John", "Doe", "john.doe@example.com", "+123456789", "123 Example Street",
+                List.of(101L, 102L, 103L));
+        client.setId(1L);
+        clientDto = ClientConversors.toClientDto(client);
+
+        user = new User("Carlos", 25);
+        userDto = UserConversors.toUserDto(user);
+
+        sale = new Sale(product, client, 3, 9.99f, LocalDateTime.of(2024, 5, 1, 12, 0));
+        saleDto = SaleConversors.toSaleDto(sale);
+
+        departments = application.bean(DepartmentCache.class);
+        employees = application.employees.subList(0, LIST_SIZE);
+        employee = employees.get(LIST_SIZE - 1);
+    }
+
+    @Benchmark
+    public ProductDto productToDto() {
+        return ProductConversors.toProductDto(product);
+    }
+
+    @Benchmark
+    public Product productFromDto() {
+        return ProductConversors.toProduct(productDto);
+    }
+
+    @Benchmark
+    public List<ProductDto> productListToDto() {
+        return ProductConversors.toProductDtoList(products);
+    }
+
+    @Benchmark
+    public ClientDto clientToDto() {
+        return ClientConversors.toClientDto(client);
+    }
+
+    @Benchmark
+    public Client clientFromDto() {
+        return ClientConversors.toClient(clientDto);
+    }
+
+    @Benchmark
+    public UserDto userToDto() {
+        return UserConversors.toUserDto(user);
+    }
+
+    @Benchmark
+    public User userFromDto() {
+        return UserConversors.toUser(userDto);
+    }
+
+    @Benchmark
+    public SaleDto saleToDto() {
+        return SaleConversors.toSaleDto(sale);
+    }
+
+    @Benchmark
+    public Sale saleFromDto() {
+        return SaleConversors.toSale(saleDto);
+    }
+
+    @Benchmark
+    public EmployeeDto employeeToDto() {
+        return EmployeeConversors.toEmployeeDto(employee, departments);
+    }
+
+    @Benchmark
+    public List<EmployeeDto> employeeListToDto() {
+        return EmployeeConversors.toEmployeeDtoList(employees, departments);
+    }
+}
@@ -0,0 +1,164 @@
+package es.udc.fic.csi.baserest.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.udc.fic.csi.baserest.dto.BulkImportResultDto;
+import es.udc.fic.csi.baserest.dto.ClientDto;
+import es.udc.fic.csi.baserest.dto.DepartmentStatsDto;
+import es.udc.fic.csi.baserest.dto.EmployeeDto;
+import es.udc.fic.csi.baserest.dto.EmployeeImportDto;
+import es.udc.fic.csi.baserest.dto.PayrollEntryDto;
+import es.udc.fic.csi.baserest.dto.PayrollRunDto;
+import es.udc.fic.csi.baserest.dto.ProductDto;
+import es.udc.fic.csi.baserest.dto.SalaryAdjustmentDto;
+import es.udc.fic.csi.baserest.dto.SaleDto;
+import es.udc.fic.csi.baserest.dto.UserDto;
+import es.udc.fic.csi.baserest.entity.Client;
+import es.udc.fic.csi.baserest.entity.Product;
+
+/**
+ * JSON serialisation of every DTO, with the {@link ObjectMapper} the
+ * application configures for its responses.
+ *
+ * @author angelotefic
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private ProductDto productDto;
+
+    private ClientDto clientDto;
+
+    private UserDto userDto;
+
+    private SaleDto saleDto;
+
+    private EmployeeDto employeeDto;
+
+    private EmployeeImportDto employeeImportDto;
+
+    private SalaryAdjustmentDto salaryAdjustmentDto;
+
+    private DepartmentStatsDto departmentStatsDto;
+
+    private PayrollRunDto payrollRunDto;
+
+    private PayrollEntryDto payrollEntryDto;
+
+    private BulkImportResultDto bulkImportResultDto;
+
+    @Setup
+    public void setUp(ApplicationState application) {
+        objectMapper = application.bean(ObjectMapper.class);
+
+        productDto = new ProductDto("Product", 9.99f, 100);
+        clientDto = new ClientDto("John", "Doe", "john.doe@example.com", "+123456789", "123 Example Street",
+                List.of(101L, 102L, 103L));
+        userDto = new UserDto("Carlos", 25);
+
+        var product = new Product("Product", 9.99f, 100);
+        product.setId(1L);
+        var client = new Client("John", "Doe", "john.doe@example.com", "+123456789", "123 Example Street",
+                List.of(101L, 102L, 103L));
+        client.setId(1L);
+        saleDto = new SaleDto(product, client, 3, 9.99f, LocalDateTime.of(2024, 5, 1, 12, 0));
+
+        employeeDto = new EmployeeDto("Ana", "Street 1", 34, 2_350.5, 123_456, "Sales", 7L);
+        employeeImportDto = new EmployeeImportDto("Ana", "Street 1", 34, 2_350.5, 123_456, "Sales", null, 654_321);
+        salaryAdjustmentDto = new SalaryAdjustmentDto("Sales", null, 2.5, null);
+
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        percentiles.put("p50", 2_100.0);
+        percentiles.put("p90", 3_400.0);
+        percentiles.put("p99", 5_200.0);
+        Map<Integer, Long> ages = new LinkedHashMap<>();
+        for (int decade = 20; decade <= 60; decade += 10) {
+            ages.put(decade, 10L * decade);
+        }
+        departmentStatsDto = new DepartmentStatsDto(1_500, 3_525_000.0, 2_350.0, 1_200.0, 7_800.0, percentiles, ages);
+
+        payrollRunDto = new PayrollRunDto(1L, "2025-05", "RUNNING", 250_000, 250_000, 16_500, 15_151.5);
+        payrollEntryDto = new PayrollEntryDto(7L, 2_350.5, 1_880.4);
+        bulkImportResultDto = new BulkImportResultDto(10_000, 850, 11_764.7);
+    }
+
+    @Benchmark
+    public String productDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(productDto);
+    }
+
+    @Benchmark
+    public String clientDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(clientDto);
+    }
+
+    @Benchmark
+    public String userDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(userDto);
+    }
+
+    @Benchmark
+    public String saleDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(saleDto);
+    }
+
+    @Benchmark
+    public String employeeDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(employeeDto);
+    }
+
+    @Benchmark
+    public String employeeImportDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(employeeImportDto);
+    }
+
+    @Benchmark
+    public String salaryAdjustmentDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(salaryAdjustmentDto);
+    }
+
+    @Benchmark
+    public String departmentStatsDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(departmentStatsDto);
+    }
+
+    @Benchmark
+    public String payrollRunDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(payrollRunDto);
+    }
+
+    @Benchmark
+    public String payrollEntryDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(payrollEntryDto);
+    }
+
+    @Benchmark
+    public String bulkImportResultDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(bulkImportResultDto);
+    }
+}
@@ -0,0 +1,98 @@
+package es.udc.fic.csi.baserest.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.udc.fic.csi.baserest.entity.Department;
+import es.udc.fic.csi.baserest.entity.Employee;
+import es.udc.fic.csi.baserest.entity.Product;
+
+/**
+ * `hashCode` and `equals` of the entities that override them.
+ *
+ * `Employee.hashCode` takes the id of its supervisor, not the supervisor
+ * itself, so it costs the same at any depth of the management chain. The two
+ * entities compared are equal but distinct instances.
+ *
+ * @author angelotefic
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityIdentityBenchmark {
+
+    private Product product;
+
+    private Product sameProduct;
+
+    private Department department;
+
+    private Department sameDepartment;
+
+    private Employee employee;
+
+    private Employee sameEmployee;
+
+    @Setup
+    public void setUp() {
+        department = new Department("Sales");
+        department.setId(1);
+        sameDepartment = new Department("Sales");
+        sameDepartment.setId(1);
+
+        product = new Product("Product", 9.99f, 100);
+        product.setId(1L);
+        sameProduct = new Product("Product", 9.99f, 100);
+        sameProduct.setId(1L);
+
+        var supervisor = new Employee("Supervisor", "Street 1", 50, 3_000.0, 100_000, department, null);
+        supervisor.setId(1L);
+        employee = new Employee("Employee", "Street 2", 30, 2_000.0, 100_001, department, supervisor);
+        employee.setId(2L);
+        sameEmployee = new Employee("Employee", "Street 2", 30, 2_000.0, 100_001, sameDepartment, supervisor);
+        sameEmployee.setId(2L);
+    }
+
+    @Benchmark
+    public int employeeHashCode() {
+        return employee.hashCode();
+    }
+
+    @Benchmark
+    public boolean employeeEquals() {
+        return employee.equals(sameEmployee);
+    }
+
+    @Benchmark
+    public int productHashCode() {
+        return product.hashCode();
+    }
+
+    @Benchmark
+    public boolean productEquals() {
+        return product.equals(sameProduct);
+    }
+
+    @Benchmark
+    public int departmentHashCode() {
+        return department.hashCode();
+    }
+
+    @Benchmark
+    public boolean departmentEquals() {
+        return department.equals(sameDepartment);
+    }
+}
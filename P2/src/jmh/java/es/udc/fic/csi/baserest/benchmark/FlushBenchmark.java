@@ -0,0 +1,117 @@
+package es.udc.fic.csi.baserest.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import es.udc.fic.csi.baserest.controller.SaleRestController;
+import es.udc.fic.csi.baserest.entity.Employee;
+import es.udc.fic.csi.baserest.repository.EmployeeRepository;
+
+/**
+ * The flushes of the writes, with the entities of the build: enhanced by
+ * default, as written with the `unenhanced` profile.
+ *
+ * Before every invocation, and outside its time, a transaction is begun and
+ * loads `managed` employees, as a busy persistence context. The invocation
+ * then either creates a sale through the controller and commits, or changes
+ * one salary and runs the department salary bulk update, flushed before the
+ * update. Unenhanced, every flush compares the state of every managed entity
+ * with its snapshot; enhanced, the entities record their own changes.
+ * Compare both builds:
+ *
+ * `mvn -P jmh test-compile exec:exec -Djmh.args=Flush` and
+ * `mvn -P jmh,unenhanced clean test-compile exec:exec -Djmh.args=Flush`
+ *
+ * @author angelotefic
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlushBenchmark {
+
+    @Param({ "0", "1000" })
+    public int managed;
+
+    private ApplicationState application;
+
+    private SaleRestController saleController;
+
+    private EmployeeRepository employeeRepository;
+
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionStatus transaction;
+
+    private List<Employee> employees;
+
+    @Setup
+    public void setUp(ApplicationState application) {
+        this.application = application;
+        saleController = AopTestUtils.getUltimateTargetObject(application.bean(SaleRestController.class));
+        employeeRepository = application.bean(EmployeeRepository.class);
+        transactionManager = application.bean(PlatformTransactionManager.class);
+        System.out.println(SelfDirtinessTracker.class.isAssignableFrom(Employee.class) ? "Enhanced entities"
+                : "Unenhanced entities");
+    }
+
+    @Setup(Level.Invocation)
+    public void begin() {
+        transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        employees = managed == 0 ? List.of()
+                : employeeRepository.findAllBy(PageRequest.ofSize(managed)).getContent();
+    }
+
+    @TearDown(Level.Invocation)
+    public void end() {
+        if (!transaction.isCompleted()) {
+            transactionManager.commit(transaction);
+        }
+    }
+
+    private static <T> T any(List<T> values) {
+        return values.get(ThreadLocalRandom.current().nextInt(values.size()));
+    }
+
+    @Benchmark
+    public ResponseEntity<?> createSale() {
+        ResponseEntity<?> response = saleController.createSale(any(application.productIds),
+                any(application.clientIds), 1);
+        transactionManager.commit(transaction);
+        return response;
+    }
+
+    @Benchmark
+    public int bulkUpdate() {
+        if (!employees.isEmpty()) {
+            Employee employee = any(employees);
+            employee.setSalary(employee.getSalary() + 1);
+        }
+        // Unchanged salaries, the cost is that of the flush and the update
+        return employeeRepository.adjustDepartmentSalaries(any(application.departmentIds), 1.0, 0.0);
+    }
+}
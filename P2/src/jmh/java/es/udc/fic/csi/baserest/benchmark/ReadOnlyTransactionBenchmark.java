@@ -0,0 +1,88 @@
+package es.udc.fic.csi.baserest.benchmark;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.udc.fic.csi.baserest.controller.BaseRestController;
+import es.udc.fic.csi.baserest.controller.EmployeeRestController;
+import es.udc.fic.csi.baserest.dto.EmployeeDto;
+
+/**
+ * The list endpoints of the transactional controllers, in the read-only
+ * transactions they run in (`readOnly=true`) and in the read-write ones they
+ * ran in before (`readOnly=false`).
+ *
+ * The controllers are called past their transactional proxy, inside a
+ * transaction of the given kind, on the database of {@link ApplicationState}.
+ * Run with `-prof gc` to compare the bytes allocated per request
+ * (`gc.alloc.rate.norm`) besides the time.
+ *
+ * @author angelotefic
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadOnlyTransactionBenchmark {
+
+    private static final Optional<Integer> PAGE_SIZE = Optional.of(500);
+
+    @Param({ "true", "false" })
+    public boolean readOnly;
+
+    private BaseRestController userController;
+
+    private EmployeeRestController employeeController;
+
+    private TransactionTemplate transaction;
+
+    @Setup
+    public void setUp(ApplicationState application) {
+        userController = AopTestUtils.getUltimateTargetObject(application.bean(BaseRestController.class));
+        employeeController = AopTestUtils.getUltimateTargetObject(application.bean(EmployeeRestController.class));
+        transaction = new TransactionTemplate(application.bean(PlatformTransactionManager.class));
+        transaction.setReadOnly(readOnly);
+    }
+
+    private static String anyDepartment() {
+        return "Department" + ThreadLocalRandom.current().nextInt(ApplicationState.DEPARTMENTS);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> userList() {
+        return transaction.execute(status -> userController.getUsers(PAGE_SIZE, Optional.empty(), false));
+    }
+
+    @Benchmark
+    public ResponseEntity<List<EmployeeDto>> employeeList() {
+        String department = anyDepartment();
+        return transaction.execute(status -> employeeController.getEmployeesByDepartment(department,
+                Optional.empty(), Optional.empty(), PAGE_SIZE));
+    }
+
+    @Benchmark
+    public ResponseEntity<List<EmployeeDto>> employeeSearch() {
+        return transaction.execute(status -> employeeController.search(Optional.empty(), Optional.of(30),
+                Optional.of(40), Optional.empty(), Optional.empty(), Optional.empty(), 0, PAGE_SIZE.get()));
+    }
+}
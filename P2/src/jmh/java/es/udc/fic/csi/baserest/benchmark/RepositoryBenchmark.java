@@ -0,0 +1,121 @@
+package es.udc.fic.csi.baserest.benchmark;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.udc.fic.csi.baserest.entity.Client;
+import es.udc.fic.csi.baserest.entity.Employee;
+import es.udc.fic.csi.baserest.entity.Product;
+import es.udc.fic.csi.baserest.repository.ClientRepository;
+import es.udc.fic.csi.baserest.repository.EmployeeRepository;
+import es.udc.fic.csi.baserest.repository.ProductRepository;
+import es.udc.fic.csi.baserest.repository.SaleRepository;
+
+/**
+ * Repository operations behind the endpoints, against the seeded in-memory H2
+ * database of {@link ApplicationState}.
+ *
+ * Every invocation works on a random row, so the results are not those of a
+ * single, always cached, row.
+ *
+ * @author angelotefic
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final PageRequest FIRST_PAGE = PageRequest.ofSize(20);
+
+    private ApplicationState application;
+
+    private ProductRepository productRepository;
+
+    private ClientRepository clientRepository;
+
+    private EmployeeRepository employeeRepository;
+
+    private SaleRepository saleRepository;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @Setup
+    public void setUp(ApplicationState application) {
+        this.application = application;
+        productRepository = application.bean(ProductRepository.class);
+        clientRepository = application.bean(ClientRepository.class);
+        employeeRepository = application.bean(EmployeeRepository.class);
+        saleRepository = application.bean(SaleRepository.class);
+        readOnlyTransaction = new TransactionTemplate(application.bean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    private static <T> T any(List<T> values) {
+        return values.get(ThreadLocalRandom.current().nextInt(values.size()));
+    }
+
+    @Benchmark
+    public Optional<Product> productFindById() {
+        return productRepository.findById(any(application.productIds));
+    }
+
+    @Benchmark
+    public Optional<Product> productFindByName() {
+        return productRepository.findByName("Product" + ThreadLocalRandom.current().nextInt(ApplicationState.PRODUCTS));
+    }
+
+    @Benchmark
+    public int productIncreaseStock() {
+        return productRepository.increaseStock("Product" + ThreadLocalRandom.current().nextInt(ApplicationState.PRODUCTS), 1);
+    }
+
+    @Benchmark
+    public Optional<Client> clientFindById() {
+        return clientRepository.findById(any(application.clientIds));
+    }
+
+    @Benchmark
+    public Slice<Employee> employeeFindByDepartment() {
+        return employeeRepository.findByDepartment(any(application.departmentIds), FIRST_PAGE);
+    }
+
+    @Benchmark
+    public List<Employee> employeeFindSubordinates() {
+        return employeeRepository.findSubordinates(any(application.employees).getId(), 1);
+    }
+
+    @Benchmark
+    public List<Employee> employeeFindManagementChain() {
+        return employeeRepository.findManagementChain(any(application.employees).getId(), Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public long saleStreamByProductId() {
+        Long productId = any(application.productIds);
+        return readOnlyTransaction.execute(status -> {
+            try (var sales = saleRepository.streamByProductId(productId)) {
+                return sales.count();
+            }
+        });
+    }
+}
@@ -0,0 +1,101 @@
+package es.udc.fic.csi.baserest.config;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.SQLException;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.h2.tools.Server;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AbstractDependsOnBeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * Several instances of the application on one host (`cluster` profile).
+ *
+ * Every instance connects to the database of an H2 TCP server on
+ * `cluster.h2.port` (`cluster.datasource.url`, set by the persistence
+ * profile), started by the instance with `cluster.h2.server=true` or on its
+ * own. Their second-level caches are kept coherent by a
+ * {@link ClusterInvalidationBus} on the UDP ports `cluster.bus.ports`.
+ *
+ * @author angelotefic
+ */
+@Configuration
+@Profile("cluster")
+public class ClusterConfiguration {
+
+    /**
+     * The database server of the cluster, when this instance runs it
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(name = "cluster.h2.server", havingValue = "true")
+    public Server h2TcpServer(@Value("${cluster.h2.port}") int port) throws SQLException {
+        // The in-memory database is created by the first connection
+        return Server.createTcpServer("-tcpPort", "" + port, "-ifNotExists");
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "cluster.h2.server", havingValue = "true")
+    public static DataSourceAfterH2Server dataSourceAfterH2Server() {
+        return new DataSourceAfterH2Server();
+    }
+
+    @Bean
+    public ClusterInvalidationBus clusterInvalidationBus(EntityManagerFactory entityManagerFactory,
+                                                         ApplicationEventPublisher publisher,
+                                                         @Value("${cluster.bus.host}") String host,
+                                                         @Value("${cluster.bus.ports}") String ports)
+            throws UnknownHostException {
+        String[] range = ports.split("-");
+        return new ClusterInvalidationBus(entityManagerFactory.unwrap(SessionFactoryImplementor.class), publisher,
+                InetAddress.getByName(host), Integer.parseInt(range[0].trim()),
+                Integer.parseInt(range[range.length - 1].trim()));
+    }
+
+    /**
+     * Sends the entity of every bulk update of the repositories, which
+     * Hibernate evicts from the cache of this instance alone
+     */
+    @Bean
+    public static BeanPostProcessor bulkUpdateInvalidation(ObjectProvider<ClusterInvalidationBus> bus) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repository) {
+                    repository.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxy, information) -> proxy.addAdvice((MethodInterceptor) invocation -> {
+                                Object result = invocation.proceed();
+                                if (invocation.getMethod().isAnnotationPresent(Modifying.class)) {
+                                    bus.getObject().invalidateRegion(information.getDomainType().getName());
+                                }
+                                return result;
+                            })));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Starts the database server before the connection pool
+     */
+    static class DataSourceAfterH2Server extends AbstractDependsOnBeanFactoryPostProcessor {
+
+        DataSourceAfterH2Server() {
+            super(DataSource.class, "h2TcpServer");
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package es.udc.fic.csi.baserest.config;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.hibernate.Cache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Keeps the second-level cache of every instance of a cluster coherent
+ * (`cluster` profile).
+ *
+ * Every instance listens on the first free UDP port of a range on the same
+ * host. The entities and collections written by an instance, as Hibernate
+ * flushes them, and the entities of its bulk updates (see
+ * {@link ClusterConfiguration}) are sent to every other port of the range
+ * once the transaction commits, as datagrams of text lines. The instances
+ * that receive them evict those entries and their query results, and publish
+ * a {@link RemoteInvalidationEvent} for the caches of their own.
+ *
+ * Datagrams are not acknowledged: an entry whose invalidation is lost, or
+ * loaded from the database just before the change commits, stays stale for
+ * at most the time to live of its region. Sent and received invalidations
+ * are counted in the `cluster.invalidations` meter.
+ *
+ * @author angelotefic
+ */
+public class ClusterInvalidationBus implements SmartLifecycle, MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterInvalidationBus.class);
+
+    // Well below the loopback MTU
+    private static final int MAX_DATAGRAM = 8_192;
+
+    private static final String ENTITY = "E";
+
+    private static final String COLLECTION = "C";
+
+    private static final String REGION = "R";
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    private final ApplicationEventPublisher publisher;
+
+    private final InetAddress host;
+
+    private final int firstPort;
+
+    private final int lastPort;
+
+    private final String node = UUID.randomUUID().toString();
+
+    private final LongAdder sent = new LongAdder();
+
+    private final LongAdder received = new LongAdder();
+
+    private volatile DatagramChannel channel;
+
+    private volatile Thread worker;
+
+    private int port;
+
+    /**
+     * @param sessionFactory the session factory, whose cache is kept coherent
+     * @param publisher      publishes the invalidations received
+     * @param host           the host of every instance
+     * @param firstPort      the first port of the range
+     * @param lastPort       the last port of the range
+     */
+    public ClusterInvalidationBus(SessionFactoryImplementor sessionFactory, ApplicationEventPublisher publisher,
+                                  InetAddress host, int firstPort, int lastPort) {
+        this.sessionFactory = sessionFactory;
+        this.publisher = publisher;
+        this.host = host;
+        this.firstPort = firstPort;
+        this.lastPort = lastPort;
+    }
+
+    /**
+     * Bind the first free port and start listening for the other instances
+     */
+    @Override
+    public void start() {
+        try {
+            channel = bind();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open the invalidation bus", e);
+        }
+        FlushListener listener = new FlushListener();
+        EventListenerRegistry listeners = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        listeners.appendListeners(EventType.POST_INSERT, listener);
+        listeners.appendListeners(EventType.POST_UPDATE, listener);
+        listeners.appendListeners(EventType.POST_DELETE, listener);
+        listeners.appendListeners(EventType.POST_COLLECTION_RECREATE, listener);
+        listeners.appendListeners(EventType.POST_COLLECTION_UPDATE, listener);
+        listeners.appendListeners(EventType.POST_COLLECTION_REMOVE, listener);
+
+        Thread thread = new Thread(this::receive, "cluster-bus");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+        logger.info("Invalidation bus listening on {}:{}", host.getHostAddress(), port);
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = worker;
+        worker = null;
+        try {
+            channel.close();
+            if (thread != null) {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot close the invalidation bus", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return worker != null;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cluster.invalidations", sent, LongAdder::sum)
+                .description("Cache invalidations sent to and received from the other instances")
+                .tag("direction", "sent")
+                .register(registry);
+        FunctionCounter.builder("cluster.invalidations", received, LongAdder::sum)
+                .description("Cache invalidations sent to and received from the other instances")
+                .tag("direction", "received")
+                .register(registry);
+    }
+
+    /**
+     * @return the port this instance listens on
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Evict every cached entity of a type on the other instances, once the
+     * current transaction commits
+     *
+     * @param entityName the entity name, e.g. the name of the Product class
+     */
+    public void invalidateRegion(String entityName) {
+        afterCommit(REGION + '\t' + entityName);
+    }
+
+    private DatagramChannel bind() throws IOException {
+        for (int candidate = firstPort; candidate <= lastPort; candidate++) {
+            DatagramChannel opened = DatagramChannel.open();
+            try {
+                opened.setOption(StandardSocketOptions.SO_RCVBUF, 1 << 20);
+                opened.bind(new InetSocketAddress(host, candidate));
+                port = candidate;
+                return opened;
+            } catch (BindException e) {
+                opened.close();
+            }
+        }
+        throw new IllegalStateException("Every port from " + firstPort + " to " + lastPort + " is in use");
+    }
+
+    private void afterCommit(String line) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(List.of(line));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<String> lines = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, lines);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(ClusterInvalidationBus.this);
+                    if (status == STATUS_COMMITTED) {
+                        send(lines);
+                    }
+                }
+            });
+            pending = lines;
+        }
+        pending.add(line);
+    }
+
+    private void send(Collection<String> lines) {
+        DatagramChannel open = channel;
+        if (open == null || !open.isOpen()) {
+            return;
+        }
+        for (ByteBuffer datagram : datagrams(lines)) {
+            for (int peer = firstPort; peer <= lastPort; peer++) {
+                if (peer == port) {
+                    continue;
+                }
+                try {
+                    open.send(datagram.duplicate(), new InetSocketAddress(host, peer));
+                } catch (IOException e) {
+                    logger.warn("Cannot send {} invalidations to port {}", lines.size(), peer, e);
+                }
+            }
+        }
+        sent.add(lines.size());
+    }
+
+    /**
+     * The lines after the id of this instance, in as few datagrams as they fit
+     */
+    private List<ByteBuffer> datagrams(Collection<String> lines) {
+        List<ByteBuffer> datagrams = new ArrayList<>();
+        StringBuilder text = new StringBuilder(node);
+        for (String line : lines) {
+            if (text.length() > node.length() && (text.length() + line.length()) * 3 + 3 > MAX_DATAGRAM) {
+                datagrams.add(StandardCharsets.UTF_8.encode(text.toString()));
+                text = new StringBuilder(node);
+            }
+            text.append('\n').append(line);
+        }
+        datagrams.add(StandardCharsets.UTF_8.encode(text.toString()));
+        return datagrams;
+    }
+
+    private void receive() {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_DATAGRAM);
+        while (worker != null) {
+            try {
+                buffer.clear();
+                channel.receive(buffer);
+                buffer.flip();
+                apply(StandardCharsets.UTF_8.decode(buffer).toString());
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Cannot apply the invalidations received", e);
+            }
+        }
+    }
+
+    private void apply(String text) {
+        String[] lines = text.split("\n");
+        if (lines[0].equals(node)) {
+            return;
+        }
+        Cache cache = sessionFactory.getCache();
+        Set<String> entityNames = new HashSet<>();
+        for (int i = 1; i < lines.length; i++) {
+            String[] fields = lines[i].split("\t");
+            switch (fields[0]) {
+                case ENTITY -> {
+                    cache.evictEntityData(fields[1], id(fields[1], fields[2]));
+                    entityNames.add(fields[1]);
+                }
+                case COLLECTION -> {
+                    String owner = fields[1].substring(0, fields[1].lastIndexOf('.'));
+                    cache.evictCollectionData(fields[1], id(owner, fields[2]));
+                    entityNames.add(owner);
+                }
+                case REGION -> {
+                    cache.evictEntityData(fields[1]);
+                    entityNames.add(fields[1]);
+                }
+                default -> logger.warn("Unknown invalidation {}", lines[i]);
+            }
+        }
+        // Any of them may change the results of the cached queries
+        cache.evictQueryRegions();
+        received.add(lines.length - 1);
+        publisher.publishEvent(new RemoteInvalidationEvent(entityNames));
+    }
+
+    /**
+     * The id as the cache keys hold it
+     */
+    private Serializable id(String entityName, String id) {
+        Class<?> type = sessionFactory.getMetamodel().entityPersister(entityName).getIdentifierType().getReturnedClass();
+        if (type == Long.class) {
+            return Long.valueOf(id);
+        }
+        if (type == Integer.class) {
+            return Integer.valueOf(id);
+        }
+        return id;
+    }
+
+    /**
+     * Collects the entities and collections written by every flush
+     */
+    private class FlushListener implements PostInsertEventListener, PostUpdateEventListener,
+            PostDeleteEventListener, PostCollectionRecreateEventListener, PostCollectionUpdateEventListener,
+            PostCollectionRemoveEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            entity(event.getPersister(), event.getId());
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            entity(event.getPersister(), event.getId());
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            entity(event.getPersister(), event.getId());
+        }
+
+        @Override
+        public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+            collection(event);
+        }
+
+        @Override
+        public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+            collection(event);
+        }
+
+        @Override
+        public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+            collection(event);
+        }
+
+        @Override
+        public boolean requiresPostCommitHanding(EntityPersister persister) {
+            return false;
+        }
+
+        private void entity(EntityPersister persister, Serializable id) {
+            afterCommit(ENTITY + '\t' + persister.getEntityName() + '\t' + id);
+        }
+
+        private void collection(AbstractCollectionEvent event) {
+            Serializable owner = event.getAffectedOwnerIdOrNull();
+            if (owner != null) {
+                afterCommit(COLLECTION + '\t' + event.getCollection().getRole() + '\t' + owner);
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package es.udc.fic.csi.baserest.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A handler that creates a client: under the `sharding` profile the request
+ * runs on the next shard in turn, whose sequence gives the client an id of
+ * that shard (see {@link ShardKeyInterceptor}).
+ *
+ * @author angelotefic
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface NewShardKey {
+}
@@ -0,0 +1,446 @@
+package es.udc.fic.csi.baserest.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.h2.api.Trigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Row trigger keeping the copies of the products on every shard (see
+ * {@link ShardingConfiguration}).
+ *
+ * Products are written on the home shard, and their stock also on the shard
+ * of every sale. The changes are applied to the other shards once the
+ * transaction that made them commits, in the same thread: inserts and deletes
+ * as they are, updates as the new name and price and the stock difference, so
+ * the sales of different shards add up instead of overwriting each other. The
+ * changes applied to a copy are not copied again.
+ *
+ * The changes a shard cannot copy to another are kept in the copy log of
+ * their own shard, together with the later ones for that shard, which must
+ * not overtake them. A background thread copies them from the log in order
+ * every retry interval, and removes them once copied.
+ *
+ * @author angelotefic
+ */
+public class ProductCopyTrigger implements Trigger {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCopyTrigger.class);
+
+    static final String TABLE = "product";
+
+    static final String TRIGGER_PREFIX = "COPY_PRODUCT_";
+
+    static final String LOG_TABLE = "product_copy_log";
+
+    private static final String CREATE_LOG_TABLE = "CREATE TABLE IF NOT EXISTS " + LOG_TABLE
+            + " (seq BIGINT AUTO_INCREMENT PRIMARY KEY, target INT NOT NULL, old_row ARRAY, new_row ARRAY)";
+
+    private static final String INSERT_ENTRY = "INSERT INTO " + LOG_TABLE + " (target, old_row, new_row) VALUES (?, ?, ?)";
+
+    private static final String SELECT_ENTRIES = "SELECT seq, old_row, new_row FROM " + LOG_TABLE
+            + " WHERE target = ? ORDER BY seq";
+
+    private static final String DELETE_ENTRY = "DELETE FROM " + LOG_TABLE + " WHERE seq = ?";
+
+    private static final String INSERT = "MERGE INTO product (id, name, price, stock) KEY (id) VALUES (?, ?, ?, ?)";
+
+    private static final String UPDATE = "UPDATE product SET name = ?, price = ?, stock = stock + ? WHERE id = ?";
+
+    private static final String DELETE = "DELETE FROM product WHERE id = ?";
+
+    // Columns of the rows of a change
+    private static final int ID = 0;
+
+    private static final int NAME = 1;
+
+    private static final int PRICE = 2;
+
+    private static final int STOCK = 3;
+
+    /**
+     * The copies of every application context, by the key in its trigger names
+     */
+    private static final Map<String, Copies> COPIES = new ConcurrentHashMap<>();
+
+    private static final AtomicLong KEYS = new AtomicLong();
+
+    private static final ThreadLocal<Boolean> COPYING = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * A product row change, as its id, name, price and stock
+     */
+    private record Change(Object[] oldRow, Object[] newRow) {
+    }
+
+    /**
+     * The changes of one shard for another waiting in its copy log
+     */
+    private static class Backlog {
+
+        private volatile int pending;
+    }
+
+    /**
+     * The shards of an application context, and the changes they have not
+     * copied to each other yet
+     */
+    static class Copies {
+
+        private final String key;
+
+        private final List<? extends DataSource> shards;
+
+        private final long retryMillis;
+
+        /**
+         * By source and target shard
+         */
+        private final Backlog[][] backlogs;
+
+        private final LongAdder failures = new LongAdder();
+
+        private volatile Thread retrier;
+
+        private Copies(String key, List<? extends DataSource> shards, long retryMillis) {
+            this.key = key;
+            this.shards = shards;
+            this.retryMillis = retryMillis;
+            backlogs = new Backlog[shards.size()][shards.size()];
+            for (Backlog[] row : backlogs) {
+                for (int target = 0; target < row.length; target++) {
+                    row[target] = new Backlog();
+                }
+            }
+        }
+
+        /**
+         * @return the changes that could not be copied to a shard when committed
+         */
+        long failures() {
+            return failures.sum();
+        }
+
+        /**
+         * @return the changes waiting in the copy logs
+         */
+        long pending() {
+            long pending = 0;
+            for (Backlog[] row : backlogs) {
+                for (Backlog backlog : row) {
+                    pending += backlog.pending;
+                }
+            }
+            return pending;
+        }
+
+        private void copy(int source, List<Change> changes) {
+            COPYING.set(true);
+            try {
+                for (int target = 0; target < shards.size(); target++) {
+                    if (target == source) {
+                        continue;
+                    }
+                    Backlog backlog = backlogs[source][target];
+                    if (backlog.pending == 0) {
+                        try {
+                            apply(target, changes);
+                            continue;
+                        } catch (SQLException e) {
+                            logger.warn("Cannot copy {} product changes to shard {}, retrying", changes.size(), target, e);
+                            failures.add(changes.size());
+                        }
+                    }
+                    log(source, target, changes);
+                }
+            } finally {
+                COPYING.set(false);
+            }
+        }
+
+        private void apply(int target, List<Change> changes) throws SQLException {
+            try (Connection connection = shards.get(target).getConnection()) {
+                connection.setAutoCommit(false);
+                try {
+                    for (Change change : changes) {
+                        ProductCopyTrigger.apply(connection, change);
+                    }
+                    connection.commit();
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+        }
+
+        private void log(int source, int target, List<Change> changes) {
+            Backlog backlog = backlogs[source][target];
+            synchronized (backlog) {
+                try (Connection connection = shards.get(source).getConnection();
+                     PreparedStatement insert = connection.prepareStatement(INSERT_ENTRY)) {
+                    for (Change change : changes) {
+                        insert.setInt(1, target);
+                        insert.setObject(2, change.oldRow());
+                        insert.setObject(3, change.newRow());
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                    backlog.pending += changes.size();
+                } catch (SQLException e) {
+                    logger.error("Cannot log {} product changes for shard {}, they are lost", changes.size(), target, e);
+                }
+            }
+        }
+
+        /**
+         * Copy the changes logged by a shard for another, in order
+         */
+        private void retry(int source, int target) throws SQLException {
+            Backlog backlog = backlogs[source][target];
+            synchronized (backlog) {
+                if (backlog.pending == 0) {
+                    return;
+                }
+                try (Connection connection = shards.get(source).getConnection()) {
+                    List<Long> seqs = new ArrayList<>();
+                    List<Change> changes = new ArrayList<>();
+                    try (PreparedStatement select = connection.prepareStatement(SELECT_ENTRIES)) {
+                        select.setInt(1, target);
+                        try (ResultSet entries = select.executeQuery()) {
+                            while (entries.next()) {
+                                seqs.add(entries.getLong("seq"));
+                                changes.add(new Change((Object[]) entries.getObject("old_row"),
+                                        (Object[]) entries.getObject("new_row")));
+                            }
+                        }
+                    }
+                    apply(target, changes);
+                    try (PreparedStatement delete = connection.prepareStatement(DELETE_ENTRY)) {
+                        for (Long seq : seqs) {
+                            delete.setLong(1, seq);
+                            delete.addBatch();
+                        }
+                        delete.executeBatch();
+                    }
+                    backlog.pending = 0;
+                    logger.info("Copied {} logged product changes to shard {}", changes.size(), target);
+                }
+            }
+        }
+
+        private void retryAll() {
+            while (retrier != null) {
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                COPYING.set(true);
+                for (int source = 0; source < shards.size(); source++) {
+                    for (int target = 0; target < shards.size(); target++) {
+                        try {
+                            retry(source, target);
+                        } catch (SQLException | RuntimeException e) {
+                            // The entries stay in the log and are copied again at the next retry
+                            logger.warn("Cannot copy the logged product changes to shard {}, retrying", target, e);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void stop() {
+            Thread thread = retrier;
+            retrier = null;
+            if (thread != null) {
+                thread.interrupt();
+                try {
+                    thread.join(TimeUnit.SECONDS.toMillis(10));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private Copies copies;
+
+    private int shard;
+
+    private int id;
+
+    private int name;
+
+    private int price;
+
+    private int stock;
+
+    /**
+     * @param shards      the connections of every shard for the copies, the home one first
+     * @param retryMillis the wait between the retries of the changes that could not be copied
+     * @return the copies, to install their triggers
+     */
+    static Copies register(List<? extends DataSource> shards, long retryMillis) {
+        String key = Long.toString(KEYS.incrementAndGet(), Character.MAX_RADIX).toUpperCase();
+        Copies copies = new Copies(key, shards, retryMillis);
+        COPIES.put(key, copies);
+        Thread thread = new Thread(copies::retryAll, "product-copies-" + key);
+        thread.setDaemon(true);
+        copies.retrier = thread;
+        thread.start();
+        return copies;
+    }
+
+    static void unregister(Copies copies) {
+        COPIES.values().remove(copies);
+        copies.stop();
+    }
+
+    /**
+     * Replace the copy triggers of a shard, left over by a previous run on a
+     * file database, and take up the changes left in its copy log
+     *
+     * @param connection a connection to the shard
+     * @param copies     the copies of the shards
+     * @param shard      the shard
+     */
+    static void install(Connection connection, Copies copies, int shard) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            List<String> triggers = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery("SELECT TRIGGER_NAME FROM INFORMATION_SCHEMA.TRIGGERS"
+                    + " WHERE TRIGGER_NAME LIKE '" + TRIGGER_PREFIX + "%'")) {
+                while (rows.next()) {
+                    triggers.add(rows.getString(1));
+                }
+            }
+            for (String trigger : triggers) {
+                statement.execute("DROP TRIGGER " + trigger);
+            }
+            statement.execute(CREATE_LOG_TABLE);
+            try (ResultSet rows = statement.executeQuery("SELECT target, COUNT(*) FROM " + LOG_TABLE + " GROUP BY target")) {
+                while (rows.next()) {
+                    copies.backlogs[shard][rows.getInt(1)].pending = rows.getInt(2);
+                }
+            }
+            statement.execute("CREATE TRIGGER " + TRIGGER_PREFIX + copies.key + "_" + shard + " AFTER INSERT, UPDATE, DELETE ON "
+                    + TABLE + " FOR EACH ROW CALL \"" + ProductCopyTrigger.class.getName() + "\"");
+        }
+    }
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before,
+                     int type) throws SQLException {
+        String[] keyAndShard = triggerName.substring(TRIGGER_PREFIX.length()).split("_");
+        copies = COPIES.get(keyAndShard[0]);
+        shard = Integer.parseInt(keyAndShard[1]);
+        List<String> columns = new ArrayList<>();
+        try (ResultSet rows = conn.getMetaData().getColumns(null, schemaName, tableName, null)) {
+            while (rows.next()) {
+                columns.add(rows.getString("COLUMN_NAME"));
+            }
+        }
+        id = columns.indexOf("ID");
+        name = columns.indexOf("NAME");
+        price = columns.indexOf("PRICE");
+        stock = columns.indexOf("STOCK");
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) {
+        if (copies == null || copies.shards.size() < 2 || COPYING.get()) {
+            return;
+        }
+        Change change = new Change(columns(oldRow), columns(newRow));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            copies.copy(shard, List.of(change));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<Change> pending = (List<Change>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<Change> changes = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(ProductCopyTrigger.this);
+                    if (status == STATUS_COMMITTED) {
+                        copies.copy(shard, changes);
+                    }
+                }
+            });
+            pending = changes;
+        }
+        pending.add(change);
+    }
+
+    /**
+     * The columns of a row that are copied, in the order of a change
+     */
+    private Object[] columns(Object[] row) {
+        return row == null ? null : new Object[] { row[id], row[name], row[price], row[stock] };
+    }
+
+    private static void apply(Connection connection, Change change) throws SQLException {
+        Object[] oldRow = change.oldRow();
+        Object[] newRow = change.newRow();
+        if (newRow == null) {
+            try (PreparedStatement delete = connection.prepareStatement(DELETE)) {
+                delete.setObject(1, oldRow[ID]);
+                delete.executeUpdate();
+            } catch (SQLException e) {
+                // Only the statement is rolled back
+                logger.warn("Product {} still has sales on a shard, its copy is kept", oldRow[ID]);
+            }
+            return;
+        }
+        if (oldRow != null) {
+            try (PreparedStatement update = connection.prepareStatement(UPDATE)) {
+                update.setObject(1, newRow[NAME]);
+                update.setObject(2, newRow[PRICE]);
+                update.setInt(3, ((Number) newRow[STOCK]).intValue() - ((Number) oldRow[STOCK]).intValue());
+                update.setObject(4, newRow[ID]);
+                if (update.executeUpdate() > 0) {
+                    return;
+                }
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+            insert.setObject(1, newRow[ID]);
+            insert.setObject(2, newRow[NAME]);
+            insert.setObject(3, newRow[PRICE]);
+            insert.setObject(4, newRow[STOCK]);
+            insert.executeUpdate();
+        }
+    }
+
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+    @Override
+    public void remove() {
+        // Nothing to release
+    }
+}
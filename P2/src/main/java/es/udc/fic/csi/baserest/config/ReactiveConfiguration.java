@@ -0,0 +1,109 @@
+package es.udc.fic.csi.baserest.config;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.udc.fic.csi.baserest.controller.ProductReactiveHandler;
+import es.udc.fic.csi.baserest.controller.SaleReactiveHandler;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+
+/**
+ * Non-blocking read path for product and sale queries (`reactive` profile).
+ *
+ * A WebFlux server on `reactive.port` serves `GET /product/{id}`,
+ * `GET /product/search` and the sale queries from R2DBC, with the same
+ * responses as the servlet controllers, which keep serving every endpoint on
+ * the main port. The R2DBC connections, pooled, open the same H2 database as
+ * the JDBC data source.
+ *
+ * @author angelotefic
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfiguration {
+
+    private static final String H2_JDBC_PREFIX = "jdbc:h2:";
+
+    /**
+     * Not a bean: the JDBC data source and JPA back off when there is an R2DBC connection factory bean
+     */
+    private ConnectionPool connectionPool;
+
+    @Bean
+    public DatabaseClient databaseClient(DataSourceProperties dataSourceProperties,
+                                         @Value("${reactive.connections:10}") int connections) {
+        String url = dataSourceProperties.determineUrl();
+        if (url == null || !url.startsWith(H2_JDBC_PREFIX)) {
+            throw new IllegalStateException("The reactive read path needs an H2 database, not " + url);
+        }
+        ConnectionFactory h2 = new H2ConnectionFactory(H2ConnectionConfiguration.builder()
+                .url(url.substring(H2_JDBC_PREFIX.length()))
+                .username(dataSourceProperties.determineUsername())
+                .password(dataSourceProperties.determinePassword())
+                .build());
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(h2)
+                .initialSize(Math.min(2, connections))
+                .maxSize(connections)
+                .build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    /**
+     * Publishes the usage of the R2DBC pool as `r2dbc.pool.*` meters
+     */
+    @Bean
+    public MeterBinder reactiveConnectionPoolMetrics(DatabaseClient databaseClient) {
+        return registry -> new ConnectionPoolMetrics(connectionPool, "reactive", Tags.empty()).bindTo(registry);
+    }
+
+    @PreDestroy
+    public void closeConnectionPool() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> readRoutes(ProductReactiveHandler products, SaleReactiveHandler sales) {
+        return route(GET("/product/search"), products::searchProducts)
+                .andRoute(GET("/product/{id}"), products::getProductById)
+                .andRoute(GET("/sale/product/{productId}"), sales::getSalesByProduct)
+                .andRoute(GET("/sale/client/{clientId}"), sales::getSalesByClient)
+                .andRoute(GET("/sale/{id}"), sales::getSaleById);
+    }
+
+    @Bean
+    public ReactiveReadServer reactiveReadServer(RouterFunction<ServerResponse> readRoutes, ObjectMapper objectMapper,
+                                                 @Value("${reactive.port:8081}") int port) {
+        // The JSON of the application, as in the servlet responses
+        var strategies = HandlerStrategies.builder().codecs(codecs -> {
+            codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+            codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+        }).build();
+        return new ReactiveReadServer(port, RouterFunctions.toHttpHandler(readRoutes, strategies));
+    }
+}
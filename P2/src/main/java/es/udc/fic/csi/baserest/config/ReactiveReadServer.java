@@ -0,0 +1,56 @@
+package es.udc.fic.csi.baserest.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.server.reactive.HttpHandler;
+
+/**
+ * The Netty server of the reactive read path, on its own port next to the
+ * servlet container. Started and stopped with the application context.
+ *
+ * @author angelotefic
+ */
+public class ReactiveReadServer implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveReadServer.class);
+
+    private final WebServer webServer;
+
+    private volatile boolean running;
+
+    /**
+     * @param port        the port, or 0 for any free one
+     * @param httpHandler handles every request
+     */
+    public ReactiveReadServer(int port, HttpHandler httpHandler) {
+        this.webServer = new NettyReactiveWebServerFactory(port).getWebServer(httpHandler);
+    }
+
+    @Override
+    public void start() {
+        webServer.start();
+        running = true;
+        logger.info("Reactive read path listening on port {}", webServer.getPort());
+    }
+
+    @Override
+    public void stop() {
+        webServer.stop();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the port the server listens on, once started
+     */
+    public int getPort() {
+        return webServer.getPort();
+    }
+}
@@ -0,0 +1,89 @@
+package es.udc.fic.csi.baserest.config;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Read/write routing over a primary and a replica database (`read-replica`
+ * profile).
+ *
+ * The primary is configured as the single database otherwise is
+ * (`spring.datasource.*`), the replica with `datasource.replica.url`, set by
+ * the persistence profile, and `datasource.replica.hikari.*`. Read-only
+ * transactions run on the replica, anything else on the primary (see
+ * {@link ReadWriteRoutingDataSource}). With `datasource.replica.stand-in`, the
+ * replica is kept in sync by a {@link ReplicaReplicator} of this process
+ * instead of by the database.
+ *
+ * @author angelotefic
+ */
+@Configuration
+@Profile("read-replica")
+public class ReadReplicaConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${datasource.replica.url}") String url,
+                                              @Value("${datasource.replica.username:}") String username,
+                                              @Value("${datasource.replica.password:}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username.isEmpty() ? properties.determineUsername() : username)
+                .password(password.isEmpty() ? properties.determinePassword() : password)
+                .build();
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                        @Qualifier("replicaDataSource") DataSource replica) {
+        return new ReadWriteRoutingDataSource(primary, replica);
+    }
+
+    /**
+     * The data source of JPA and of the JDBC templates
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * Started once the schema is migrated and validated by JPA
+     */
+    @Bean
+    @ConditionalOnProperty(name = "datasource.replica.stand-in", havingValue = "true")
+    public ReplicaReplicator replicaReplicator(@Qualifier("primaryDataSource") DataSource primary,
+                                              @Qualifier("replicaDataSource") DataSource replica,
+                                              EntityManagerFactory entityManagerFactory,
+                                              @Value("${datasource.replica.poll-interval:20}") long pollInterval,
+                                              @Value("${datasource.replica.batch-size:1000}") int batchSize) {
+        return new ReplicaReplicator(primary, replica, pollInterval, batchSize);
+    }
+}
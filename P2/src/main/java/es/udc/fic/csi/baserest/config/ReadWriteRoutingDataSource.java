@@ -0,0 +1,64 @@
+package es.udc.fic.csi.baserest.config;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Sends the connections of read-only transactions to the replica, and every
+ * other connection to the primary.
+ *
+ * The transaction must be known when the connection is taken: wrap it in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy},
+ * since the transaction manager asks for the connection before it marks the
+ * transaction read-only. The decisions are counted in the
+ * `datasource.routing` meter, tagged with the `target` database.
+ *
+ * @author angelotefic
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements MeterBinder {
+
+    enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final LongAdder primaryConnections = new LongAdder();
+
+    private final LongAdder replicaConnections = new LongAdder();
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            replicaConnections.increment();
+            return Target.REPLICA;
+        }
+        primaryConnections.increment();
+        return Target.PRIMARY;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("datasource.routing", primaryConnections, LongAdder::sum)
+                .description("Connections taken from each database")
+                .tag("target", "primary")
+                .register(registry);
+        FunctionCounter.builder("datasource.routing", replicaConnections, LongAdder::sum)
+                .description("Connections taken from each database")
+                .tag("target", "replica")
+                .register(registry);
+    }
+}
@@ -0,0 +1,14 @@
+package es.udc.fic.csi.baserest.config;
+
+import java.util.Set;
+
+/**
+ * Entities changed by another instance of the cluster, published once their
+ * cached copies are evicted (see {@link ClusterInvalidationBus}), for the
+ * in-process caches built from them.
+ *
+ * @param entityNames the names of the changed entities, e.g. the name of the Employee class
+ * @author angelotefic
+ */
+public record RemoteInvalidationEvent(Set<String> entityNames) {
+}
@@ -0,0 +1,381 @@
+package es.udc.fic.csi.baserest.config;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Keeps a second H2 database in sync with the primary, as a stand-in for a
+ * read replica.
+ *
+ * At startup the replica is replaced by a copy of the primary, and every
+ * table of the primary gets a {@link ReplicationTrigger}, which logs its row
+ * changes in the same transaction. A background thread then applies the
+ * committed log entries to the replica in order, a batch per replica
+ * transaction, and removes them from the log. Writes made through JPA and
+ * through plain JDBC (the payroll job, the bulk import, the data generator)
+ * are replicated alike.
+ *
+ * The replica lags behind the primary: `datasource.replica.lag` is the age,
+ * in seconds, of the oldest change not yet applied when the log was last
+ * polled (0 when it was caught up). Referential integrity is off on the
+ * replica, where the changes of concurrent transactions may arrive in a
+ * different order; the primary has checked them already.
+ *
+ * @author angelotefic
+ */
+public class ReplicaReplicator implements SmartLifecycle, MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaReplicator.class);
+
+    private static final String TRIGGER_PREFIX = "REPLICATE_";
+
+    private static final String SELECT_ENTRIES = "SELECT seq, table_name, old_row, new_row, logged_at FROM "
+            + ReplicationTrigger.LOG_TABLE + " ORDER BY seq LIMIT ?";
+
+    private static final String DELETE_ENTRY = "DELETE FROM " + ReplicationTrigger.LOG_TABLE + " WHERE seq = ?";
+
+    private final DataSource primary;
+
+    private final DataSource replica;
+
+    private final long pollIntervalMillis;
+
+    private final int batchSize;
+
+    /**
+     * Columns and primary key of every replicated table, read from the replica
+     */
+    private final Map<String, TableShape> tables = new ConcurrentHashMap<>();
+
+    private volatile long lagMillis;
+
+    private volatile long applied;
+
+    private volatile Thread worker;
+
+    private record TableShape(List<String> columns, List<Integer> keyIndexes) {
+    }
+
+    /**
+     * @param primary            the primary database, without routing
+     * @param replica            the replica database, without routing
+     * @param pollIntervalMillis the wait between polls of the log, when it is caught up
+     * @param batchSize          the changes applied per replica transaction
+     */
+    public ReplicaReplicator(DataSource primary, DataSource replica, long pollIntervalMillis, int batchSize) {
+        this.primary = primary;
+        this.replica = replica;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Copy the primary to the replica and start logging the changes. Must run
+     * before anything writes to the primary.
+     */
+    @Override
+    public void start() {
+        try {
+            copyPrimary();
+            installTriggers();
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Cannot set up the replica", e);
+        }
+        Thread thread = new Thread(this::replicate, "replicator");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = worker;
+        worker = null;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return worker != null;
+    }
+
+    /**
+     * Before the web server, after the schema is created
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("datasource.replica.lag", this, replicator -> replicator.lagMillis / 1000.0)
+                .description("Age of the oldest change not yet applied to the replica")
+                .baseUnit("seconds")
+                .register(registry);
+        FunctionCounter.builder("datasource.replica.changes", this, replicator -> replicator.applied)
+                .description("Row changes applied to the replica")
+                .register(registry);
+    }
+
+    /**
+     * Wait until every change committed so far is applied to the replica
+     *
+     * @param timeoutMillis the longest wait
+     * @return whether the replica caught up in time
+     */
+    public boolean awaitCaughtUp(long timeoutMillis) throws InterruptedException, SQLException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (pendingChanges() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(pollIntervalMillis);
+        }
+        return true;
+    }
+
+    private long pendingChanges() throws SQLException {
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM " + ReplicationTrigger.LOG_TABLE)) {
+            count.next();
+            return count.getLong(1);
+        }
+    }
+
+    private void copyPrimary() throws SQLException, IOException {
+        Path script = Files.createTempFile("replica", ".sql");
+        String scriptName = script.toAbsolutePath().toString().replace("'", "''");
+        try (Connection connection = primary.getConnection(); Statement statement = connection.createStatement()) {
+            // Left over by a previous run on a file database: the copy supersedes them
+            for (String trigger : triggers(connection)) {
+                statement.execute("DROP TRIGGER " + trigger);
+            }
+            statement.execute("DROP TABLE IF EXISTS " + ReplicationTrigger.LOG_TABLE);
+            statement.execute("SCRIPT TO '" + scriptName + "'");
+        }
+        try (Connection connection = replica.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            statement.execute("RUNSCRIPT FROM '" + scriptName + "'");
+            statement.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        } finally {
+            Files.deleteIfExists(script);
+        }
+    }
+
+    private void installTriggers() throws SQLException {
+        try (Connection connection = primary.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(ReplicationTrigger.CREATE_LOG_TABLE);
+            List<String> names = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery("SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES"
+                    + " WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_TYPE = 'TABLE'")) {
+                while (rows.next()) {
+                    names.add(rows.getString(1));
+                }
+            }
+            for (String table : names) {
+                if (!table.equalsIgnoreCase(ReplicationTrigger.LOG_TABLE)) {
+                    statement.execute("CREATE TRIGGER " + TRIGGER_PREFIX + table + " AFTER INSERT, UPDATE, DELETE ON "
+                            + quoted(table) + " FOR EACH ROW CALL \"" + ReplicationTrigger.class.getName() + "\"");
+                }
+            }
+            logger.info("Replicating {} tables to the replica", names.size() - 1);
+        }
+    }
+
+    private static List<String> triggers(Connection connection) throws SQLException {
+        List<String> triggers = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT TRIGGER_NAME FROM INFORMATION_SCHEMA.TRIGGERS"
+                     + " WHERE TRIGGER_NAME LIKE '" + TRIGGER_PREFIX + "%'")) {
+            while (rows.next()) {
+                triggers.add(rows.getString(1));
+            }
+        }
+        return triggers;
+    }
+
+    private void replicate() {
+        while (worker != null) {
+            try {
+                if (poll() < batchSize) {
+                    Thread.sleep(pollIntervalMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (SQLException | RuntimeException e) {
+                // The entries stay in the log and are applied again at the next poll
+                logger.warn("Cannot apply the changes to the replica, retrying", e);
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(1));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply the oldest committed changes to the replica
+     *
+     * @return the number of changes applied
+     */
+    private int poll() throws SQLException {
+        List<Long> seqs = new ArrayList<>();
+        try (Connection source = primary.getConnection()) {
+            try (Connection target = replica.getConnection()) {
+                target.setAutoCommit(false);
+                Map<String, PreparedStatement> statements = new HashMap<>();
+                try (PreparedStatement select = source.prepareStatement(SELECT_ENTRIES)) {
+                    select.setInt(1, batchSize);
+                    try (ResultSet entries = select.executeQuery()) {
+                        while (entries.next()) {
+                            if (seqs.isEmpty()) {
+                                Timestamp oldest = entries.getTimestamp("logged_at");
+                                lagMillis = Math.max(0, System.currentTimeMillis() - oldest.getTime());
+                            }
+                            seqs.add(entries.getLong("seq"));
+                            apply(target, statements, entries.getString("table_name"),
+                                    (Object[]) entries.getObject("old_row"), (Object[]) entries.getObject("new_row"));
+                        }
+                    }
+                    target.commit();
+                } catch (SQLException | RuntimeException e) {
+                    target.rollback();
+                    throw e;
+                } finally {
+                    for (PreparedStatement statement : statements.values()) {
+                        statement.close();
+                    }
+                    target.setAutoCommit(true);
+                }
+            }
+            if (seqs.isEmpty()) {
+                lagMillis = 0;
+                return 0;
+            }
+            // One by one: entries of transactions still open may sit between them
+            try (PreparedStatement delete = source.prepareStatement(DELETE_ENTRY)) {
+                for (Long seq : seqs) {
+                    delete.setLong(1, seq);
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+            }
+        }
+        applied += seqs.size();
+        return seqs.size();
+    }
+
+    private void apply(Connection target, Map<String, PreparedStatement> statements, String table, Object[] oldRow,
+                       Object[] newRow) throws SQLException {
+        TableShape shape = shape(target, table);
+        List<String> columns = shape.columns();
+        String operation = oldRow == null ? "insert" : newRow == null ? "delete" : "update";
+        PreparedStatement statement = statements.get(operation + ":" + table);
+        if (statement == null) {
+            statement = target.prepareStatement(sql(operation, table, shape));
+            statements.put(operation + ":" + table, statement);
+        }
+        int parameter = 1;
+        if (newRow != null) {
+            for (int i = 0; i < columns.size(); i++) {
+                statement.setObject(parameter++, newRow[i]);
+            }
+        }
+        if (oldRow != null) {
+            for (int i : shape.keyIndexes()) {
+                statement.setObject(parameter++, oldRow[i]);
+            }
+        }
+        statement.executeUpdate();
+    }
+
+    private static String sql(String operation, String table, TableShape shape) {
+        List<String> columns = shape.columns().stream().map(ReplicaReplicator::quoted).toList();
+        table = quoted(table);
+        List<String> key = new ArrayList<>();
+        for (int i : shape.keyIndexes()) {
+            key.add(columns.get(i) + " IS NOT DISTINCT FROM ?");
+        }
+        String where = " WHERE " + String.join(" AND ", key) + " LIMIT 1";
+        return switch (operation) {
+            case "insert" -> "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                    + String.join(", ", columns.stream().map(column -> "?").toList()) + ")";
+            case "delete" -> "DELETE FROM " + table + where;
+            default -> "UPDATE " + table + " SET " + String.join(", ", columns.stream().map(column -> column + " = ?").toList())
+                    + where;
+        };
+    }
+
+    /**
+     * The identifier as created, as some are not upper case (the Flyway history table)
+     */
+    private static String quoted(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * The columns of a table in order, and its primary key, or every column if it has none
+     */
+    private TableShape shape(Connection connection, String table) {
+        return tables.computeIfAbsent(table, name -> {
+            try {
+                List<String> columns = new ArrayList<>();
+                try (ResultSet rows = connection.getMetaData().getColumns(null, "PUBLIC", name, null)) {
+                    while (rows.next()) {
+                        columns.add(rows.getString("COLUMN_NAME"));
+                    }
+                }
+                List<Integer> keyIndexes = new ArrayList<>();
+                try (ResultSet rows = connection.getMetaData().getPrimaryKeys(null, "PUBLIC", name)) {
+                    while (rows.next()) {
+                        keyIndexes.add(columns.indexOf(rows.getString("COLUMN_NAME")));
+                    }
+                }
+                if (keyIndexes.isEmpty()) {
+                    for (int i = 0; i < columns.size(); i++) {
+                        keyIndexes.add(i);
+                    }
+                }
+                return new TableShape(List.copyOf(columns), List.copyOf(keyIndexes));
+            } catch (SQLException e) {
+                throw new IllegalStateException("Cannot read the columns of " + name, e);
+            }
+        });
+    }
+}
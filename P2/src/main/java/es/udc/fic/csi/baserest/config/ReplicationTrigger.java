@@ -0,0 +1,58 @@
+package es.udc.fic.csi.baserest.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import org.h2.api.Trigger;
+
+/**
+ * Row trigger of the replica stand-in (see {@link ReplicaReplicator}).
+ *
+ * Appends every inserted, updated or deleted row of the primary to the
+ * replication log, with the connection of the statement that changed it, so
+ * the entry is committed or rolled back with the change itself.
+ *
+ * @author angelotefic
+ */
+public class ReplicationTrigger implements Trigger {
+
+    static final String LOG_TABLE = "replication_log";
+
+    static final String CREATE_LOG_TABLE = "CREATE TABLE IF NOT EXISTS " + LOG_TABLE
+            + " (seq BIGINT AUTO_INCREMENT PRIMARY KEY, table_name VARCHAR(255) NOT NULL,"
+            + " old_row ARRAY, new_row ARRAY, logged_at TIMESTAMP NOT NULL)";
+
+    private static final String INSERT_ENTRY = "INSERT INTO " + LOG_TABLE
+            + " (table_name, old_row, new_row, logged_at) VALUES (?, ?, ?, ?)";
+
+    private String tableName;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before,
+                     int type) {
+        this.tableName = tableName;
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement(INSERT_ENTRY)) {
+            insert.setString(1, tableName);
+            insert.setObject(2, oldRow);
+            insert.setObject(3, newRow);
+            insert.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+            insert.executeUpdate();
+        }
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+    @Override
+    public void remove() {
+        // Nothing to release
+    }
+}
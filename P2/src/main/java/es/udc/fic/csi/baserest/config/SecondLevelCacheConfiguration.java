@@ -0,0 +1,70 @@
+package es.udc.fic.csi.baserest.config;
+
+import java.time.Duration;
+
+import javax.cache.CacheManager;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Regions of the Hibernate second-level and query cache, kept in Ehcache
+ * through JCache.
+ *
+ * Every region holds at most `second-level-cache.<region>.entries` entries,
+ * each for `second-level-cache.<region>.ttl`: the product, employee and client
+ * entities, the pay methods of the clients (`client.payMethods`) and the
+ * results of the cached queries (`queries`). Hibernate fails to start if an
+ * entity is cached in a region not created here.
+ *
+ * @author angelotefic
+ */
+@Configuration
+public class SecondLevelCacheConfiguration {
+
+    private static final String[] ENTITY_REGIONS = { "product", "employee", "client", "client.payMethods" };
+
+    // Last modification of each table, checked before returning cached query results
+    private static final long TIMESTAMPS = 1_000;
+
+    /**
+     * One cache manager per application context, as the tests start several
+     * in the same JVM
+     */
+    @Bean
+    public CacheManager hibernateCacheManager(Environment environment) {
+        var provider = new EhcacheCachingProvider();
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+        for (String region : ENTITY_REGIONS) {
+            createRegion(cacheManager, environment, region, region);
+        }
+        createRegion(cacheManager, environment, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, "queries");
+        // Never evicted: a missing timestamp would let stale query results through
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                Eh107Configuration.fromEhcacheCacheConfiguration(CacheConfigurationBuilder
+                        .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(TIMESTAMPS))));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheManager(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private static void createRegion(CacheManager cacheManager, Environment environment, String region, String property) {
+        long entries = environment.getRequiredProperty("second-level-cache." + property + ".entries", Long.class);
+        Duration ttl = environment.getRequiredProperty("second-level-cache." + property + ".ttl", Duration.class);
+        cacheManager.createCache(region, Eh107Configuration.fromEhcacheCacheConfiguration(CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(entries))
+                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(ttl))));
+    }
+}
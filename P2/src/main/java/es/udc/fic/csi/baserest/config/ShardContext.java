@@ -0,0 +1,54 @@
+package es.udc.fic.csi.baserest.config;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread works on, read by the
+ * {@link ShardRoutingDataSource} when a connection is taken. The home shard
+ * unless set.
+ *
+ * @author angelotefic
+ */
+public final class ShardContext {
+
+    /**
+     * The shard of every table that is not split by client
+     */
+    public static final int HOME = 0;
+
+    private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static int current() {
+        Integer shard = SHARD.get();
+        return shard == null ? HOME : shard;
+    }
+
+    /**
+     * Run on a shard, then go back to the previous one
+     *
+     * @param shard the shard
+     * @param work  the work, which must open its own transaction
+     * @param <T>   the type of the result
+     * @return the result of the work
+     */
+    public static <T> T call(int shard, Supplier<T> work) {
+        Integer previous = SHARD.get();
+        SHARD.set(shard);
+        try {
+            return work.get();
+        } finally {
+            SHARD.set(previous);
+        }
+    }
+
+    static void set(int shard) {
+        SHARD.set(shard);
+    }
+
+    static void clear() {
+        SHARD.remove();
+    }
+}
@@ -0,0 +1,20 @@
+package es.udc.fic.csi.baserest.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A client or sale id, path variable or request parameter of a handler: under
+ * the `sharding` profile the request runs on the shard of that id (see
+ * {@link ShardKeyInterceptor}).
+ *
+ * @author angelotefic
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface ShardKey {
+}
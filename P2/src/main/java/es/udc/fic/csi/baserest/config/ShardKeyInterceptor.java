@@ -0,0 +1,92 @@
+package es.udc.fic.csi.baserest.config;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Sets the shard of every request before its handler, and so before the
+ * transaction of the handler takes its connection: the shard of its
+ * {@link ShardKey} parameter, the next one for the handlers of
+ * {@link NewShardKey}, the home shard otherwise. Requests that go on
+ * asynchronously keep the shard through the task decorator of
+ * {@link ShardingConfiguration}.
+ *
+ * @author angelotefic
+ */
+public class ShardKeyInterceptor implements AsyncHandlerInterceptor {
+
+    private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+
+    private final Shards shards;
+
+    public ShardKeyInterceptor(Shards shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        if (method.hasMethodAnnotation(NewShardKey.class)) {
+            ShardContext.set(shards.nextShard());
+            return true;
+        }
+        for (MethodParameter parameter : method.getMethodParameters()) {
+            if (parameter.hasParameterAnnotation(ShardKey.class)) {
+                String value = value(request, method, parameter);
+                if (value != null) {
+                    try {
+                        ShardContext.set(shards.shardOf(Long.parseLong(value)));
+                    } catch (NumberFormatException e) {
+                        // Rejected by the handler
+                    }
+                }
+                break;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        ShardContext.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        ShardContext.clear();
+    }
+
+    private String value(HttpServletRequest request, HandlerMethod method, MethodParameter parameter) {
+        String name = parameterNames.getParameterNames(method.getMethod())[parameter.getParameterIndex()];
+        PathVariable pathVariable = parameter.getParameterAnnotation(PathVariable.class);
+        if (pathVariable != null) {
+            if (!pathVariable.name().isEmpty()) {
+                name = pathVariable.name();
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, String> variables = (Map<String, String>) request.getAttribute(
+                    HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+            return variables == null ? null : variables.get(name);
+        }
+        RequestParam requestParam = parameter.getParameterAnnotation(RequestParam.class);
+        if (requestParam != null && !requestParam.name().isEmpty()) {
+            name = requestParam.name();
+        }
+        return request.getParameter(name);
+    }
+}
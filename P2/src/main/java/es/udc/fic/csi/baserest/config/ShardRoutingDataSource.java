@@ -0,0 +1,99 @@
+package es.udc.fic.csi.baserest.config;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Sends every connection to the shard of the current thread (see
+ * {@link ShardContext}).
+ *
+ * The shard must be set before the transaction takes its connection, which
+ * is why it is set by the {@link ShardKeyInterceptor}, before the handler and
+ * its transaction. The decisions are counted in the `datasource.routing`
+ * meter, tagged with the `target` shard. The product changes that could not
+ * be copied to a shard are counted in `sharding.copy.failures`, and those
+ * still waiting to be copied again in `sharding.copy.pending`. Closing it
+ * closes every shard.
+ *
+ * @author angelotefic
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements MeterBinder, AutoCloseable {
+
+    private final List<HikariDataSource> shards;
+
+    private final List<HikariDataSource> copies;
+
+    private final ProductCopyTrigger.Copies productCopies;
+
+    private final LongAdder[] connections;
+
+    /**
+     * @param shards the shards, the home one first
+     * @param copies        the connections of every shard for the copies of the products
+     * @param productCopies the copies of the products made with them
+     */
+    public ShardRoutingDataSource(List<HikariDataSource> shards, List<HikariDataSource> copies,
+                                  ProductCopyTrigger.Copies productCopies) {
+        this.shards = List.copyOf(shards);
+        this.copies = copies;
+        this.productCopies = productCopies;
+        this.connections = new LongAdder[shards.size()];
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+            connections[shard] = new LongAdder();
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(ShardContext.HOME));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * The shards, the home one first, without routing
+     */
+    public List<HikariDataSource> getShards() {
+        return shards;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        int shard = ShardContext.current();
+        connections[shard].increment();
+        return shard;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (int shard = 0; shard < connections.length; shard++) {
+            FunctionCounter.builder("datasource.routing", connections[shard], LongAdder::sum)
+                    .description("Connections taken from each database")
+                    .tag("target", "shard-" + shard)
+                    .register(registry);
+        }
+        FunctionCounter.builder("sharding.copy.failures", productCopies, ProductCopyTrigger.Copies::failures)
+                .description("Product changes that could not be copied to a shard when committed")
+                .register(registry);
+        Gauge.builder("sharding.copy.pending", productCopies, ProductCopyTrigger.Copies::pending)
+                .description("Product changes waiting in the copy logs to be copied again")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        ProductCopyTrigger.unregister(productCopies);
+        copies.forEach(HikariDataSource::close);
+        shards.forEach(HikariDataSource::close);
+    }
+}
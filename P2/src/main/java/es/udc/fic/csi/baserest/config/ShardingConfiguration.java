@@ -0,0 +1,194 @@
+package es.udc.fic.csi.baserest.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Clients and their sales split over several databases by client id
+ * (`sharding` profile).
+ *
+ * The home shard is the single database otherwise used
+ * (`spring.datasource.*`), and keeps every table not split by client. The
+ * other `sharding.shards` - 1 are configured with `sharding.url`, whose
+ * `{shard}` is replaced by the number of the shard, set by the persistence
+ * profile, and `sharding.hikari.*`. At startup every shard is migrated, its
+ * client and sale sequences restarted to give only ids of the shard (see
+ * {@link Shards}), and its products get a {@link ProductCopyTrigger}, which
+ * keeps them the same on every shard.
+ *
+ * Requests run on the shard of their {@link ShardKey} (see
+ * {@link ShardKeyInterceptor}). The number of shards cannot change once
+ * there are clients, and the shards must start empty.
+ *
+ * @author angelotefic
+ */
+@Configuration
+@Profile("sharding")
+public class ShardingConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardingConfiguration.class);
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(DataSourceProperties properties, Environment environment,
+                                                         @Value("${sharding.shards}") int count,
+                                                         @Value("${sharding.url}") String url,
+                                                         @Value("${sharding.copy-pool-size:4}") int copyPoolSize,
+                                                         @Value("${sharding.copy-retry-millis:1000}") long copyRetryMillis) {
+        Binder binder = Binder.get(environment);
+        List<HikariDataSource> shards = new ArrayList<>();
+        List<HikariDataSource> copies = new ArrayList<>();
+        for (int shard = 0; shard < count; shard++) {
+            String shardUrl = shard == ShardContext.HOME ? properties.determineUrl() : url.replace("{shard}", "" + shard);
+            HikariDataSource dataSource = dataSource(properties, shardUrl);
+            binder.bind(shard == ShardContext.HOME ? "spring.datasource.hikari" : "sharding.hikari",
+                    Bindable.ofInstance(dataSource));
+            dataSource.setPoolName("shard-" + shard);
+            shards.add(dataSource);
+            // Taken while a connection of another shard is held: from a pool of their own, not to wait for each other
+            HikariDataSource copy = dataSource(properties, shardUrl);
+            copy.setPoolName("shard-" + shard + "-copies");
+            copy.setMaximumPoolSize(copyPoolSize);
+            copy.setMinimumIdle(0);
+            copies.add(copy);
+        }
+        ProductCopyTrigger.Copies productCopies = ProductCopyTrigger.register(copies, copyRetryMillis);
+        boolean baseline = environment.getProperty("spring.flyway.baseline-on-migrate", Boolean.class, false);
+        try {
+            for (int shard = 0; shard < count; shard++) {
+                Flyway.configure().dataSource(shards.get(shard)).baselineOnMigrate(baseline).load().migrate();
+                try (Connection connection = shards.get(shard).getConnection()) {
+                    // Clients and users share the sequence of the Hibernate generator
+                    restartSequence(connection, "HIBERNATE_SEQUENCE", shard, count, "client", "\"USER\"");
+                    restartSequence(connection, identitySequence(connection, "SALE"), shard, count, "sale");
+                    ProductCopyTrigger.install(connection, productCopies, shard);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            ProductCopyTrigger.unregister(productCopies);
+            copies.forEach(HikariDataSource::close);
+            shards.forEach(HikariDataSource::close);
+            throw new IllegalStateException("Cannot set up the shards", e);
+        }
+        logger.info("Splitting clients and sales over {} shards", count);
+        return new ShardRoutingDataSource(shards, copies, productCopies);
+    }
+
+    /**
+     * The data source of JPA and of the JDBC templates
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public Shards shards(@Value("${sharding.shards}") int count, EntityManager em,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${sharding.scatter-buffer:500}") int bufferRows) {
+        return new Shards(count, em, transactionManager, bufferRows);
+    }
+
+    @Bean
+    public WebMvcConfigurer shardKeyRouting(Shards shards) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new ShardKeyInterceptor(shards));
+            }
+        };
+    }
+
+    /**
+     * Keeps the shard of the request in its asynchronous part, the streamed responses
+     */
+    @Bean
+    public TaskDecorator shardContextDecorator() {
+        return task -> {
+            int shard = ShardContext.current();
+            return () -> ShardContext.call(shard, () -> {
+                task.run();
+                return null;
+            });
+        };
+    }
+
+    private static HikariDataSource dataSource(DataSourceProperties properties, String url) {
+        return DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(properties.determineUsername())
+                .password(properties.determinePassword())
+                .build();
+    }
+
+    /**
+     * Restart a sequence at the first id of the shard above every id in use,
+     * stepping over the ids of the other shards
+     */
+    private static void restartSequence(Connection connection, String sequence, int shard, int count,
+                                        String... tables) throws SQLException {
+        long last;
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT CURRENT_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?")) {
+            select.setString(1, sequence);
+            try (ResultSet row = select.executeQuery()) {
+                row.next();
+                last = row.getLong(1);
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String table : tables) {
+                try (ResultSet row = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+                    row.next();
+                    last = Math.max(last, row.getLong(1));
+                }
+            }
+            long first = last + 1 + Math.floorMod(shard - (last + 1), count);
+            statement.execute("ALTER SEQUENCE \"" + sequence + "\" RESTART WITH " + first + " INCREMENT BY " + count);
+        }
+    }
+
+    /**
+     * The sequence behind the identity column of a table
+     */
+    private static String identitySequence(Connection connection, String table) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT SEQUENCE_NAME"
+                + " FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = ? AND COLUMN_NAME = 'ID'")) {
+            select.setString(1, table);
+            try (ResultSet row = select.executeQuery()) {
+                row.next();
+                return row.getString(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package es.udc.fic.csi.baserest.config;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The shards of the clients and their sales (`sharding` profile).
+ *
+ * A client id belongs to the shard it is congruent with modulo the number of
+ * shards, as the sequences of every shard only give ids of that shard (see
+ * {@link ShardingConfiguration}), and so do the ids of its sales. New clients
+ * go to every shard in turn. Queries not restricted to a client run on every
+ * shard at once and their rows are merged in order (see {@link #scatter}).
+ *
+ * @author angelotefic
+ */
+public class Shards implements AutoCloseable {
+
+    private static final Object END = new Object();
+
+    private final int count;
+
+    private final EntityManager em;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final int bufferRows;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final ExecutorService producers;
+
+    private record Failure(RuntimeException exception) {
+    }
+
+    /**
+     * @param count              the number of shards
+     * @param em                 the shared entity manager
+     * @param transactionManager the transaction manager
+     * @param bufferRows         the rows read ahead from every shard by {@link #scatter}
+     */
+    public Shards(int count, EntityManager em, PlatformTransactionManager transactionManager, int bufferRows) {
+        this.count = count;
+        this.em = em;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.bufferRows = bufferRows;
+        AtomicInteger threads = new AtomicInteger();
+        this.producers = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "shard-scatter-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @param id a client or sale id
+     * @return the shard of the id
+     */
+    public int shardOf(long id) {
+        return Math.floorMod(id, count);
+    }
+
+    /**
+     * @return the shard of the next new client
+     */
+    public int nextShard() {
+        return Math.floorMod(next.getAndIncrement(), count);
+    }
+
+    /**
+     * Run a query on every shard at once and merge its rows. Every shard is
+     * read in a read-only transaction of its own thread, a few rows ahead of
+     * the merge, and its persistence context is cleared as often, so the
+     * memory held does not depend on the size of the result. Closing the
+     * stream stops the reads.
+     *
+     * @param query   opens the repository stream of a shard, in the given order
+     * @param order   the order of the rows of every shard
+     * @param prepare loads what the rows need once detached
+     * @param <T>     the type of the rows
+     * @return the rows of every shard in order
+     */
+    public <T> Stream<T> scatter(Supplier<Stream<T>> query, Comparator<? super T> order, Consumer<? super T> prepare) {
+        List<BlockingQueue<Object>> queues = new ArrayList<>();
+        List<Future<?>> reads = new ArrayList<>();
+        for (int shard = 0; shard < count; shard++) {
+            BlockingQueue<Object> queue = new ArrayBlockingQueue<>(bufferRows);
+            int target = shard;
+            queues.add(queue);
+            reads.add(producers.submit(() -> read(target, query, prepare, queue)));
+        }
+        Iterator<T> merged = new MergingIterator<>(queues, order);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+                .onClose(() -> reads.forEach(read -> read.cancel(true)));
+    }
+
+    private <T> void read(int shard, Supplier<Stream<T>> query, Consumer<? super T> prepare,
+                          BlockingQueue<Object> queue) {
+        Object last = END;
+        try {
+            ShardContext.call(shard, () -> readOnlyTransaction.execute(status -> {
+                try (Stream<T> rows = query.get()) {
+                    long count = 0;
+                    for (Iterator<T> it = rows.iterator(); it.hasNext(); ) {
+                        T row = it.next();
+                        prepare.accept(row);
+                        queue.put(row);
+                        if (++count % bufferRows == 0) {
+                            em.clear();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    // Closed before the end
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+        } catch (RuntimeException e) {
+            last = new Failure(e);
+        }
+        try {
+            queue.put(last);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        producers.shutdownNow();
+    }
+
+    /**
+     * Takes the least of the next rows of every shard
+     */
+    private static class MergingIterator<T> implements Iterator<T> {
+
+        private record Head<T>(T row, BlockingQueue<Object> queue) {
+        }
+
+        private final List<BlockingQueue<Object>> queues;
+
+        private final PriorityQueue<Head<T>> heads;
+
+        private boolean started;
+
+        MergingIterator(List<BlockingQueue<Object>> queues, Comparator<? super T> order) {
+            this.queues = queues;
+            this.heads = new PriorityQueue<>(Math.max(1, queues.size()), (a, b) -> order.compare(a.row(), b.row()));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!started) {
+                started = true;
+                queues.forEach(this::advance);
+            }
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Head<T> head = heads.poll();
+            advance(head.queue());
+            return head.row();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance(BlockingQueue<Object> queue) {
+            Object next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while reading the shards", e);
+            }
+            if (next instanceof Failure failure) {
+                throw failure.exception();
+            }
+            if (next != END) {
+                heads.add(new Head<>((T) next, queue));
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package es.udc.fic.csi.baserest.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Handles requests on virtual threads (`virtual-threads` profile, Java 21).
+ *
+ * Tomcat hands every request to a new virtual thread instead of to its
+ * worker pool, so a request waiting on JDBC no longer holds one of a few
+ * hundred platform threads, and the async requests (the streamed listings)
+ * run on virtual threads too.
+ *
+ * The connection pool is sized to the virtual thread carriers. The H2 driver
+ * synchronizes on its session and database objects, and a virtual thread
+ * running or blocked inside a `synchronized` block pins its carrier: with no
+ * more connections than carriers, the threads inside the driver can never
+ * take every carrier, and the rest wait for a connection in the pool's fair
+ * hand-off queue, unmounted, in arrival order.
+ *
+ * The virtual thread API is looked up at startup so the sources still build
+ * on Java 17; build with `-P java21` to use this profile.
+ *
+ * @author angelotefic
+ */
+@Configuration
+@Profile("virtual-threads")
+public class VirtualThreadsConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadsConfiguration.class);
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadRequestExecutor() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor("http-vt-");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    /**
+     * Replaces the pool of Spring MVC async requests, and of any other `@Async` work, decorating the tasks as
+     * the pool did (e.g. with the shard of the request, under the `sharding` profile)
+     */
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor(ObjectProvider<TaskDecorator> taskDecorator) {
+        return taskExecutor(newVirtualThreadPerTaskExecutor("task-vt-"), taskDecorator.getIfUnique());
+    }
+
+    static AsyncTaskExecutor taskExecutor(ExecutorService executor, TaskDecorator taskDecorator) {
+        TaskExecutorAdapter adapter = new TaskExecutorAdapter(executor);
+        if (taskDecorator != null) {
+            adapter.setTaskDecorator(taskDecorator);
+        }
+        return adapter;
+    }
+
+    @Bean
+    public static BeanPostProcessor connectionPoolSizer(@Value("${virtual-threads.connections:0}") int connections) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource) {
+                    int size = connections > 0 ? connections : carriers();
+                    dataSource.setMaximumPoolSize(size);
+                    dataSource.setMinimumIdle(size);
+                    logger.info("Connection pool sized to {} connections for virtual threads", size);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * @return the number of platform threads running the virtual threads
+     */
+    static int carriers() {
+        return Integer.getInteger("jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * `Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory())`, through reflection
+     *
+     * @throws IllegalStateException if the JVM has no virtual threads
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor(String prefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            throw new IllegalStateException("The virtual-threads profile needs Java 21 or later, running on Java "
+                    + Runtime.version().feature(), e);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Cannot create the virtual thread executor", e);
+        }
+    }
+}
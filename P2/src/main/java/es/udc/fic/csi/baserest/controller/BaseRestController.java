@@ -5,12 +5,13 @@ import java.util.Optional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.transaction.Transactional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -18,6 +19,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import es.udc.fic.csi.baserest.conversors.UserConversors;
 import es.udc.fic.csi.baserest.dto.UserDto;
@@ -35,10 +37,10 @@ import es.udc.fic.csi.baserest.repository.UserRepository;
  * Base path: `/user`
  * 
  * Example endpoints:
- * - `/user/all` to get all users
+ * - `/user/all` to get all users, paginated or streamed, or count them
  * - `/user/{id}` to get a user by ID
  * - `/user/new` to create a new user
- * - `/user/search` to search for users
+ * - `/user/search` to search for users, paginated, or count them
  * 
  * @author anxo.pvila
  */
@@ -50,6 +52,13 @@ public class BaseRestController {
   // Logger for logging messages (useful for debugging and monitoring)
   private static final Logger logger = LoggerFactory.getLogger(BaseRestController.class);
 
+  // Page size when no limit is given, and the largest limit accepted
+  private static final int DEFAULT_LIMIT = 500;
+  private static final int MAX_LIMIT = 1000;
+
+  // Response header with the cursor of the next page, sent when a page is full
+  static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
   // EntityManager is used to interact with the database
   @PersistenceContext
   private EntityManager em;
@@ -57,33 +66,87 @@ public class BaseRestController {
   // Repository for accessing user data
   private UserRepository userRepository;
 
+  // Writes streamed listings
+  private ResponseStreamer responseStreamer;
+
   /**
    * Constructor dependency injection for the UserRepository.
    * 
    * The {@link Autowired} annotation tells Spring to automatically inject
    * the `UserRepository` bean into this controller.
    * 
-   * @param userRepository the user repository
+   * @param userRepository   the user repository
+   * @param responseStreamer the writer of streamed listings
    */
   @Autowired
-  public BaseRestController(UserRepository userRepository) {
+  public BaseRestController(UserRepository userRepository, ResponseStreamer responseStreamer) {
     this.userRepository = userRepository;
+    this.responseStreamer = responseStreamer;
   }
 
   /**
    * Get all users
    * 
-   * This endpoint retrieves all users from the database.
+   * This endpoint retrieves the users from the database in id order, one page
+   * at a time. When the page is full, the cursor of the next page is returned
+   * in the `X-Next-Cursor` header and can be passed back as `after`.
    * 
    * HTTP Method: GET
-   * Path: `/user/all`
+   * Path: `/user/all?limit={limit}&after={cursor}`
+   * Path: `/user/all?count=true`
    * 
-   * @return a list of all users as UserDto objects
+   * @param limit the page size, 500 by default and at most 1000
+   * @param after the cursor of the page to retrieve (optional)
+   * @param count if true, only the number of users is returned
+   * @return a page of users as UserDto objects, the number of users or a 400 response
    */
+  @Transactional(readOnly = true) // Loaded users are not dirty checked nor flushed, and the connection is read-only
   @GetMapping(value = "all")
-  public List<UserDto> getUsers() {
+  public ResponseEntity<?> getUsers(
+      @RequestParam Optional<Integer> limit,
+      @RequestParam Optional<Long> after,
+      @RequestParam(defaultValue = "false") boolean count) {
+
+    // Count-only mode, no user is loaded
+    if (count) {
+      return ResponseEntity.ok(userRepository.count());
+    }
+    if (limit.orElse(DEFAULT_LIMIT) < 1) {
+      return ResponseEntity.badRequest().build();
+    }
+
+    // Seek to the cursor through the primary key instead of skipping rows
+    int pageSize = Math.min(limit.orElse(DEFAULT_LIMIT), MAX_LIMIT);
+    List<User> users = userRepository.findByIdGreaterThanOrderByIdAsc(after.orElse(0L), PageRequest.ofSize(pageSize));
+
+    var response = ResponseEntity.ok();
+    if (users.size() == pageSize) {
+      response.header(NEXT_CURSOR_HEADER, String.valueOf(users.get(users.size() - 1).getId()));
+    }
     // Convert the list of User entities to UserDto objects and return it
-    return UserConversors.toUserDtoList(userRepository.findAll());
+    return response.body(UserConversors.toUserDtoList(users));
+  }
+
+  /**
+   * Stream all users
+   * 
+   * This endpoint writes every user, or every user after the given cursor, as
+   * newline delimited JSON in id order. Users are converted and written as
+   * they are read, so the listing is not limited to a page.
+   * 
+   * HTTP Method: GET
+   * Path: `/user/all?after={cursor}`
+   * Accept: application/x-ndjson
+   * 
+   * @param after the id after which to start (optional)
+   * @return a streamed response with one UserDto per line
+   */
+  @Transactional(readOnly = true)
+  @GetMapping(value = "all", produces = ResponseStreamer.NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamUsers(@RequestParam Optional<Long> after) {
+    logger.info("Streaming users after id: {}", after.orElse(0L)); // Log the request
+    return responseStreamer.stream(ResponseStreamer.NDJSON,
+        () -> userRepository.streamByIdGreaterThanOrderByIdAsc(after.orElse(0L)), UserConversors::toUserDto);
   }
 
   /**
@@ -100,6 +163,7 @@ public class BaseRestController {
    * @param id the ID of the user to retrieve
    * @return a ResponseEntity containing the user data or a 404 response
    */
+  @Transactional(readOnly = true)
   @GetMapping(value = "{id}")
   public ResponseEntity<UserDto> get(@PathVariable Long id) {
     logger.info("Fetching user with id: {}", id); // Log the request
@@ -107,7 +171,7 @@ public class BaseRestController {
 
     if (user.isPresent()) {
       User foundUser = user.get();
-      logger.info("Found user with id {}: {}", id, foundUser); // Log the found user
+      logger.info("Found user with id: {}", id); // Log the found user
       UserDto userDto = UserConversors.toUserDto(foundUser); // Convert to UserDto
       return ResponseEntity.ok(userDto); // Return the UserDto
     } else {
@@ -137,10 +201,10 @@ public class BaseRestController {
    */
   @PostMapping(value = "new")
   public Long newUser(@RequestBody UserDto user) {
-    logger.info("Creating new user: {}", user); // Log the request
+    logger.info("Creating new user with name: {}", user.name()); // Log the request
     // Convert the UserDto to a User entity and save it to the database
     var newUser = em.merge(UserConversors.toUser(user));
-    logger.info("Created user: {}", newUser); // Log the created user
+    logger.info("Created user with id: {}", newUser.getId()); // Log the created user
     return newUser.getId(); // Return the ID of the new user
   }
 
@@ -157,27 +221,52 @@ public class BaseRestController {
    * Query parameters:
    * - `name` (optional): Filter users by name
    * - `older-than` (optional): Filter users older than a specific age
+   * - `limit` (optional): Page size, 500 by default and at most 1000
+   * - `after` (optional): Cursor of the page to retrieve, as returned in the
+   *   `X-Next-Cursor` header of the previous page
+   * - `count` (optional): If true, only the number of matching users is returned
+   * 
+   * Users older than a given age are returned in (age, id) order, so every
+   * page and every count is a range scan of the age index.
    * 
    * Example requests:
    * - `/user/search?name=John`
    * - `/user/search?older-than=25`
+   * - `/user/search?older-than=25&limit=100&after=31:1024`
+   * - `/user/search?older-than=25&count=true`
    * - `/user/search?name=John&older-than=25`
    * 
    * @param name      Optional parameter to filter users by name
    * @param olderThan Optional parameter to filter users older than a specific age
-   * @return A ResponseEntity containing a list of UserDto objects that match the search criteria
+   * @param limit     Optional page size
+   * @param after     Optional cursor of the page to retrieve
+   * @param count     If true, only the number of matching users is returned
+   * @return A ResponseEntity containing a list of UserDto objects that match the search criteria, or their number
    */
+  @Transactional(readOnly = true)
   @GetMapping(value = "search")
-  public ResponseEntity<List<UserDto>> search(
+  public ResponseEntity<?> search(
       @RequestParam Optional<String> name,
-      @RequestParam(name = "older-than") Optional<Integer> olderThan) {
+      @RequestParam(name = "older-than") Optional<Integer> olderThan,
+      @RequestParam Optional<Integer> limit,
+      @RequestParam Optional<String> after,
+      @RequestParam(defaultValue = "false") boolean count) {
 
     final List<User> users; // This will hold the list of users matching the search criteria
 
-    // If both parameters are empty, return a 400 Bad Request response
-    if (name.isEmpty() && olderThan.isEmpty()) {
+    // If both parameters are empty, or the page is not valid, return a 400 Bad Request response
+    if ((name.isEmpty() && olderThan.isEmpty()) || limit.orElse(DEFAULT_LIMIT) < 1) {
       return ResponseEntity.badRequest().build();
-    } 
+    }
+    // Names are unique, so searches by name return one user at most and are never paginated
+    else if (count && name.isEmpty()) {
+      return ResponseEntity.ok(userRepository.countByAgeGreaterThan(olderThan.get()));
+    }
+    else if (count) {
+      return ResponseEntity.ok(olderThan.isEmpty()
+          ? (userRepository.findOneByName(name.get()).isPresent() ? 1L : 0L)
+          : userRepository.countByNameAndAgeGreaterThan(name.get(), olderThan.get()));
+    }
     else if (name.isPresent() && olderThan.isEmpty()) {
       // Search for a user by name
       Optional<User> optionalUser = userRepository.findOneByName(name.get());
@@ -193,7 +282,28 @@ public class BaseRestController {
   }
     // If only the 'older-than' parameter is provided, search for users older than the given age
     else if (name.isEmpty()) {
-      users = userRepository.findByAgeGreaterThan(olderThan.get());
+      // The cursor is the age and id of the last user of the previous page
+      int age = olderThan.get();
+      long id = 0L;
+      if (after.isPresent()) {
+        String[] cursor = after.get().split(":");
+        try {
+          age = Integer.parseInt(cursor[0]);
+          id = Long.parseLong(cursor[1]);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+          logger.warn("SEARCH failed: invalid cursor {}", after.get());
+          return ResponseEntity.badRequest().build();
+        }
+      }
+
+      int pageSize = Math.min(limit.orElse(DEFAULT_LIMIT), MAX_LIMIT);
+      users = userRepository.findByAgeGreaterThanAfter(olderThan.get(), age, id, PageRequest.ofSize(pageSize));
+      if (users.size() == pageSize) {
+        User last = users.get(users.size() - 1);
+        return ResponseEntity.ok()
+            .header(NEXT_CURSOR_HEADER, last.getAge() + ":" + last.getId())
+            .body(UserConversors.toUserDtoList(users));
+      }
     } 
     // If both parameters are provided, search for users matching both criteria
     else {
@@ -1,5 +1,7 @@
 package es.udc.fic.csi.baserest.controller;
 
+import es.udc.fic.csi.baserest.config.NewShardKey;
+import es.udc.fic.csi.baserest.config.ShardKey;
 import es.udc.fic.csi.baserest.conversors.ClientConversors;
 import es.udc.fic.csi.baserest.dto.ClientDto;
 import es.udc.fic.csi.baserest.entity.Client;
@@ -8,11 +10,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.transaction.Transactional;
 
 
 /**
@@ -61,14 +63,15 @@ public class ClientRestController {
      * @param id the ID of the client to retrieve
      * @return a ResponseEntity containing the client data or a 404 response
      */
+    @Transactional(readOnly = true)
     @GetMapping(value = "{id}")
-    public ResponseEntity<ClientDto> get(@PathVariable Long id) {
+    public ResponseEntity<ClientDto> get(@PathVariable @ShardKey Long id) {
         logger.info("Fetching client with id: {}", id);
         var client = clientRepository.findById(id);
 
         if(client.isPresent()) {
             Client found = client.get();
-            logger.info("Client found with id {}: {}", id, found);
+            logger.info("Client found with id: {}", id);
             ClientDto clientDto = ClientConversors.toClientDto(found);
             return ResponseEntity.ok(clientDto);
         } else {
@@ -99,11 +102,12 @@ public class ClientRestController {
      * @param clientDto the new client data as a clientDto
      * @return the ID of the newly created client
      */
+    @NewShardKey
     @PostMapping(value = "new")
     public Long create(@RequestBody ClientDto clientDto) {
-        logger.info("Creating new client: {}", clientDto);
+        logger.info("Creating new client with name: {}", clientDto.name());
         var newClient = em.merge(ClientConversors.toClient(clientDto));
-        logger.info("New client created: {}", newClient);
+        logger.info("New client created with id: {}", newClient.getId());
         return newClient.getId();
     }
 
@@ -132,7 +136,7 @@ public class ClientRestController {
      * @return a ResponseEntity containing the new client data or a 404 response
      */
     @PutMapping("update/{id}")
-    public ResponseEntity<ClientDto> update(@PathVariable Long id, @RequestBody ClientDto clientDto) {
+    public ResponseEntity<ClientDto> update(@PathVariable @ShardKey Long id, @RequestBody ClientDto clientDto) {
         logger.info("Updating exist with id: {}", id);
         var exist = clientRepository.findById(id);
 
@@ -140,7 +144,7 @@ public class ClientRestController {
             Client client = ClientConversors.toClient(clientDto);
             client.setId(id);
             var clientUpdated = em.merge(client);
-            logger.info("Client updated: {}", clientUpdated);
+            logger.info("Client updated with id: {}", id);
             return ResponseEntity.ok(ClientConversors.toClientDto(clientUpdated));
         } else {
             return ResponseEntity.notFound().build();
@@ -1,19 +1,33 @@
 package es.udc.fic.csi.baserest.controller;
 
 import es.udc.fic.csi.baserest.conversors.EmployeeConversors;
+import es.udc.fic.csi.baserest.dto.BulkImportResultDto;
+import es.udc.fic.csi.baserest.dto.DepartmentStatsDto;
 import es.udc.fic.csi.baserest.dto.EmployeeDto;
+import es.udc.fic.csi.baserest.dto.EmployeeImportDto;
+import es.udc.fic.csi.baserest.dto.SalaryAdjustmentDto;
 import es.udc.fic.csi.baserest.entity.Employee;
 import es.udc.fic.csi.baserest.repository.EmployeeRepository;
+import es.udc.fic.csi.baserest.repository.EmployeeSpecifications;
+import es.udc.fic.csi.baserest.service.DepartmentCache;
+import es.udc.fic.csi.baserest.service.DepartmentStatistics;
+import es.udc.fic.csi.baserest.service.EmployeeBulkImporter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.transaction.Transactional;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * This controller handles HTTP requests related to the employee entity.
@@ -26,8 +40,14 @@ import java.util.List;
  * Example endpoints:
  * - `/employee/{id}` to get an employee by ID
  * - `/employee/new` to create a new employee
+ * - `/employee/bulk` to import a whole org file
  * - `/employee/update/{id}` to update an existing employee
- * - `/employee?department={department}` to get employees by department
+ * - `/employee/salary-adjustment` to raise the salary of a department or subtree
+ * - `/employee?department={department}` to get employees by department, paginated or streamed
+ * - `/employee/{id}/subordinates?depth={depth}` to get the org chart below an employee
+ * - `/employee/{id}/chain` to get the management chain of an employee
+ * - `/employee/stats` to get headcount and salary statistics per department
+ * - `/employee/search` to search employees by department, age, salary and supervisor
  *
  * @author angelotefic
  */
@@ -39,14 +59,37 @@ public class EmployeeRestController {
 
     private static final Logger logger = LoggerFactory.getLogger(EmployeeRestController.class);
 
+    // Upper bound for org chart walks, also protects against supervisor cycles
+    private static final int MAX_ORG_CHART_DEPTH = 1000;
+
+    private static final int DEFAULT_PAGE_SIZE = 500;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @PersistenceContext
     private EntityManager em;
 
     private EmployeeRepository employeeRepository;
 
+    private DepartmentStatistics departmentStatistics;
+
+    private DepartmentCache departmentCache;
+
+    private EmployeeBulkImporter employeeBulkImporter;
+
+    private ResponseStreamer responseStreamer;
+
     @Autowired
-    public EmployeeRestController(EmployeeRepository employeeRepository) {
+    public EmployeeRestController(EmployeeRepository employeeRepository, DepartmentStatistics departmentStatistics,
+                                  DepartmentCache departmentCache, EmployeeBulkImporter employeeBulkImporter,
+                                  ResponseStreamer responseStreamer) {
         this.employeeRepository = employeeRepository;
+        this.departmentStatistics = departmentStatistics;
+        this.departmentCache = departmentCache;
+        this.employeeBulkImporter = employeeBulkImporter;
+        this.responseStreamer = responseStreamer;
     }
 
     /**
@@ -64,6 +107,7 @@ public class EmployeeRestController {
      * @return a ResponseEntity containing the employee data or a 404 response
      */
 
+    @Transactional(readOnly = true)
     @GetMapping(value = "{id}")
     public ResponseEntity<EmployeeDto> get(@PathVariable Long id) {
         logger.info("Fetching Employee with id: {}", id);
@@ -71,8 +115,8 @@ public class EmployeeRestController {
 
         if(employee.isPresent()) {
             Employee found = employee.get();
-            logger.info("Employee found with id {}: {}", id, found);
-            EmployeeDto employeeDto = EmployeeConversors.toEmployeeDto(found);
+            logger.info("Employee found with id: {}", id);
+            EmployeeDto employeeDto = EmployeeConversors.toEmployeeDto(found, departmentCache);
             return ResponseEntity.ok(employeeDto);
         } else {
             logger.warn("GET failed: Employee not found with id: {}", id);
@@ -107,12 +151,49 @@ public class EmployeeRestController {
 
     @PostMapping(value = "new")
     public Long create(@RequestBody EmployeeDto employeeDto) {
-        logger.info("Creating new employee: {}", employeeDto);
-        var newEmployee = em.merge(EmployeeConversors.toEmployee(employeeDto, em));
-        logger.info("New employee created: {}", newEmployee);
+        logger.info("Creating new employee with nss: {}", employeeDto.nss());
+        var newEmployee = em.merge(EmployeeConversors.toEmployee(employeeDto, em, departmentCache));
+        departmentStatistics.employeeCreated(newEmployee);
+        logger.info("New employee created with id: {}", newEmployee.getId());
         return newEmployee.getId();
     }
 
+    /**
+     * Import employees in bulk
+     *
+     * This endpoint creates a whole org file in a single transaction. Entries can
+     * be sent in any order: supervisors in the same file are referenced by their
+     * nss and are always inserted before their reports. Stored supervisors are
+     * referenced by id as usual.
+     *
+     * HTTP Method: POST
+     * Path: `/employee/bulk`
+     *
+     * Example request body:
+     * [
+     *   { "name": "Bob", "address": "1 Example Street", "age": 41, "salary": 60000.0,
+     *     "nss": 111111111, "department": "Sales", "idSupervisor": 2, "supervisorNss": null },
+     *   { "name": "Alice", "address": "123 Example Avenue", "age": 35, "salary": 42000.50,
+     *     "nss": 987654321, "department": "Sales", "idSupervisor": null, "supervisorNss": 111111111 }
+     * ]
+     *
+     * @param employees the employees to import
+     * @return the number of imported employees and the import throughput, or a
+     *         400 response if the file is invalid
+     */
+
+    @PostMapping(value = "bulk")
+    public ResponseEntity<?> bulkImport(@RequestBody List<EmployeeImportDto> employees) {
+        logger.info("Importing {} employees", employees.size());
+        try {
+            BulkImportResultDto result = employeeBulkImporter.importEmployees(employees);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            logger.warn("BULK IMPORT failed: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     /**
      * Update a employee
      *
@@ -144,51 +225,324 @@ public class EmployeeRestController {
         logger.info("Updating employee with id: {}", id);
         var exist = employeeRepository.findById(id);
         if(exist.isPresent()) {
-            Employee employee = EmployeeConversors.toEmployee(employeeDto, em);
+            // Merge overwrites the managed instance, keep the old figures for the statistics
+            var before = DepartmentStatistics.Figures.of(exist.get());
+            Employee employee = EmployeeConversors.toEmployee(employeeDto, em, departmentCache);
             employee.setId(id);
             var employeeUpdated = em.merge(employee);
-            logger.info("Employee updated: {}", employeeUpdated);
-            return ResponseEntity.ok(EmployeeConversors.toEmployeeDto(employeeUpdated));
+            departmentStatistics.employeeUpdated(before, employeeUpdated);
+            logger.info("Employee updated with id: {}", id);
+            return ResponseEntity.ok(EmployeeConversors.toEmployeeDto(employeeUpdated, departmentCache));
         } else {
             logger.warn("UPDATE failed: Employee not found with id: {}", id);
             return ResponseEntity.notFound().build();
         }
     }
 
+    /**
+     * Adjust salaries
+     *
+     * This endpoint applies a percentage or fixed raise to every employee of a
+     * department, or to every employee below a supervisor in the org chart, with
+     * a single UPDATE statement.
+     *
+     * HTTP Method: POST
+     * Path: `/employee/salary-adjustment`
+     *
+     * Example request bodies:
+     * { "department": "Sales", "percentage": 3.5 }
+     * { "idSupervisor": 2, "amount": 1000.0 }
+     *
+     * @param adjustment the scope and size of the raise
+     * @return a ResponseEntity containing the number of updated employees, a 400
+     *         response if the adjustment is not valid or a 404 response if the
+     *         supervisor is not found
+     */
+
+    @PostMapping(value = "salary-adjustment")
+    public ResponseEntity<Integer> adjustSalaries(@RequestBody SalaryAdjustmentDto adjustment) {
+        logger.info("Adjusting salaries: {}", adjustment);
+        boolean oneScope = (adjustment.department() == null) != (adjustment.idSupervisor() == null);
+        boolean oneRaise = (adjustment.percentage() == null) != (adjustment.amount() == null);
+        if (!oneScope || !oneRaise) {
+            logger.warn("SALARY ADJUSTMENT failed: exactly one scope and one raise are required");
+            return ResponseEntity.badRequest().build();
+        }
+
+        double factor = adjustment.percentage() != null ? 1 + adjustment.percentage() / 100 : 1;
+        double amount = adjustment.amount() != null ? adjustment.amount() : 0;
+        int updated;
+        if (adjustment.department() != null) {
+            updated = departmentCache.idOf(adjustment.department())
+                    .map(department -> employeeRepository.adjustDepartmentSalaries(department, factor, amount))
+                    .orElse(0);
+        } else if (employeeRepository.existsById(adjustment.idSupervisor())) {
+            updated = employeeRepository.adjustSubordinateSalaries(adjustment.idSupervisor(), MAX_ORG_CHART_DEPTH, factor, amount);
+        } else {
+            logger.warn("SALARY ADJUSTMENT failed: Employee not found with id: {}", adjustment.idSupervisor());
+            return ResponseEntity.notFound().build();
+        }
+
+        departmentStatistics.rebuildAfterCommit();
+        logger.info("Adjusted the salary of {} employees", updated);
+        return ResponseEntity.ok(updated);
+    }
+
     /**
      * Get all employees from a specific department
      *
-     * This endpoint retrieves all employees belonging to the given department.
-     * It accepts a department name as a query parameter.
+     * This endpoint retrieves the employees belonging to the given department,
+     * or every employee if no department is provided, one page at a time.
+     * Pages are fetched either by cursor (the id of the last employee already
+     * seen, served by an index) or by page number. When the page is full, the
+     * cursor of the next page is returned in the `X-Next-Cursor` header.
      *
      * HTTP Method: GET
-     * Path: /employee?department={department}
+     * Path: /employee?department={department}&after={cursor}&size={size}
+     * Path: /employee?department={department}&page={page}&size={size}
      *
      * @param department the department name (e.g. "Sales", "IT")
+     * @param page the page number, starting at 0 (optional, exclusive with after)
+     * @param after the cursor of the page to retrieve (optional, exclusive with page)
+     * @param size the page size, 500 by default and at most 1000
      * @return list of EmployeeDto objects in that department
      */
 
+    @Transactional(readOnly = true)
     @GetMapping
-    public ResponseEntity<List<EmployeeDto>> getEmployeesByDepartment(@RequestParam(required = false) String department) {
+    public ResponseEntity<List<EmployeeDto>> getEmployeesByDepartment(@RequestParam(required = false) String department,
+                                                                      @RequestParam Optional<Integer> page,
+                                                                      @RequestParam Optional<Long> after,
+                                                                      @RequestParam Optional<Integer> size) {
+        if ((page.isPresent() && after.isPresent()) || page.orElse(0) < 0 || size.orElse(1) < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = Math.min(size.orElse(DEFAULT_PAGE_SIZE), MAX_PAGE_SIZE);
+        boolean firstPage = page.orElse(0) == 0 && after.isEmpty();
+
+        List<Employee> employees;
         if (department == null || department.trim().isEmpty()) {
             logger.info("Fetching all employees");
-            List<Employee> employees = employeeRepository.findAll();
-            List<EmployeeDto> employeeDtos = EmployeeConversors.toEmployeeDtoList(employees);
             logger.warn("No department provided.");
-            return ResponseEntity.ok(employeeDtos);
+            employees = page.isPresent()
+                    ? employeeRepository.findAllBy(PageRequest.of(page.get(), pageSize, Sort.by("id"))).getContent()
+                    : employeeRepository.findByIdGreaterThanOrderByIdAsc(after.orElse(0L), PageRequest.ofSize(pageSize));
         } else {
             logger.info("Fetching employees from department: {}", department);
-            List<Employee> employees = employeeRepository.findByDepartment(department);
+            Optional<Integer> departmentId = departmentCache.idOf(department);
+            if (departmentId.isEmpty()) {
+                employees = List.of();
+            } else if (page.isPresent()) {
+                employees = employeeRepository.findByDepartment(departmentId.get(), PageRequest.of(page.get(), pageSize, Sort.by("id"))).getContent();
+            } else {
+                employees = employeeRepository.findByDepartmentAfter(departmentId.get(), after.orElse(0L), PageRequest.ofSize(pageSize));
+            }
 
-            if (employees.isEmpty()) {
+            if (employees.isEmpty() && firstPage) {
                 logger.warn("GET BY DEPARTMENT failed: No employees found in department: {}", department);
                 return ResponseEntity.notFound().build();
-            } else {
-                List<EmployeeDto> employeeDtos = EmployeeConversors.toEmployeeDtoList(employees);
-                logger.info("Found {} employees in department: {}", employeeDtos.size(), department);
-                return ResponseEntity.ok(employeeDtos);
             }
+            logger.info("Found {} employees in department: {}", employees.size(), department);
+        }
+
+        var response = ResponseEntity.ok();
+        if (employees.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(employees.get(employees.size() - 1).getId()));
+        }
+        return response.body(EmployeeConversors.toEmployeeDtoList(employees, departmentCache));
+    }
+
+    /**
+     * Stream all employees from a specific department
+     *
+     * This endpoint writes the employees belonging to the given department, or
+     * every employee if no department is provided, as newline delimited JSON.
+     * Employees are read by keyset in chunks, each in its own short read-only
+     * transaction, so no connection is held while a slow client reads the
+     * listing, and the heap held does not depend on its size.
+     *
+     * HTTP Method: GET
+     * Path: /employee?department={department}
+     * Accept: application/x-ndjson
+     *
+     * @param department the department name (e.g. "Sales", "IT")
+     * @return a streamed response with one EmployeeDto per line
+     */
+
+    @Transactional(readOnly = true)
+    @GetMapping(produces = ResponseStreamer.NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamEmployeesByDepartment(@RequestParam(required = false) String department) {
+        boolean allDepartments = department == null || department.trim().isEmpty();
+        logger.info("Streaming employees from department: {}", allDepartments ? "all" : department);
+        if (allDepartments) {
+            return responseStreamer.streamChunks(ResponseStreamer.NDJSON,
+                    (Employee last, Integer size) -> employeeRepository.findByIdGreaterThanOrderByIdAsc(
+                            last == null ? 0L : last.getId(), PageRequest.ofSize(size)),
+                    employee -> EmployeeConversors.toEmployeeDto(employee, departmentCache));
+        }
+
+        Optional<Integer> departmentId = departmentCache.idOf(department);
+        return responseStreamer.streamChunks(ResponseStreamer.NDJSON,
+                (Employee last, Integer size) -> departmentId.map(id -> employeeRepository.findByDepartmentAfter(id,
+                        last == null ? 0L : last.getId(), PageRequest.ofSize(size))).orElseGet(List::of),
+                employee -> EmployeeConversors.toEmployeeDto(employee, departmentCache));
+    }
+
+    /**
+     * Search employees
+     *
+     * This endpoint searches employees by any combination of department, age
+     * range, salary range and direct supervisor. At least one criterion must be
+     * provided, otherwise it returns a 400 Bad Request response. Every
+     * combination is served by an index. Results are ordered by id and paginated.
+     *
+     * HTTP Method: GET
+     * Path: `/employee/search`
+     *
+     * Example requests:
+     * - `/employee/search?department=Sales&min-age=30&max-age=40`
+     * - `/employee/search?min-salary=50000&page=1&size=50`
+     * - `/employee/search?supervisor=2&department=IT`
+     *
+     * @param department the department name (optional)
+     * @param minAge the minimum age, inclusive (optional)
+     * @param maxAge the maximum age, inclusive (optional)
+     * @param minSalary the minimum salary, inclusive (optional)
+     * @param maxSalary the maximum salary, inclusive (optional)
+     * @param supervisor the id of the direct supervisor (optional)
+     * @param page the page number, starting at 0
+     * @param size the page size, 500 by default and at most 1000
+     * @return a ResponseEntity containing the matching employees or a 400 response
+     */
+
+    @Transactional(readOnly = true)
+    @GetMapping(value = "search")
+    public ResponseEntity<List<EmployeeDto>> search(@RequestParam Optional<String> department,
+                                                    @RequestParam(name = "min-age") Optional<Integer> minAge,
+                                                    @RequestParam(name = "max-age") Optional<Integer> maxAge,
+                                                    @RequestParam(name = "min-salary") Optional<Double> minSalary,
+                                                    @RequestParam(name = "max-salary") Optional<Double> maxSalary,
+                                                    @RequestParam Optional<Long> supervisor,
+                                                    @RequestParam(defaultValue = "0") int page,
+                                                    @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        boolean noCriteria = department.isEmpty() && minAge.isEmpty() && maxAge.isEmpty()
+                && minSalary.isEmpty() && maxSalary.isEmpty() && supervisor.isEmpty();
+        if (noCriteria || page < 0 || size < 1) {
+            logger.warn("SEARCH failed: invalid criteria or page");
+            return ResponseEntity.badRequest().build();
+        }
+
+        logger.info("Searching employees with department: {}, age: {}-{}, salary: {}-{}, supervisor: {}",
+                department.orElse(null), minAge.orElse(null), maxAge.orElse(null),
+                minSalary.orElse(null), maxSalary.orElse(null), supervisor.orElse(null));
+        Optional<Integer> departmentId = department.flatMap(departmentCache::idOf);
+        if (department.isPresent() && departmentId.isEmpty()) {
+            logger.info("Found 0 employees");
+            return ResponseEntity.ok(List.of());
+        }
+
+        Specification<Employee> specification = Specification
+                .where(departmentId.map(EmployeeSpecifications::inDepartment).orElse(null))
+                .and(EmployeeSpecifications.ageBetween(minAge.orElse(null), maxAge.orElse(null)))
+                .and(EmployeeSpecifications.salaryBetween(minSalary.orElse(null), maxSalary.orElse(null)))
+                .and(supervisor.map(EmployeeSpecifications::supervisedBy).orElse(null));
+        var pageRequest = PageRequest.of(page, Math.min(size, MAX_PAGE_SIZE), Sort.by("id"));
+        List<Employee> employees = employeeRepository.findAll(specification, pageRequest).getContent();
+        logger.info("Found {} employees", employees.size());
+        return ResponseEntity.ok(EmployeeConversors.toEmployeeDtoList(employees, departmentCache));
+    }
+
+    /**
+     * Get the subordinates of an employee
+     *
+     * This endpoint retrieves every employee below the given one in the org chart,
+     * resolved with a single recursive query.
+     *
+     * HTTP Method: GET
+     * Path: `/employee/{id}/subordinates?depth={depth}`
+     *
+     * If `depth` is not provided, the whole subtree is returned.
+     *
+     * @param id the ID of the top employee
+     * @param depth the maximum number of levels to descend (optional)
+     * @return a ResponseEntity containing the subordinates ordered by level or a 404 response
+     */
+
+    @Transactional(readOnly = true)
+    @GetMapping(value = "{id}/subordinates")
+    public ResponseEntity<List<EmployeeDto>> getSubordinates(@PathVariable Long id, @RequestParam Optional<Integer> depth) {
+        logger.info("Fetching subordinates of employee with id: {}", id);
+        if (depth.isPresent() && depth.get() < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!employeeRepository.existsById(id)) {
+            logger.warn("GET SUBORDINATES failed: Employee not found with id: {}", id);
+            return ResponseEntity.notFound().build();
         }
+
+        int maxDepth = Math.min(depth.orElse(MAX_ORG_CHART_DEPTH), MAX_ORG_CHART_DEPTH);
+        List<Employee> subordinates = employeeRepository.findSubordinates(id, maxDepth);
+        logger.info("Found {} subordinates of employee with id: {}", subordinates.size(), id);
+        return ResponseEntity.ok(EmployeeConversors.toEmployeeDtoList(subordinates, departmentCache));
+    }
+
+    /**
+     * Get the management chain of an employee
+     *
+     * This endpoint retrieves the supervisors of the given employee, from the
+     * direct supervisor up to the top of the org chart, resolved with a single
+     * recursive query.
+     *
+     * HTTP Method: GET
+     * Path: `/employee/{id}/chain`
+     *
+     * @param id the ID of the employee
+     * @return a ResponseEntity containing the supervisors or a 404 response
+     */
+
+    @Transactional(readOnly = true)
+    @GetMapping(value = "{id}/chain")
+    public ResponseEntity<List<EmployeeDto>> getManagementChain(@PathVariable Long id) {
+        logger.info("Fetching management chain of employee with id: {}", id);
+        if (!employeeRepository.existsById(id)) {
+            logger.warn("GET CHAIN failed: Employee not found with id: {}", id);
+            return ResponseEntity.notFound().build();
+        }
+
+        List<Employee> chain = employeeRepository.findManagementChain(id, MAX_ORG_CHART_DEPTH);
+        logger.info("Found {} supervisors above employee with id: {}", chain.size(), id);
+        return ResponseEntity.ok(EmployeeConversors.toEmployeeDtoList(chain, departmentCache));
+    }
+
+    /**
+     * Get department statistics
+     *
+     * This endpoint returns the headcount, salary statistics and age distribution
+     * of every department, or of a single one. Statistics are served from memory
+     * and do not query the database.
+     *
+     * HTTP Method: GET
+     * Path: `/employee/stats?department={department}`
+     *
+     * @param department the department name (optional)
+     * @return the statistics by department name, or a 404 response if the given department has no employees
+     */
+
+    @Transactional(readOnly = true)
+    @GetMapping(value = "stats")
+    public ResponseEntity<Map<String, DepartmentStatsDto>> getStats(@RequestParam Optional<String> department) {
+        if (department.isEmpty()) {
+            logger.info("Fetching statistics of all departments");
+            return ResponseEntity.ok(departmentStatistics.getAll());
+        }
+
+        logger.info("Fetching statistics of department: {}", department.get());
+        return departmentStatistics.get(department.get())
+                .map(stats -> ResponseEntity.ok(Map.of(department.get(), stats)))
+                .orElseGet(() -> {
+                    logger.warn("GET STATS failed: No employees found in department: {}", department.get());
+                    return ResponseEntity.notFound().build();
+                });
     }
 
 }
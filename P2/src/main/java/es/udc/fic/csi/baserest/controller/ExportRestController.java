@@ -0,0 +1,146 @@
+package es.udc.fic.csi.baserest.controller;
+
+import es.udc.fic.csi.baserest.dto.ExportDto;
+import es.udc.fic.csi.baserest.service.ExportJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * This controller handles HTTP requests related to table exports.
+ * The {@link RequestMapping} annotation indicates the base path for all
+ * requests handled by this controller. The endpoints defined in this class
+ * will append their paths to the base path.
+ *
+ * Base path: `/export`
+ *
+ * Example endpoints:
+ * - `/export` to start an export of every table
+ * - `/export/{id}` to get the state and files of an export
+ * - `/export/{id}/{table}` to download the exported file of a table
+ *
+ * @author angelotefic
+ */
+
+@RestController
+@RequestMapping("export")
+public class ExportRestController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportRestController.class);
+
+    // Request attributes of the Tomcat connectors that write files with sendfile
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    private ExportJob exportJob;
+
+    @Autowired
+    public ExportRestController(ExportJob exportJob) {
+        this.exportJob = exportJob;
+    }
+
+    /**
+     * Start an export
+     *
+     * This endpoint starts an export of every table in the background. Its
+     * files can be downloaded once the export is completed.
+     *
+     * HTTP Method: POST
+     * Path: `/export`
+     *
+     * @return a 202 response with the export
+     */
+    @PostMapping
+    public ResponseEntity<ExportDto> start() {
+        ExportDto export = exportJob.start();
+        logger.info("Started export {}", export.id());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(export);
+    }
+
+    /**
+     * Get an export
+     *
+     * This endpoint retrieves the state of an export and the size of the files
+     * already exported.
+     *
+     * HTTP Method: GET
+     * Path: `/export/{id}`
+     *
+     * @param id the ID of the export
+     * @return a ResponseEntity containing the export or a 404 response
+     */
+    @GetMapping(value = "{id}")
+    public ResponseEntity<ExportDto> get(@PathVariable long id) {
+        return exportJob.get(id).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Download the file of a table
+     *
+     * This endpoint sends the gzip compressed, newline delimited JSON file of
+     * a table, once exported. The file is copied from the disk to the socket
+     * by the kernel: through Tomcat's sendfile support, or else through
+     * {@link FileChannel#transferTo} to the response.
+     *
+     * HTTP Method: GET
+     * Path: `/export/{id}/{table}`
+     *
+     * @param id the ID of the export
+     * @param table the table, e.g. "sale"
+     * @param request the request
+     * @return a ResponseEntity with the file or a 404 response
+     * @throws IOException if the file cannot be read
+     */
+    @GetMapping(value = "{id}/{table}")
+    public ResponseEntity<StreamingResponseBody> download(@PathVariable long id, @PathVariable String table,
+                                                          HttpServletRequest request) throws IOException {
+        Optional<Path> exported = exportJob.file(id, table);
+        if (exported.isEmpty()) {
+            logger.warn("DOWNLOAD failed: table {} not exported by export {}", table, id);
+            return ResponseStreamer.message(HttpStatus.NOT_FOUND, "Exportación no encontrada");
+        }
+        // Canonical, as Tomcat requires for sendfile
+        Path file = exported.get().toRealPath();
+        long size = file.toFile().length();
+        var response = ResponseEntity.ok()
+                .contentType(GZIP)
+                .contentLength(size)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(table + ExportJob.EXTENSION).build().toString());
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Written by the connector once the handler returns
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return response.build();
+        }
+        return response.body(out -> {
+            try (FileChannel channel = FileChannel.open(file)) {
+                WritableByteChannel target = Channels.newChannel(out);
+                for (long position = 0; position < size; ) {
+                    position += channel.transferTo(position, size - position, target);
+                }
+            }
+        });
+    }
+}
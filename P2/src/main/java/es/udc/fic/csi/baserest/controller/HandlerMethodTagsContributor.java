@@ -0,0 +1,42 @@
+package es.udc.fic.csi.baserest.controller;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsContributor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Tags every `http.server.requests` timer with the controller method that
+ * handled the request (e.g. `SaleRestController.createSale`), so latency
+ * histograms can be read per method instead of per URI template.
+ *
+ * @author angelotefic
+ */
+@Component
+public class HandlerMethodTagsContributor implements WebMvcTagsContributor {
+
+    private static final Tag NO_HANDLER = Tag.of("handler", "none");
+
+    @Override
+    public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                 Throwable exception) {
+        return Tags.of(handlerTag(handler));
+    }
+
+    @Override
+    public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler) {
+        return Tags.of(handlerTag(handler));
+    }
+
+    private static Tag handlerTag(Object handler) {
+        if (handler instanceof HandlerMethod handlerMethod) {
+            return Tag.of("handler", handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName());
+        }
+        return NO_HANDLER;
+    }
+}
@@ -0,0 +1,125 @@
+package es.udc.fic.csi.baserest.controller;
+
+import es.udc.fic.csi.baserest.conversors.PayrollConversors;
+import es.udc.fic.csi.baserest.dto.PayrollEntryDto;
+import es.udc.fic.csi.baserest.dto.PayrollRunDto;
+import es.udc.fic.csi.baserest.entity.PayrollEntry;
+import es.udc.fic.csi.baserest.repository.PayrollEntryRepository;
+import es.udc.fic.csi.baserest.repository.PayrollRunRepository;
+import es.udc.fic.csi.baserest.service.PayrollJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+
+/**
+ * This controller handles HTTP requests related to payroll runs.
+ * The {@link RequestMapping} annotation indicates the base path for all
+ * requests handled by this controller. The endpoints defined in this class
+ * will append their paths to the base path.
+ *
+ * Base path: `/payroll`
+ *
+ * Example endpoints:
+ * - `/payroll/run?period={period}` to start or resume the payroll of a period
+ * - `/payroll/{id}` to get the progress of a payroll run
+ * - `/payroll/{id}/employee/{employeeId}` to get the payroll of an employee
+ */
+
+@RestController
+@RequestMapping("payroll")
+public class PayrollRestController {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayrollRestController.class);
+
+    private PayrollJob payrollJob;
+
+    private PayrollRunRepository payrollRunRepository;
+
+    private PayrollEntryRepository payrollEntryRepository;
+
+    @Autowired
+    public PayrollRestController(PayrollJob payrollJob, PayrollRunRepository payrollRunRepository,
+                                 PayrollEntryRepository payrollEntryRepository) {
+        this.payrollJob = payrollJob;
+        this.payrollRunRepository = payrollRunRepository;
+        this.payrollEntryRepository = payrollEntryRepository;
+    }
+
+    /**
+     * Start a payroll run
+     *
+     * This endpoint starts the payroll of a period in the background, or resumes
+     * it from its checkpoint if a previous run of the period failed.
+     *
+     * HTTP Method: POST
+     * Path: `/payroll/run?period={period}`
+     *
+     * Example request parameter:
+     * ?period=2025-05
+     *
+     * @param period the period, as year and month
+     * @return a 202 response with the run progress, a 400 response if the period
+     *         is not valid or a 409 response if the period was already completed
+     */
+    @PostMapping(value = "run")
+    public ResponseEntity<PayrollRunDto> run(@RequestParam String period) {
+        logger.info("Starting payroll run for period: {}", period);
+        try {
+            YearMonth.parse(period);
+        } catch (DateTimeParseException e) {
+            logger.warn("PAYROLL RUN failed: invalid period: {}", period);
+            return ResponseEntity.badRequest().build();
+        }
+
+        return payrollJob.start(period)
+                .map(run -> ResponseEntity.status(HttpStatus.ACCEPTED).body(PayrollConversors.toPayrollRunDto(run)))
+                .orElseGet(() -> {
+                    logger.warn("PAYROLL RUN failed: period already completed: {}", period);
+                    return ResponseEntity.status(HttpStatus.CONFLICT).build();
+                });
+    }
+
+    /**
+     * Get a payroll run
+     *
+     * This endpoint retrieves the progress and throughput of a payroll run.
+     *
+     * HTTP Method: GET
+     * Path: `/payroll/{id}`
+     *
+     * @param id the ID of the run
+     * @return a ResponseEntity containing the run progress or a 404 response
+     */
+    @GetMapping(value = "{id}")
+    public ResponseEntity<PayrollRunDto> get(@PathVariable Long id) {
+        return payrollRunRepository.findById(id)
+                .map(run -> ResponseEntity.ok(PayrollConversors.toPayrollRunDto(run)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Get the payroll of an employee
+     *
+     * This endpoint retrieves the gross and net amounts computed for an employee
+     * in a payroll run.
+     *
+     * HTTP Method: GET
+     * Path: `/payroll/{id}/employee/{employeeId}`
+     *
+     * @param id the ID of the run
+     * @param employeeId the ID of the employee
+     * @return a ResponseEntity containing the payroll or a 404 response
+     */
+    @GetMapping(value = "{id}/employee/{employeeId}")
+    public ResponseEntity<PayrollEntryDto> getEntry(@PathVariable Long id, @PathVariable Long employeeId) {
+        return payrollEntryRepository.findById(new PayrollEntry.Key(id, employeeId))
+                .map(entry -> ResponseEntity.ok(PayrollConversors.toPayrollEntryDto(entry)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,64 @@
+package es.udc.fic.csi.baserest.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import es.udc.fic.csi.baserest.conversors.ProductConversors;
+import es.udc.fic.csi.baserest.repository.ReactiveProductRepository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking versions of the product queries of {@link ProductRestController},
+ * served by the reactive read server of the `reactive` profile with the same
+ * paths and responses
+ *
+ * @author angelotefic
+ */
+@Component
+@Profile("reactive")
+public class ProductReactiveHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductReactiveHandler.class);
+
+    private final ReactiveProductRepository productRepository;
+
+    public ProductReactiveHandler(ReactiveProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * `GET /product/{id}`, see {@link ProductRestController#getProductById(Long)}
+     */
+    public Mono<ServerResponse> getProductById(ServerRequest request) {
+        Long id = ReactiveRequests.longVariable(request, "id");
+        if (id == null) {
+            return ServerResponse.status(HttpStatus.BAD_REQUEST).build();
+        }
+        logger.info("Fetching product with ID: {}", id);
+        return productRepository.findById(id)
+                .flatMap(product -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(ProductConversors.toProductDto(product)))
+                .switchIfEmpty(Mono.defer(() -> ServerResponse.notFound().build()));
+    }
+
+    /**
+     * `GET /product/search?name=`, see {@link ProductRestController#searchProducts(String)}
+     */
+    public Mono<ServerResponse> searchProducts(ServerRequest request) {
+        var name = request.queryParam("name");
+        if (name.isEmpty()) {
+            return ServerResponse.status(HttpStatus.BAD_REQUEST).build();
+        }
+        logger.info("Searching products with name: {}", name.get());
+        return productRepository.findByName(name.get())
+                .flatMap(product -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(ProductConversors.toProductDto(product)))
+                .switchIfEmpty(Mono.defer(() -> ServerResponse.notFound().build()));
+    }
+}
@@ -4,12 +4,12 @@ import java.util.Optional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.transaction.Transactional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -49,7 +49,7 @@ import es.udc.fic.csi.baserest.repository.ProductRepository;
 public class ProductRestController {
 
     // Logger for logging messages (useful for debugging and monitoring)
-    private static final Logger logger = LoggerFactory.getLogger(BaseRestController.class);
+    private static final Logger logger = LoggerFactory.getLogger(ProductRestController.class);
     
     // EntityManager is used to interact with the database
     @PersistenceContext
@@ -85,9 +85,9 @@ public class ProductRestController {
      */
     @PostMapping(value = "new")
     public Long createProduct(@RequestBody ProductDto productDto) {
-        logger.info("Creating new product: {}", productDto);
+        logger.info("Creating new product with name: {}", productDto.name());
         var newProduct = em.merge(ProductConversors.toProduct(productDto));
-        logger.info("Product created: {}", newProduct);
+        logger.info("Product created with id: {}", newProduct.getId());
         
         return newProduct.getId();
     }
@@ -115,7 +115,7 @@ public class ProductRestController {
      */
     @PutMapping(value = "update/{id}")
     public ResponseEntity<ProductDto> updateProduct(@PathVariable Long id, @RequestBody ProductDto productDto) {
-        logger.info("Updating product with id {}: {}", id, productDto);
+        logger.info("Updating product with id: {}", id);
     
         if (!productRepository.existsById(id)) {
             return ResponseEntity.notFound().build();
@@ -124,7 +124,7 @@ public class ProductRestController {
         Product product = ProductConversors.toProduct(productDto);
         product.setId(id);
         product = productRepository.save(product);
-        logger.info("Product updated: {}", product);
+        logger.info("Product updated with id: {}", id);
         return ResponseEntity.ok(ProductConversors.toProductDto(product));
     }
     
@@ -144,12 +144,13 @@ public class ProductRestController {
      * @param name the name of the product to search for
      * @return a ResponseEntity containing the found product data or a 404 response if the product is not found
      */
+    @Transactional(readOnly = true)
     @GetMapping(value = "search")
     public ResponseEntity<ProductDto> searchProducts(@RequestParam String name) {
         logger.info("Searching products with name: {}", name);
         Optional<Product> products = productRepository.findByName(name);
         if (products.isPresent()) {
-            logger.info("Found product: {}", products.get());
+            logger.info("Found product with id: {}", products.get().getId());
             return ResponseEntity.ok(ProductConversors.toProductDto(products.get()));
         } else {
             logger.warn("Product not found with name: {}", name);
@@ -171,12 +172,13 @@ public class ProductRestController {
      * @param id the ID of the product to retrieve
      * @return a ResponseEntity containing the product data or a 404 response if the product is not found
      */
+    @Transactional(readOnly = true)
     @GetMapping(value = "{id}")
     public ResponseEntity<ProductDto> getProductById(@PathVariable Long id) {
         logger.info("Fetching product with ID: {}", id);
         Optional<Product> product = productRepository.findById(id);
         if (product.isPresent()) {
-            logger.info("Found product: {}", product.get());
+            logger.info("Found product with ID: {}", id);
             return ResponseEntity.ok(ProductConversors.toProductDto(product.get()));
         } else {
             logger.warn("Product not found with ID: {}", id);
@@ -0,0 +1,25 @@
+package es.udc.fic.csi.baserest.controller;
+
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+/**
+ * Request parsing shared by the reactive handlers
+ *
+ * @author angelotefic
+ */
+final class ReactiveRequests {
+
+    private ReactiveRequests() {
+    }
+
+    /**
+     * @return the path variable as a number, or null if it is not one (a bad request)
+     */
+    static Long longVariable(ServerRequest request, String name) {
+        try {
+            return Long.valueOf(request.pathVariable(name));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package es.udc.fic.csi.baserest.controller;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The reactive counterpart of {@link ResponseStreamer}, for the read path of
+ * the `reactive` profile.
+ *
+ * Rows are converted and written as a JSON array, or as newline delimited
+ * JSON, as they arrive. They are requested from the database as the
+ * connection drains, at most `streaming.flush-rows` ahead of the client, so a
+ * slow client slows down the query instead of filling the memory.
+ *
+ * @author angelotefic
+ */
+@Component
+@Profile("reactive")
+public class ReactiveResponseStreamer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveResponseStreamer.class);
+
+    private static final byte[] START_ARRAY = { '[' };
+
+    private static final byte[] SEPARATOR = { ',' };
+
+    private static final byte[] END_ARRAY = { ']' };
+
+    private static final byte[] NEWLINE = { '\n' };
+
+    private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    private final ObjectMapper objectMapper;
+
+    private final int flushRows;
+
+    @Autowired
+    public ReactiveResponseStreamer(ObjectMapper objectMapper, @Value("${streaming.flush-rows:500}") int flushRows) {
+        this.objectMapper = objectMapper;
+        this.flushRows = flushRows;
+    }
+
+    /**
+     * Stream rows in the format requested by the client: newline delimited
+     * JSON if it explicitly accepts it, a JSON array otherwise
+     *
+     * @param accept    the media types accepted by the client
+     * @param rows      the rows, subscribed when the response is written
+     * @param converter converts every row to the object written
+     * @param <T>       the type of the rows
+     * @return the streamed response
+     */
+    public <T> Mono<ServerResponse> stream(List<MediaType> accept, Flux<T> rows, Function<? super T, ?> converter) {
+        boolean ndjson = accept.stream().anyMatch(ResponseStreamer.NDJSON::equalsTypeAndSubtype);
+        var count = new AtomicLong();
+        long start = System.nanoTime();
+
+        Flux<DataBuffer> elements = rows.limitRate(flushRows).map(row -> {
+            byte[] json = toJson(converter.apply(row));
+            boolean first = count.getAndIncrement() == 0;
+            if (ndjson) {
+                return buffer(json, NEWLINE);
+            }
+            return first ? buffer(json) : buffer(SEPARATOR, json);
+        });
+        Flux<DataBuffer> body = ndjson
+                ? elements
+                : Flux.concat(Mono.fromSupplier(() -> buffer(START_ARRAY)), elements,
+                        Mono.fromSupplier(() -> buffer(END_ARRAY)));
+        body = body.doOnComplete(() -> logger.info("Streamed {} rows in {} ms", count.get(),
+                (System.nanoTime() - start) / 1_000_000));
+
+        return ServerResponse.ok()
+                .contentType(ndjson ? ResponseStreamer.NDJSON : MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromDataBuffers(body));
+    }
+
+    /**
+     * A plain text response, for the errors of endpoints that otherwise stream
+     *
+     * @param status  the response status
+     * @param message the response body
+     * @return the response
+     */
+    public static Mono<ServerResponse> message(HttpStatus status, String message) {
+        return ServerResponse.status(status).contentType(MediaType.TEXT_PLAIN).bodyValue(message);
+    }
+
+    private byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private DataBuffer buffer(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        DataBuffer buffer = bufferFactory.allocateBuffer(length);
+        for (byte[] part : parts) {
+            buffer.write(part);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,214 @@
+package es.udc.fic.csi.baserest.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes list responses incrementally, on the async request thread.
+ *
+ * Rows come either from a repository {@link Stream}, consumed inside a single
+ * read-only transaction, or in chunks of `streaming.flush-rows` rows, each
+ * read and converted in its own short read-only transaction and written once
+ * it has ended, so no connection is held while a slow client reads the
+ * response. With a stream, every row is converted and written as soon as it
+ * is read, and every `streaming.flush-rows` rows the output is flushed and
+ * the persistence context cleared. Either way the memory held does not depend
+ * on the size of the result. Rows are written as a JSON array, or as newline
+ * delimited JSON when the client accepts `application/x-ndjson`.
+ *
+ * @author angelotefic
+ */
+@Component
+public class ResponseStreamer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseStreamer.class);
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    public static final MediaType NDJSON = MediaType.parseMediaType(NDJSON_VALUE);
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final int flushRows;
+
+    @Autowired
+    public ResponseStreamer(ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                            @Value("${streaming.flush-rows:500}") int flushRows) {
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.flushRows = flushRows;
+    }
+
+    /**
+     * Stream rows in the format requested by the client: newline delimited
+     * JSON if it explicitly accepts it, a JSON array otherwise
+     *
+     * @param accept    the media types accepted by the client
+     * @param rows      opens the repository stream, called inside the transaction
+     * @param converter converts every row to the object written
+     * @param <T>       the type of the rows
+     * @return the streamed response
+     */
+    public <T> ResponseEntity<StreamingResponseBody> stream(List<MediaType> accept, Supplier<Stream<T>> rows,
+                                                            Function<? super T, ?> converter) {
+        boolean ndjson = accept.stream().anyMatch(NDJSON::equalsTypeAndSubtype);
+        return stream(ndjson ? NDJSON : MediaType.APPLICATION_JSON, rows, converter);
+    }
+
+    /**
+     * Stream rows in the given format
+     *
+     * @param format    either {@link #NDJSON} or {@link MediaType#APPLICATION_JSON}
+     * @param rows      opens the repository stream, called inside the transaction
+     * @param converter converts every row to the object written
+     * @param <T>       the type of the rows
+     * @return the streamed response
+     */
+    public <T> ResponseEntity<StreamingResponseBody> stream(MediaType format, Supplier<Stream<T>> rows,
+                                                            Function<? super T, ?> converter) {
+        boolean ndjson = NDJSON.equalsTypeAndSubtype(format);
+        StreamingResponseBody body = out -> {
+            long start = System.nanoTime();
+            long written;
+            try {
+                written = readOnlyTransaction.execute(status -> {
+                    try (Stream<T> stream = rows.get();
+                         JsonGenerator generator = startRows(out, ndjson)) {
+                        long count = 0;
+                        for (Iterator<T> it = stream.iterator(); it.hasNext(); ) {
+                            writeRow(generator, converter.apply(it.next()), ndjson);
+                            if (++count % flushRows == 0) {
+                                generator.flush();
+                                em.clear();
+                            }
+                        }
+                        endRows(generator, ndjson);
+                        return count;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            logger.info("Streamed {} rows in {} ms", written, (System.nanoTime() - start) / 1_000_000);
+        };
+        return ResponseEntity.ok().contentType(format).body(body);
+    }
+
+    /**
+     * Stream rows read in chunks, each in its own read-only transaction, in
+     * the given format
+     *
+     * @param format    either {@link #NDJSON} or {@link MediaType#APPLICATION_JSON}
+     * @param nextChunk reads at most the given number of rows following the given one, or the first
+     *                  rows if it is null (e.g. by keyset), called inside the transaction
+     * @param converter converts every row to the object written, called inside the transaction
+     * @param <T>       the type of the rows
+     * @return the streamed response
+     */
+    public <T> ResponseEntity<StreamingResponseBody> streamChunks(MediaType format,
+                                                                  BiFunction<T, Integer, List<T>> nextChunk,
+                                                                  Function<? super T, ?> converter) {
+        boolean ndjson = NDJSON.equalsTypeAndSubtype(format);
+        StreamingResponseBody body = out -> {
+            long start = System.nanoTime();
+            long written = 0;
+            try (JsonGenerator generator = startRows(out, ndjson)) {
+                T last = null;
+                boolean more = true;
+                while (more) {
+                    T after = last;
+                    Chunk<T> chunk = readOnlyTransaction.execute(status -> {
+                        List<T> rows = nextChunk.apply(after, flushRows);
+                        return new Chunk<>(rows.stream().map(converter).collect(Collectors.toList()),
+                                rows.isEmpty() ? null : rows.get(rows.size() - 1));
+                    });
+                    for (Object row : chunk.converted()) {
+                        writeRow(generator, row, ndjson);
+                    }
+                    generator.flush();
+                    written += chunk.converted().size();
+                    last = chunk.last();
+                    more = chunk.converted().size() == flushRows;
+                }
+                endRows(generator, ndjson);
+            }
+            logger.info("Streamed {} rows in {} ms", written, (System.nanoTime() - start) / 1_000_000);
+        };
+        return ResponseEntity.ok().contentType(format).body(body);
+    }
+
+    private record Chunk<T>(List<?> converted, T last) {
+    }
+
+    private JsonGenerator startRows(OutputStream out, boolean ndjson) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        if (!ndjson) {
+            generator.writeStartArray();
+        }
+        return generator;
+    }
+
+    private static void writeRow(JsonGenerator generator, Object row, boolean ndjson) throws IOException {
+        generator.writeObject(row);
+        if (ndjson) {
+            generator.writeRaw('\n');
+        }
+    }
+
+    private static void endRows(JsonGenerator generator, boolean ndjson) throws IOException {
+        if (!ndjson) {
+            generator.writeEndArray();
+        }
+        generator.flush();
+    }
+
+    /**
+     * A plain text response, for the errors of endpoints that otherwise stream
+     *
+     * @param status  the response status
+     * @param message the response body
+     * @return the response
+     */
+    public static ResponseEntity<StreamingResponseBody> message(HttpStatus status, String message) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(out -> out.write(message.getBytes(StandardCharsets.UTF_8)));
+    }
+}
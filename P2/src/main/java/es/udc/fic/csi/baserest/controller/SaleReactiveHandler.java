@@ -0,0 +1,85 @@
+package es.udc.fic.csi.baserest.controller;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import es.udc.fic.csi.baserest.conversors.SaleConversors;
+import es.udc.fic.csi.baserest.repository.ReactiveClientRepository;
+import es.udc.fic.csi.baserest.repository.ReactiveProductRepository;
+import es.udc.fic.csi.baserest.repository.ReactiveSaleRepository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking versions of the sale queries of {@link SaleRestController},
+ * served by the reactive read server of the `reactive` profile with the same
+ * paths and responses. Sale histories are streamed with backpressure (see
+ * {@link ReactiveResponseStreamer}).
+ *
+ * @author angelotefic
+ */
+@Component
+@Profile("reactive")
+public class SaleReactiveHandler {
+
+    private final ReactiveSaleRepository saleRepository;
+
+    private final ReactiveProductRepository productRepository;
+
+    private final ReactiveClientRepository clientRepository;
+
+    private final ReactiveResponseStreamer responseStreamer;
+
+    public SaleReactiveHandler(ReactiveSaleRepository saleRepository, ReactiveProductRepository productRepository,
+                               ReactiveClientRepository clientRepository, ReactiveResponseStreamer responseStreamer) {
+        this.saleRepository = saleRepository;
+        this.productRepository = productRepository;
+        this.clientRepository = clientRepository;
+        this.responseStreamer = responseStreamer;
+    }
+
+    /**
+     * `GET /sale/{id}`, see {@link SaleRestController#getSaleById(Long)}
+     */
+    public Mono<ServerResponse> getSaleById(ServerRequest request) {
+        Long id = ReactiveRequests.longVariable(request, "id");
+        if (id == null) {
+            return ServerResponse.status(HttpStatus.BAD_REQUEST).build();
+        }
+        return saleRepository.findById(id)
+                .flatMap(sale -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(SaleConversors.toSaleDto(sale)))
+                .switchIfEmpty(Mono.defer(() -> ServerResponse.notFound().build()));
+    }
+
+    /**
+     * `GET /sale/product/{productId}`, see {@link SaleRestController#getSalesByProduct}
+     */
+    public Mono<ServerResponse> getSalesByProduct(ServerRequest request) {
+        Long productId = ReactiveRequests.longVariable(request, "productId");
+        if (productId == null) {
+            return ServerResponse.status(HttpStatus.BAD_REQUEST).build();
+        }
+        return productRepository.existsById(productId).flatMap(exists -> exists
+                ? responseStreamer.stream(request.headers().accept(), saleRepository.findByProductId(productId),
+                        SaleConversors::toSaleDto)
+                : ReactiveResponseStreamer.message(HttpStatus.NOT_FOUND, "Producto no encontrado"));
+    }
+
+    /**
+     * `GET /sale/client/{clientId}`, see {@link SaleRestController#getSalesByClient}
+     */
+    public Mono<ServerResponse> getSalesByClient(ServerRequest request) {
+        Long clientId = ReactiveRequests.longVariable(request, "clientId");
+        if (clientId == null) {
+            return ServerResponse.status(HttpStatus.BAD_REQUEST).build();
+        }
+        return clientRepository.existsById(clientId).flatMap(exists -> exists
+                ? responseStreamer.stream(request.headers().accept(), saleRepository.findByClientId(clientId),
+                        SaleConversors::toSaleDto)
+                : ReactiveResponseStreamer.message(HttpStatus.NOT_FOUND, "Cliente no encontrado"));
+    }
+}
@@ -1,5 +1,7 @@
 package es.udc.fic.csi.baserest.controller;
 
+import es.udc.fic.csi.baserest.config.ShardKey;
+import es.udc.fic.csi.baserest.config.Shards;
 import es.udc.fic.csi.baserest.entity.Sale;
 import es.udc.fic.csi.baserest.entity.Product;
 import es.udc.fic.csi.baserest.entity.Client;
@@ -9,13 +11,18 @@ import es.udc.fic.csi.baserest.repository.ProductRepository;
 import es.udc.fic.csi.baserest.repository.ClientRepository;
 import es.udc.fic.csi.baserest.conversors.SaleConversors;
 
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.Comparator;
+import java.util.stream.Stream;
 
 /**
  * This controller handles HTTP requests related to the `Sale` entity.
@@ -28,8 +35,8 @@ import java.util.List;
  * Example endpoints:
  * - `/client/new` to create a new sale
  * - `/sale/{id}` to get a sale by Id
- * - `/sale/product/{productId}` to get the sales with the same productId
- * - `/sale/client/{clientId}` to get the sales with the same clientId
+ * - `/sale/product/{productId}` to get the sales with the same productId, streamed
+ * - `/sale/client/{clientId}` to get the sales with the same clientId, streamed
  * 
  * @author thiago.seijas.vazquez
  */
@@ -47,6 +54,13 @@ public class SaleRestController {
     @Autowired
     private ClientRepository clientRepository;
 
+    @Autowired
+    private ResponseStreamer responseStreamer;
+
+    // Only with the sharding profile
+    @Autowired
+    private ObjectProvider<Shards> shards;
+
     /**
      * Create a new sale
      *
@@ -74,7 +88,7 @@ public class SaleRestController {
 
     @PostMapping(value = "new")
     public ResponseEntity<?> createSale(@RequestParam Long productId,
-                                        @RequestParam Long clientId,
+                                        @RequestParam @ShardKey Long clientId,
                                         @RequestParam int quantity) {
 
         Product product = productRepository.findById(productId).orElse(null);
@@ -130,7 +144,7 @@ public class SaleRestController {
      */
     
     @GetMapping(value = "{id}")
-    public ResponseEntity<SaleDto> getSaleById(@PathVariable Long id) {
+    public ResponseEntity<SaleDto> getSaleById(@PathVariable @ShardKey Long id) {
         return saleRepository.findById(id)
             .map(sale -> ResponseEntity.ok(SaleConversors.toSaleDto(sale)))
             .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
@@ -144,21 +158,35 @@ public class SaleRestController {
      * HTTP Method: GET
      * Path: `/sale/product/{productId}`
      *
-     * If the productId is found, it returns a 200 OK response with a list of sales data.
+     * If the productId is found, it returns a 200 OK response with a list of sales data,
+     * streamed as a JSON array, or as newline delimited JSON if the request accepts
+     * `application/x-ndjson`.
      * If the productId is not found, it returns a 404 Not Found response.
      *
      * @param productId the Id of the sale's product to retrieve
+     * @param headers the request headers
      * @return a ResponseEntity containing the sales data or a 404 response
      */
 
     @GetMapping(value = "product/{productId}")
-    public ResponseEntity<?> getSalesByProduct(@PathVariable Long productId) {
+    public ResponseEntity<StreamingResponseBody> getSalesByProduct(@PathVariable Long productId,
+                                                                   @RequestHeader HttpHeaders headers) {
         if (!productRepository.existsById(productId)) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Producto no encontrado");
+            return ResponseStreamer.message(HttpStatus.NOT_FOUND, "Producto no encontrado");
         }
 
-        List<Sale> sales = saleRepository.findByProductId(productId);
-        return ResponseEntity.ok(SaleConversors.toSaleDtoList(sales));
+        return responseStreamer.stream(headers.getAccept(), () -> salesOfProduct(productId),
+                SaleConversors::toSaleDto);
+    }
+
+    private Stream<Sale> salesOfProduct(Long productId) {
+        Shards sharded = shards.getIfAvailable();
+        if (sharded == null) {
+            return saleRepository.streamByProductId(productId);
+        }
+        // Every shard has sales of the product: merged in id order, with the pay methods read on their shard
+        return sharded.scatter(() -> saleRepository.streamByProductId(productId), Comparator.comparing(Sale::getId),
+                sale -> Hibernate.initialize(sale.getClient().getPayMethods()));
     }
 
 /**
@@ -169,20 +197,24 @@ public class SaleRestController {
      * HTTP Method: GET
      * Path: `/sale/client/{clientId}`
      *
-     * If the clientId is found, it returns a 200 OK response with a list of sales data.
+     * If the clientId is found, it returns a 200 OK response with a list of sales data,
+     * streamed as a JSON array, or as newline delimited JSON if the request accepts
+     * `application/x-ndjson`.
      * If the clientId is not found, it returns a 404 Not Found response.
      *
      * @param clientId the Id of the sale's client to retrieve
+     * @param headers the request headers
      * @return a ResponseEntity containing the sales data or a 404 response
      */
 
     @GetMapping(value = "client/{clientId}")
-    public ResponseEntity<?> getSalesByClient(@PathVariable Long clientId) {
+    public ResponseEntity<StreamingResponseBody> getSalesByClient(@PathVariable @ShardKey Long clientId,
+                                                                  @RequestHeader HttpHeaders headers) {
         if (!clientRepository.existsById(clientId)) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Cliente no encontrado");
+            return ResponseStreamer.message(HttpStatus.NOT_FOUND, "Cliente no encontrado");
         }
 
-        List<Sale> sales = saleRepository.findByClientId(clientId);
-        return ResponseEntity.ok(SaleConversors.toSaleDtoList(sales));
+        return responseStreamer.stream(headers.getAccept(), () -> saleRepository.streamByClientId(clientId),
+                SaleConversors::toSaleDto);
     }
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package es.udc.fic.csi.baserest.conversors;
 
 import es.udc.fic.csi.baserest.dto.EmployeeDto;
+import es.udc.fic.csi.baserest.dto.EmployeeImportDto;
+import es.udc.fic.csi.baserest.entity.Department;
 import es.udc.fic.csi.baserest.entity.Employee;
+import es.udc.fic.csi.baserest.service.DepartmentCache;
 
 import javax.persistence.EntityManager;
 import java.util.List;
@@ -10,8 +13,9 @@ public class EmployeeConversors {
     private EmployeeConversors() {
     }
 
-    public static EmployeeDto toEmployeeDto(Employee employee) {
+    public static EmployeeDto toEmployeeDto(Employee employee, DepartmentCache departments) {
         Long supervisorId = (employee.getSupervisor() != null) ? employee.getSupervisor().getId() : null;
+        String department = (employee.getDepartment() != null) ? departments.nameOf(employee.getDepartment().getId()) : null;
 
         return new EmployeeDto(
                 employee.getName(),
@@ -19,21 +23,29 @@ public class EmployeeConversors {
                 employee.getAge(),
                 employee.getSalary(),
                 employee.getNss(),
-                employee.getDepartment(),
+                department,
                 supervisorId
         );
     }
 
-    public static List<EmployeeDto> toEmployeeDtoList(List<Employee> Employees) {
-        return Employees.stream().map(EmployeeConversors::toEmployeeDto).toList();
+    public static List<EmployeeDto> toEmployeeDtoList(List<Employee> Employees, DepartmentCache departments) {
+        return Employees.stream().map(employee -> toEmployeeDto(employee, departments)).toList();
     }
 
-    public static Employee toEmployee(EmployeeDto employeeDto, EntityManager em) {
+    public static Employee toEmployee(EmployeeDto employeeDto, EntityManager em, DepartmentCache departments) {
         Employee supervisor = null;
         if (employeeDto.idSupervisor() != null) {
             supervisor = em.find(Employee.class, employeeDto.idSupervisor());
         }
 
-        return new Employee(employeeDto.name(), employeeDto.address(), employeeDto.age(), employeeDto.salary(), employeeDto.nss(), employeeDto.department(), supervisor);
+        return new Employee(employeeDto.name(), employeeDto.address(), employeeDto.age(), employeeDto.salary(), employeeDto.nss(), toDepartment(employeeDto.department(), em, departments), supervisor);
+    }
+
+    public static Employee toEmployee(EmployeeImportDto employeeImportDto, Employee supervisor, Department department) {
+        return new Employee(employeeImportDto.name(), employeeImportDto.address(), employeeImportDto.age(), employeeImportDto.salary(), employeeImportDto.nss(), department, supervisor);
+    }
+
+    public static Department toDepartment(String name, EntityManager em, DepartmentCache departments) {
+        return (name != null) ? em.getReference(Department.class, departments.intern(name)) : null;
     }
 }
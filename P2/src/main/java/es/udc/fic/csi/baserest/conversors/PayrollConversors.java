@@ -0,0 +1,22 @@
+package es.udc.fic.csi.baserest.conversors;
+
+import es.udc.fic.csi.baserest.dto.PayrollEntryDto;
+import es.udc.fic.csi.baserest.dto.PayrollRunDto;
+import es.udc.fic.csi.baserest.entity.PayrollEntry;
+import es.udc.fic.csi.baserest.entity.PayrollRun;
+
+public class PayrollConversors {
+
+    private PayrollConversors() {
+    }
+
+    public static PayrollRunDto toPayrollRunDto(PayrollRun run) {
+        double employeesPerSecond = run.getElapsedMillis() > 0 ? run.getProcessed() * 1000.0 / run.getElapsedMillis() : 0;
+        return new PayrollRunDto(run.getId(), run.getPeriod(), run.getStatus().name(), run.getProcessed(),
+                run.getLastProcessedId(), run.getElapsedMillis(), employeesPerSecond);
+    }
+
+    public static PayrollEntryDto toPayrollEntryDto(PayrollEntry entry) {
+        return new PayrollEntryDto(entry.getId().getEmployeeId(), entry.getGross(), entry.getNet());
+    }
+}
@@ -0,0 +1,11 @@
+package es.udc.fic.csi.baserest.dto;
+
+/**
+ * Result of a bulk import
+ *
+ * @param imported      number of imported rows
+ * @param elapsedMillis time spent importing, in milliseconds
+ * @param rowsPerSecond import throughput
+ */
+public record BulkImportResultDto(int imported, long elapsedMillis, double rowsPerSecond) {
+}
@@ -0,0 +1,23 @@
+package es.udc.fic.csi.baserest.dto;
+
+import java.util.Map;
+
+/**
+ * Headcount and salary statistics of a department
+ *
+ * Totals and averages are exact. Minimum, maximum and percentiles come from a
+ * compact sketch and are accurate within 1%.
+ *
+ * @param headcount         number of employees
+ * @param totalSalary       sum of the salaries
+ * @param averageSalary     average salary
+ * @param minSalary         lowest salary
+ * @param maxSalary         highest salary
+ * @param salaryPercentiles salary at the 50th, 90th and 99th percentiles
+ * @param ageDistribution   number of employees per age decade (20 means 20-29)
+ */
+public record DepartmentStatsDto(long headcount, double totalSalary, double averageSalary,
+                                 double minSalary, double maxSalary,
+                                 Map<String, Double> salaryPercentiles,
+                                 Map<Integer, Long> ageDistribution) {
+}
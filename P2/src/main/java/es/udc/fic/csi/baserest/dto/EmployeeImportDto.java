@@ -0,0 +1,20 @@
+package es.udc.fic.csi.baserest.dto;
+
+/**
+ * Employee entry of a bulk import
+ *
+ * The supervisor is either an already stored employee, given by its id, or
+ * another employee of the same import, given by its nss.
+ *
+ * @param name          the employee name
+ * @param address       the employee address
+ * @param age           the employee age
+ * @param salary        the employee salary
+ * @param nss           the employee nss, unique within the import
+ * @param department    the department name
+ * @param idSupervisor  the id of a stored supervisor (optional)
+ * @param supervisorNss the nss of a supervisor in the same import (optional)
+ */
+public record EmployeeImportDto(String name, String address, Integer age, Double salary, Integer nss,
+                                String department, Long idSupervisor, Integer supervisorNss) {
+}
@@ -0,0 +1,13 @@
+package es.udc.fic.csi.baserest.dto;
+
+import java.util.Map;
+
+/**
+ * State and files of a table export
+ *
+ * @param id     the export id
+ * @param status RUNNING, COMPLETED or FAILED
+ * @param files  size in bytes of the compressed file of every table already exported
+ */
+public record ExportDto(long id, String status, Map<String, Long> files) {
+}
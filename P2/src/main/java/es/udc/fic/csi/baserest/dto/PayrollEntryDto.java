@@ -0,0 +1,11 @@
+package es.udc.fic.csi.baserest.dto;
+
+/**
+ * Monthly payroll of an employee
+ *
+ * @param employeeId the employee id
+ * @param gross      the gross amount
+ * @param net        the net amount
+ */
+public record PayrollEntryDto(Long employeeId, Double gross, Double net) {
+}
@@ -0,0 +1,16 @@
+package es.udc.fic.csi.baserest.dto;
+
+/**
+ * Progress and throughput of a payroll run
+ *
+ * @param id                 the run id
+ * @param period             the period, e.g. "2025-05"
+ * @param status             RUNNING, COMPLETED or FAILED
+ * @param processed          number of processed employees
+ * @param lastProcessedId    id of the last processed employee (the checkpoint)
+ * @param elapsedMillis      processing time so far, in milliseconds
+ * @param employeesPerSecond processing throughput
+ */
+public record PayrollRunDto(Long id, String period, String status, long processed, long lastProcessedId,
+                            long elapsedMillis, double employeesPerSecond) {
+}
@@ -0,0 +1,16 @@
+package es.udc.fic.csi.baserest.dto;
+
+/**
+ * Salary adjustment applied to a group of employees
+ *
+ * Exactly one scope (department or supervisor) and exactly one kind of raise
+ * (percentage or fixed amount) must be given.
+ *
+ * @param department   the department whose employees get the raise
+ * @param idSupervisor the supervisor whose whole subtree gets the raise (the
+ *                     supervisor excluded)
+ * @param percentage   the raise as a percentage of the current salary
+ * @param amount       the raise as a fixed amount
+ */
+public record SalaryAdjustmentDto(String department, Long idSupervisor, Double percentage, Double amount) {
+}
@@ -3,7 +3,11 @@ package es.udc.fic.csi.baserest.entity;
 import javax.persistence.*;
 import java.util.List;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "client")
 public class Client {
 
     @Id
@@ -26,6 +30,7 @@ public class Client {
     private String address;
 
     @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "client.payMethods")
     @CollectionTable(name = "pay_methods", joinColumns = @JoinColumn(name = "id"))
     @Column(name = "pay_method_id", nullable = false)
     private List<Long> payMethods;
@@ -3,10 +3,24 @@ package es.udc.fic.csi.baserest.entity;
 import java.util.Objects;
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_employee_department", columnList = "department_id, id"),
+        @Index(name = "idx_employee_department_age", columnList = "department_id, age"),
+        @Index(name = "idx_employee_department_salary", columnList = "department_id, salary"),
+        @Index(name = "idx_employee_age", columnList = "age"),
+        @Index(name = "idx_employee_salary", columnList = "salary"),
+        @Index(name = "idx_employee_supervisor", columnList = "idSupervisor")
+})
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "employee")
 public class Employee {
+    // Sequence ids allow JDBC insert batching, which IDENTITY columns disable
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employee_seq")
+    @SequenceGenerator(name = "employee_seq", sequenceName = "employee_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -24,16 +38,18 @@ public class Employee {
     @Column(nullable = false, unique = true)
     private Integer nss;
 
-    @Column(nullable = false)
-    private String department;
+    // Interned through DepartmentCache, so the name is rarely loaded
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "department_id", referencedColumnName = "id", foreignKey = @ForeignKey(name = "fk_employee_department"))
+    private Department department;
 
-    @ManyToOne(optional = true)
+    @ManyToOne(optional = true, fetch = FetchType.LAZY)
     @JoinColumn(name = "idSupervisor", referencedColumnName = "id")
     private Employee supervisor;
 
     public Employee() {}
 
-    public Employee(String name, String address, Integer age, Double salary, Integer nss, String department, Employee supervisor) {
+    public Employee(String name, String address, Integer age, Double salary, Integer nss, Department department, Employee supervisor) {
         this.name = name;
         this.address = address;
         this.age = age;
@@ -91,11 +107,11 @@ public class Employee {
         this.nss = nss;
     }
 
-    public String getDepartment() {
+    public Department getDepartment() {
         return department;
     }
 
-    public void setDepartment(String department) {
+    public void setDepartment(Department department) {
         this.department = department;
     }
 
@@ -116,21 +132,43 @@ public class Employee {
                 ", age=" + age +
                 ", salary=" + salary +
                 ", nss=" + nss +
-                ", department='" + department + '\'' +
+                ", department ='" + (department != null ? department.getId() : "null") + '\'' +
                 ", supervisor ='" + (supervisor != null ? supervisor.getId() : "null") + '\'' +
                 '}';
     }
 
+    // The department and supervisor by id, which their proxies return without being initialized
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        return this.hashCode() == o.hashCode();
+        if (!(o instanceof Employee)) return false;
+
+        Employee employee = (Employee) o;
+
+        return Objects.equals(getId(), employee.getId())
+                && Objects.equals(getName(), employee.getName())
+                && Objects.equals(getAddress(), employee.getAddress())
+                && Objects.equals(getAge(), employee.getAge())
+                && Objects.equals(getSalary(), employee.getSalary())
+                && Objects.equals(getNss(), employee.getNss())
+                && Objects.equals(departmentId(), employee.departmentId())
+                && Objects.equals(supervisorId(), employee.supervisorId());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, address, age, salary, nss, department, supervisor);
+        return Objects.hash(getId(), getName(), getAddress(), getAge(), getSalary(), getNss(), departmentId(),
+                supervisorId());
+    }
+
+    private Integer departmentId() {
+        Department department = getDepartment();
+        return department != null ? department.getId() : null;
+    }
+
+    private Long supervisorId() {
+        Employee supervisor = getSupervisor();
+        return supervisor != null ? supervisor.getId() : null;
     }
 
 }
@@ -0,0 +1,113 @@
+package es.udc.fic.csi.baserest.entity;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+
+/**
+ * The payroll of an employee in a {@link PayrollRun}.
+ *
+ * Entries are keyed by run and employee, so a chunk can never be written
+ * twice for the same run. They are written in JDBC batches by the payroll
+ * job and only read through JPA.
+ */
+@Entity
+public class PayrollEntry {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false)
+    private Double gross;
+
+    @Column(nullable = false)
+    private Double net;
+
+    public PayrollEntry() {
+    }
+
+    public PayrollEntry(Long runId, Long employeeId, Double gross, Double net) {
+        this.id = new Key(runId, employeeId);
+        this.gross = gross;
+        this.net = net;
+    }
+
+    public Key getId() {
+        return id;
+    }
+
+    public void setId(Key id) {
+        this.id = id;
+    }
+
+    public Double getGross() {
+        return gross;
+    }
+
+    public void setGross(Double gross) {
+        this.gross = gross;
+    }
+
+    public Double getNet() {
+        return net;
+    }
+
+    public void setNet(Double net) {
+        this.net = net;
+    }
+
+    @Override
+    public String toString() {
+        return "PayrollEntry{" +
+                "runId=" + id.getRunId() +
+                ", employeeId=" + id.getEmployeeId() +
+                ", gross=" + gross +
+                ", net=" + net +
+                '}';
+    }
+
+    @Embeddable
+    public static class Key implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(nullable = false)
+        private Long runId;
+
+        @Column(nullable = false)
+        private Long employeeId;
+
+        public Key() {
+        }
+
+        public Key(Long runId, Long employeeId) {
+            this.runId = runId;
+            this.employeeId = employeeId;
+        }
+
+        public Long getRunId() {
+            return runId;
+        }
+
+        public Long getEmployeeId() {
+            return employeeId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return runId.equals(key.runId) && employeeId.equals(key.employeeId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(runId, employeeId);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package es.udc.fic.csi.baserest.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+
+/**
+ * A payroll run over every employee for a period.
+ *
+ * Employees are processed in id order and the run keeps the id of the last
+ * processed employee as a checkpoint, so an interrupted run resumes where it
+ * stopped.
+ */
+@Entity
+public class PayrollRun {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String period;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    @Column(nullable = false)
+    private Long lastProcessedId;
+
+    @Column(nullable = false)
+    private Long processed;
+
+    @Column(nullable = false)
+    private Long elapsedMillis;
+
+    @Column(nullable = false)
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    public PayrollRun() {
+    }
+
+    public PayrollRun(String period, LocalDateTime startedAt) {
+        this.period = period;
+        this.status = Status.RUNNING;
+        this.lastProcessedId = 0L;
+        this.processed = 0L;
+        this.elapsedMillis = 0L;
+        this.startedAt = startedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(String period) {
+        this.period = period;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Long getLastProcessedId() {
+        return lastProcessedId;
+    }
+
+    public void setLastProcessedId(Long lastProcessedId) {
+        this.lastProcessedId = lastProcessedId;
+    }
+
+    public Long getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(Long processed) {
+        this.processed = processed;
+    }
+
+    public Long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(Long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "PayrollRun{" +
+                "id=" + id +
+                ", period='" + period + '\'' +
+                ", status=" + status +
+                ", lastProcessedId=" + lastProcessedId +
+                ", processed=" + processed +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
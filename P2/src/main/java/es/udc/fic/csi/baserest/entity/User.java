@@ -5,6 +5,8 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
 
 /**
  * The User entity
@@ -12,6 +14,7 @@ import javax.persistence.Id;
  * @author anxo.pvila@udc.es
  */
 @Entity
+@Table(indexes = @Index(name = "idx_user_age", columnList = "age, id"))
 public class User {
 
   /** Entity id, autogenerated */
@@ -23,7 +26,7 @@ public class User {
   @Column(unique = true)
   private String name;
 
-  /** The user age */
+  /** The user age. Indexed with the id for age range searches and counts */
   @Column
   private Integer age;
 
@@ -0,0 +1,121 @@
+package es.udc.fic.csi.baserest.logging;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.slf4j.Marker;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * Keeps one in every `rate` INFO (and finer) events of the configured loggers.
+ *
+ * The decision is taken before the event is created, so the events dropped
+ * cost neither formatting nor a slot in the appender queue. Events are
+ * counted per logger. When `methods` is set only the events logged while
+ * serving a request with one of those HTTP methods are sampled, so the write
+ * paths of the same controllers are still logged in full. Warnings and errors
+ * are never dropped.
+ *
+ * Example, in `logback-spring.xml`:
+ *
+ * <pre>
+ * &lt;turboFilter class="es.udc.fic.csi.baserest.logging.SamplingTurboFilter"&gt;
+ *     &lt;loggers&gt;es.udc.fic.csi.baserest.controller.ProductRestController&lt;/loggers&gt;
+ *     &lt;methods&gt;GET&lt;/methods&gt;
+ *     &lt;rate&gt;100&lt;/rate&gt;
+ * &lt;/turboFilter&gt;
+ * </pre>
+ *
+ * @author angelotefic
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private Set<String> loggers = Set.of();
+
+    private Set<String> methods = Set.of();
+
+    private long rate = 1;
+
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (!isStarted() || level == null || level.isGreaterOrEqual(Level.WARN) || !loggers.contains(logger.getName())
+                || !methods.isEmpty() && !isSampledRequest()) {
+            return FilterReply.NEUTRAL;
+        }
+        // Logger#isInfoEnabled goes through the filter too, without a format: never count those
+        if (format == null) {
+            return FilterReply.NEUTRAL;
+        }
+        long seen = counters.computeIfAbsent(logger.getName(), name -> new AtomicLong()).getAndIncrement();
+        return seen % rate == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    /**
+     * Events logged off a request thread, e.g. by a streamed response body, have no method and are not sampled
+     */
+    private boolean isSampledRequest() {
+        String method = currentMethod();
+        return method != null && methods.contains(method);
+    }
+
+    private static String currentMethod() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpServletRequest request = servletAttributes.getRequest();
+            return request.getMethod();
+        }
+        return null;
+    }
+
+    @Override
+    public void start() {
+        if (rate < 1) {
+            addError("The sampling rate must be at least 1, was " + rate);
+            return;
+        }
+        super.start();
+    }
+
+    /**
+     * @param loggers comma separated names of the loggers sampled
+     */
+    public void setLoggers(String loggers) {
+        this.loggers = split(loggers);
+    }
+
+    /**
+     * @param methods comma separated HTTP methods whose requests are sampled, all if empty
+     */
+    public void setMethods(String methods) {
+        this.methods = split(methods);
+    }
+
+    /**
+     * @param rate keep one in every `rate` events
+     */
+    public void setRate(long rate) {
+        this.rate = rate;
+    }
+
+    private static Set<String> split(String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+}
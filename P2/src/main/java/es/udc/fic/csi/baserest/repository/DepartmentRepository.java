@@ -0,0 +1,14 @@
+package es.udc.fic.csi.baserest.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import es.udc.fic.csi.baserest.entity.Department;
+
+@Repository
+public interface DepartmentRepository extends JpaRepository<Department, Integer> {
+
+    Optional<Department> findByName(String name);
+}
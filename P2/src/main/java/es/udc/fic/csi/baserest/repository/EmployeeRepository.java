@@ -1,13 +1,170 @@
 package es.udc.fic.csi.baserest.repository;
 
 import es.udc.fic.csi.baserest.entity.Employee;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
-public interface EmployeeRepository extends JpaRepository<Employee, Long> {
+public interface EmployeeRepository extends JpaRepository<Employee, Long>, JpaSpecificationExecutor<Employee> {
 
-    List<Employee> findByDepartment(String department);
+    /**
+     * Find a page of employees by offset, without counting the whole table
+     *
+     * @param pageable the page to retrieve
+     * @return the page of employees
+     */
+    Slice<Employee> findAllBy(Pageable pageable);
 
-}
\ No newline at end of file
+    /**
+     * Find a page of employees of a department by offset, without counting them.
+     * The ids of each page are kept in the query cache, and the employees in
+     * the second-level cache.
+     *
+     * @param department the department id
+     * @param pageable   the page to retrieve
+     * @return the page of employees
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    @Query("SELECT e FROM Employee e WHERE e.department.id = :department")
+    Slice<Employee> findByDepartment(@Param("department") Integer department, Pageable pageable);
+
+    /**
+     * Find the employees whose id follows the given cursor, in id order
+     *
+     * @param id       the last id already seen
+     * @param pageable the maximum number of employees to retrieve
+     * @return the next employees
+     */
+    List<Employee> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Find the employees of a department whose id follows the given cursor, in
+     * id order. Served by the (department, id) index.
+     *
+     * @param department the department id
+     * @param id         the last id already seen
+     * @param pageable   the maximum number of employees to retrieve
+     * @return the next employees
+     */
+    @Query("SELECT e FROM Employee e WHERE e.department.id = :department AND e.id > :id ORDER BY e.id")
+    List<Employee> findByDepartmentAfter(@Param("department") Integer department, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Find which of the given ids belong to stored employees, in a single query
+     *
+     * @param ids the ids to check
+     * @return the ids that exist
+     */
+    @Query("SELECT e.id FROM Employee e WHERE e.id IN :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Find which of the given nss belong to stored employees, in a single query
+     *
+     * @param nss the nss to check
+     * @return the nss that exist
+     */
+    @Query("SELECT e.nss FROM Employee e WHERE e.nss IN :nss")
+    Set<Integer> findExistingNss(@Param("nss") Collection<Integer> nss);
+
+    /**
+     * Find the id and salary of the employees whose id follows the given
+     * cursor, in id order, without loading the entities
+     *
+     * @param id       the last id already seen
+     * @param pageable the maximum number of rows to retrieve
+     * @return a list of {id, salary} rows
+     */
+    @Query("SELECT e.id, e.salary FROM Employee e WHERE e.id > :id ORDER BY e.id")
+    List<Object[]> findSalariesAfter(@Param("id") Long id, Pageable pageable);
+
+    /**
+     * Stream the department id, salary and age of every employee, without
+     * loading the entities. Must be consumed inside a transaction.
+     *
+     * @return a stream of {department id, salary, age} rows
+     */
+    @Query("SELECT e.department.id, e.salary, e.age FROM Employee e")
+    Stream<Object[]> streamDepartmentFigures();
+
+    /**
+     * Find the employees below the given one in the org chart, walking the
+     * supervisor relation with a single recursive query.
+     *
+     * @param id    the id of the top employee (not included in the result)
+     * @param depth the maximum number of levels to descend
+     * @return the subordinates ordered by level and id
+     */
+    @Query(value = "WITH RECURSIVE subordinates(id, lvl) AS ("
+            + " SELECT e.id, 0 FROM employee e WHERE e.id = :id"
+            + " UNION ALL"
+            + " SELECT e.id, s.lvl + 1 FROM employee e JOIN subordinates s ON e.id_supervisor = s.id"
+            + " WHERE s.lvl < :depth)"
+            + " SELECT e.* FROM employee e JOIN subordinates s ON e.id = s.id"
+            + " WHERE s.lvl > 0 ORDER BY s.lvl, e.id", nativeQuery = true)
+    List<Employee> findSubordinates(@Param("id") Long id, @Param("depth") Integer depth);
+
+    /**
+     * Find the management chain of the given employee with a single recursive
+     * query.
+     *
+     * @param id    the id of the employee (not included in the result)
+     * @param depth the maximum number of levels to climb
+     * @return the supervisors ordered from the direct supervisor to the top
+     */
+    @Query(value = "WITH RECURSIVE chain(id, id_supervisor, lvl) AS ("
+            + " SELECT e.id, e.id_supervisor, 0 FROM employee e WHERE e.id = :id"
+            + " UNION ALL"
+            + " SELECT e.id, e.id_supervisor, c.lvl + 1 FROM employee e JOIN chain c ON e.id = c.id_supervisor"
+            + " WHERE c.lvl < :depth)"
+            + " SELECT e.* FROM employee e JOIN chain c ON e.id = c.id"
+            + " WHERE c.lvl > 0 ORDER BY c.lvl", nativeQuery = true)
+    List<Employee> findManagementChain(@Param("id") Long id, @Param("depth") Integer depth);
+
+    /**
+     * Adjust the salary of every employee of a department with a single UPDATE.
+     * The new salary is {@code salary * factor + amount}.
+     *
+     * @param department the department id
+     * @param factor     the multiplier applied to the current salary
+     * @param amount     the fixed amount added after the multiplier
+     * @return the number of updated employees
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Employee e SET e.salary = e.salary * :factor + :amount WHERE e.department.id = :department")
+    int adjustDepartmentSalaries(@Param("department") Integer department, @Param("factor") Double factor, @Param("amount") Double amount);
+
+    /**
+     * Adjust the salary of every employee below the given supervisor in the
+     * org chart (the supervisor excluded) with a single UPDATE. The new salary
+     * is {@code salary * factor + amount}.
+     *
+     * @param id     the supervisor id
+     * @param depth  the maximum number of levels to descend
+     * @param factor the multiplier applied to the current salary
+     * @param amount the fixed amount added after the multiplier
+     * @return the number of updated employees
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE employee SET salary = salary * :factor + :amount WHERE id IN ("
+            + " WITH RECURSIVE subordinates(id, lvl) AS ("
+            + " SELECT e.id, 0 FROM employee e WHERE e.id = :id"
+            + " UNION ALL"
+            + " SELECT e.id, s.lvl + 1 FROM employee e JOIN subordinates s ON e.id_supervisor = s.id"
+            + " WHERE s.lvl < :depth)"
+            + " SELECT s.id FROM subordinates s WHERE s.lvl > 0)", nativeQuery = true)
+    int adjustSubordinateSalaries(@Param("id") Long id, @Param("depth") Integer depth, @Param("factor") Double factor, @Param("amount") Double amount);
+
+}
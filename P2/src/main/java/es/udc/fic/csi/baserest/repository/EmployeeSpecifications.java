@@ -0,0 +1,79 @@
+package es.udc.fic.csi.baserest.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import es.udc.fic.csi.baserest.entity.Employee;
+
+/**
+ * Search criteria for {@link Employee}, to be combined with
+ * {@link Specification#and(Specification)} and run through
+ * {@link EmployeeRepository}.
+ *
+ * Every criterion matches one of the indexes declared on {@link Employee}:
+ * department alone or combined with an age or salary range, age and salary
+ * ranges on their own, and the supervisor foreign key.
+ *
+ * @author angelotefic
+ */
+public class EmployeeSpecifications {
+
+    private EmployeeSpecifications() {
+    }
+
+    /**
+     * Employees of the given department
+     *
+     * @param department the department id
+     * @return the criterion
+     */
+    public static Specification<Employee> inDepartment(Integer department) {
+        return (root, query, cb) -> cb.equal(root.get("department").get("id"), department);
+    }
+
+    /**
+     * Employees whose age is within the given bounds, both inclusive and optional
+     *
+     * @param min the minimum age, or null
+     * @param max the maximum age, or null
+     * @return the criterion, or null if both bounds are null
+     */
+    public static Specification<Employee> ageBetween(Integer min, Integer max) {
+        return between("age", min, max);
+    }
+
+    /**
+     * Employees whose salary is within the given bounds, both inclusive and optional
+     *
+     * @param min the minimum salary, or null
+     * @param max the maximum salary, or null
+     * @return the criterion, or null if both bounds are null
+     */
+    public static Specification<Employee> salaryBetween(Double min, Double max) {
+        return between("salary", min, max);
+    }
+
+    /**
+     * Employees directly supervised by the given employee
+     *
+     * @param idSupervisor the supervisor id
+     * @return the criterion
+     */
+    public static Specification<Employee> supervisedBy(Long idSupervisor) {
+        return (root, query, cb) -> cb.equal(root.get("supervisor").get("id"), idSupervisor);
+    }
+
+    private static <T extends Comparable<? super T>> Specification<Employee> between(String attribute, T min, T max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            if (min == null) {
+                return cb.lessThanOrEqualTo(root.get(attribute), max);
+            } else if (max == null) {
+                return cb.greaterThanOrEqualTo(root.get(attribute), min);
+            } else {
+                return cb.between(root.get(attribute), min, max);
+            }
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package es.udc.fic.csi.baserest.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import es.udc.fic.csi.baserest.entity.PayrollEntry;
+
+@Repository
+public interface PayrollEntryRepository extends JpaRepository<PayrollEntry, PayrollEntry.Key> {
+
+    List<PayrollEntry> findByIdRunIdOrderByIdEmployeeId(Long runId);
+
+    long countByIdRunId(Long runId);
+}
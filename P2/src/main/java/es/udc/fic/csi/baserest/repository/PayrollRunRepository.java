@@ -0,0 +1,17 @@
+package es.udc.fic.csi.baserest.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import es.udc.fic.csi.baserest.entity.PayrollRun;
+
+@Repository
+public interface PayrollRunRepository extends JpaRepository<PayrollRun, Long> {
+
+    Optional<PayrollRun> findByPeriod(String period);
+
+    List<PayrollRun> findByStatus(PayrollRun.Status status);
+}
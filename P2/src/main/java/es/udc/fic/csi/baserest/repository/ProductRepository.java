@@ -2,11 +2,13 @@ package es.udc.fic.csi.baserest.repository;
 
 import java.util.Optional;
 
+import javax.persistence.QueryHint;
 import javax.transaction.Transactional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -15,14 +17,17 @@ import es.udc.fic.csi.baserest.entity.Product;
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<Product> findByName(String name);
 
-    @Modifying
+    // Bulk updates skip the entity cache: Hibernate evicts the whole product region and the cached
+    // queries on product once they commit, and the stale entities are cleared from the persistence context
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
     @Transactional
     @Query("UPDATE Product p SET p.stock = p.stock + :quantity WHERE p.name = :name")
     int increaseStock(@Param("name")String name, @Param("quantity") Integer quantity);
 
-    @Modifying
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
     @Transactional
     @Query("UPDATE Product p SET p.stock = p.stock - :quantity WHERE p.name = :name")
     int decreaseStock(@Param("name")String name, @Param("quantity") Integer quantity);
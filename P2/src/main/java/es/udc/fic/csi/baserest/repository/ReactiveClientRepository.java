@@ -0,0 +1,31 @@
+package es.udc.fic.csi.baserest.repository;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking client queries of the `reactive` profile, over R2DBC
+ *
+ * @author angelotefic
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveClientRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveClientRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Boolean> existsById(Long id) {
+        return databaseClient.sql("SELECT 1 FROM client WHERE id = :id")
+                .bind("id", id)
+                .map((row, metadata) -> Boolean.TRUE)
+                .first()
+                .defaultIfEmpty(Boolean.FALSE);
+    }
+}
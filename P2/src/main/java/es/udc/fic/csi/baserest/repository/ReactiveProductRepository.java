@@ -0,0 +1,70 @@
+package es.udc.fic.csi.baserest.repository;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import es.udc.fic.csi.baserest.entity.Product;
+import io.r2dbc.spi.Row;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking product queries of the `reactive` profile, over R2DBC
+ *
+ * @author angelotefic
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveProductRepository {
+
+    private static final String SELECT = "SELECT id, name, price, stock FROM product";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveProductRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Product> findById(Long id) {
+        return databaseClient.sql(SELECT + " WHERE id = :id")
+                .bind("id", id)
+                .map((row, metadata) -> toProduct(row))
+                .one();
+    }
+
+    public Mono<Product> findByName(String name) {
+        return databaseClient.sql(SELECT + " WHERE name = :name")
+                .bind("name", name)
+                .map((row, metadata) -> toProduct(row))
+                .one();
+    }
+
+    public Mono<Boolean> existsById(Long id) {
+        return databaseClient.sql("SELECT 1 FROM product WHERE id = :id")
+                .bind("id", id)
+                .map((row, metadata) -> Boolean.TRUE)
+                .first()
+                .defaultIfEmpty(Boolean.FALSE);
+    }
+
+    /**
+     * Float columns are double precision in H2, which the driver does not narrow
+     */
+    static Float toFloat(Object value) {
+        return value == null ? null : ((Number) value).floatValue();
+    }
+
+    static Product toProduct(Row row) {
+        return toProduct(row, "");
+    }
+
+    /**
+     * @param prefix the prefix of the product columns in the row, e.g. "product_"
+     */
+    static Product toProduct(Row row, String prefix) {
+        var product = new Product(row.get(prefix + "name", String.class), toFloat(row.get(prefix + "price")),
+                row.get(prefix + "stock", Integer.class));
+        product.setId(row.get(prefix + "id", Long.class));
+        return product;
+    }
+}
@@ -0,0 +1,101 @@
+package es.udc.fic.csi.baserest.repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import es.udc.fic.csi.baserest.entity.Client;
+import es.udc.fic.csi.baserest.entity.Sale;
+import io.r2dbc.spi.Row;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking sale queries of the `reactive` profile, over R2DBC.
+ *
+ * Every sale is read with its product and its client, pay methods included,
+ * in a single row, so histories are streamed straight from the result
+ * without a query per sale.
+ *
+ * @author angelotefic
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveSaleRepository {
+
+    private static final String SELECT = "SELECT s.id, s.quantity, s.price, s.sale_date,"
+            + " p.id AS product_id, p.name AS product_name, p.price AS product_price, p.stock AS product_stock,"
+            + " c.id AS client_id, c.name AS client_name, c.surname AS client_surname, c.email AS client_email,"
+            + " c.phone AS client_phone, c.address AS client_address,"
+            + " (SELECT GROUP_CONCAT(pm.pay_method_id) FROM pay_methods pm WHERE pm.id = c.id) AS client_pay_methods"
+            + " FROM sale s JOIN product p ON p.id = s.product_id JOIN client c ON c.id = s.client_id";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveSaleRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Sale> findById(Long id) {
+        return databaseClient.sql(SELECT + " WHERE s.id = :id")
+                .bind("id", id)
+                .map((row, metadata) -> toSale(row))
+                .one();
+    }
+
+    /**
+     * The sales of a product in id order, read as they are requested
+     *
+     * @param productId the product id
+     * @return the sales of the product
+     */
+    public Flux<Sale> findByProductId(Long productId) {
+        return databaseClient.sql(SELECT + " WHERE s.product_id = :productId ORDER BY s.id")
+                .bind("productId", productId)
+                .map((row, metadata) -> toSale(row))
+                .all();
+    }
+
+    /**
+     * The sales of a client in id order, read as they are requested
+     *
+     * @param clientId the client id
+     * @return the sales of the client
+     */
+    public Flux<Sale> findByClientId(Long clientId) {
+        return databaseClient.sql(SELECT + " WHERE s.client_id = :clientId ORDER BY s.id")
+                .bind("clientId", clientId)
+                .map((row, metadata) -> toSale(row))
+                .all();
+    }
+
+    private static Sale toSale(Row row) {
+        var sale = new Sale(ReactiveProductRepository.toProduct(row, "product_"), toClient(row),
+                row.get("quantity", Integer.class), ReactiveProductRepository.toFloat(row.get("price")),
+                row.get("sale_date", LocalDateTime.class));
+        sale.setId(row.get("id", Long.class));
+        return sale;
+    }
+
+    private static Client toClient(Row row) {
+        var client = new Client(row.get("client_name", String.class), row.get("client_surname", String.class),
+                row.get("client_email", String.class), row.get("client_phone", String.class),
+                row.get("client_address", String.class), payMethods(row.get("client_pay_methods", String.class)));
+        client.setId(row.get("client_id", Long.class));
+        return client;
+    }
+
+    private static List<Long> payMethods(String concatenated) {
+        List<Long> payMethods = new ArrayList<>();
+        if (concatenated != null) {
+            for (String payMethod : concatenated.split(",")) {
+                payMethods.add(Long.valueOf(payMethod));
+            }
+        }
+        return payMethods;
+    }
+}
@@ -2,10 +2,33 @@ package es.udc.fic.csi.baserest.repository;
 
 import es.udc.fic.csi.baserest.entity.Sale;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface SaleRepository extends JpaRepository<Sale, Long> {
     List<Sale> findByProductId(Long productId);
     List<Sale> findByClientId(Long clientId);
+
+    /**
+     * Stream the sales of a product in id order, with their product and client
+     * fetched in the same query. Must be consumed inside a transaction.
+     *
+     * @param productId the product id
+     * @return the sales of the product
+     */
+    @Query("SELECT s FROM Sale s JOIN FETCH s.product JOIN FETCH s.client WHERE s.product.id = :productId ORDER BY s.id")
+    Stream<Sale> streamByProductId(@Param("productId") Long productId);
+
+    /**
+     * Stream the sales of a client in id order, with their product and client
+     * fetched in the same query. Must be consumed inside a transaction.
+     *
+     * @param clientId the client id
+     * @return the sales of the client
+     */
+    @Query("SELECT s FROM Sale s JOIN FETCH s.product JOIN FETCH s.client WHERE s.client.id = :clientId ORDER BY s.id")
+    Stream<Sale> streamByClientId(@Param("clientId") Long clientId);
 }
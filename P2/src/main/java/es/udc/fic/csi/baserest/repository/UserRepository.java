@@ -2,8 +2,12 @@ package es.udc.fic.csi.baserest.repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import es.udc.fic.csi.baserest.entity.User;
@@ -46,4 +50,55 @@ public interface UserRepository extends JpaRepository<User, Long> {
    */
   List<User> findByNameAndAgeGreaterThan(String name, Integer age);
 
+  /**
+   * Find the users whose id follows the given cursor, in id order
+   * 
+   * @param id       the last id already seen
+   * @param pageable the maximum number of users to retrieve
+   * @return the next users
+   */
+  List<User> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+  /**
+   * Stream the users whose id follows the given cursor, in id order. Must be
+   * consumed inside a transaction.
+   * 
+   * @param id the last id already seen
+   * @return the users
+   */
+  Stream<User> streamByIdGreaterThanOrderByIdAsc(Long id);
+
+  /**
+   * Find the users older than the supplied age that follow the given cursor,
+   * in (age, id) order. Every page is a range scan of the (age, id) index
+   * starting at the cursor.
+   * 
+   * @param olderThan the exclusive lower bound of the age
+   * @param age       the age of the last user already seen
+   * @param id        the id of the last user already seen
+   * @param pageable  the maximum number of users to retrieve
+   * @return the next users
+   */
+  @Query("SELECT u FROM User u WHERE u.age > :olderThan AND u.age >= :age AND (u.age > :age OR u.id > :id)"
+      + " ORDER BY u.age, u.id")
+  List<User> findByAgeGreaterThanAfter(@Param("olderThan") Integer olderThan, @Param("age") Integer age,
+      @Param("id") Long id, Pageable pageable);
+
+  /**
+   * Count the users with age greater than the provided value, from the age index
+   * 
+   * @param age the age
+   * @return the number of users
+   */
+  long countByAgeGreaterThan(Integer age);
+
+  /**
+   * Count the users with the supplied name that are older than the supplied age
+   * 
+   * @param name the user name
+   * @param age  the user age
+   * @return the number of users
+   */
+  long countByNameAndAgeGreaterThan(String name, Integer age);
+
 }
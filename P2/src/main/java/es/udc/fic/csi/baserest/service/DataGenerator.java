@@ -0,0 +1,348 @@
+package es.udc.fic.csi.baserest.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Fills the database with synthetic products, clients, employees and sales.
+ *
+ * Runs at startup with the `generate-data` profile, usually together with
+ * the `h2-disk` persistence profile. Rows are appended after the existing
+ * ones, with ids assigned here, and written with JDBC batch inserts, one
+ * transaction per chunk, by several threads. Every row is generated from its
+ * own random generator, seeded from `generator.seed`, the table and the row
+ * number, so the data is the same whatever the number of threads.
+ *
+ * - Clients have up to three distinct pay methods.
+ * - Employees form a tree under a single head: one manager per department
+ *   right below it, and then about five reports per supervisor. Employees
+ *   belong to the department of their supervisor.
+ * - Sales follow a Zipf distribution over the products, so that a few hot
+ *   products get most of them.
+ *
+ * @author angelotefic
+ */
+@Component
+@Profile("generate-data")
+public class DataGenerator implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataGenerator.class);
+
+    private static final String INSERT_PRODUCT = "INSERT INTO product (id, name, price, stock) VALUES (?, ?, ?, ?)";
+
+    private static final String INSERT_CLIENT = "INSERT INTO client (id, name, surname, email, phone, address) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_PAY_METHOD = "INSERT INTO pay_methods (id, pay_method_id) VALUES (?, ?)";
+
+    private static final String INSERT_EMPLOYEE = "INSERT INTO employee (id, name, address, age, salary, nss, department_id, id_supervisor) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_SALE = "INSERT INTO sale (id, product_id, client_id, quantity, price, sale_date) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String[] FIRST_NAMES = { "Ana", "Carlos", "Lucía", "Javier", "María", "Pablo", "Laura", "Diego",
+            "Sara", "Manuel", "Elena", "Hugo", "Paula", "Daniel", "Marta", "Adrián" };
+
+    private static final String[] SURNAMES = { "García", "Fernández", "González", "Rodríguez", "López", "Martínez",
+            "Sánchez", "Pérez", "Gómez", "Martín", "Iglesias", "Vázquez", "Castro", "Otero", "Rey", "Varela" };
+
+    private static final int PAY_METHODS = 10;
+
+    private static final LocalDateTime FIRST_SALE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final long SALE_PERIOD_SECONDS = 365L * 24 * 3600;
+
+    // Salt of the random generators of every kind of row
+    private static final long PRODUCTS = 1, CLIENTS = 2, CLIENT_PAY_METHODS = 3, EMPLOYEES = 4, EMPLOYEE_TREE = 5, SALES = 6;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DepartmentCache departmentCache;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final TransactionTemplate transaction;
+
+    private final long seed;
+
+    private final long products;
+
+    private final long clients;
+
+    private final long employees;
+
+    private final long sales;
+
+    private final int departments;
+
+    private final double skew;
+
+    private final int chunkSize;
+
+    private final ForkJoinPool pool;
+
+    @Autowired
+    public DataGenerator(JdbcTemplate jdbcTemplate, DepartmentCache departmentCache,
+                         EntityManagerFactory entityManagerFactory, PlatformTransactionManager transactionManager,
+                         @Value("${generator.seed:42}") long seed,
+                         @Value("${generator.products:100000}") long products,
+                         @Value("${generator.clients:100000}") long clients,
+                         @Value("${generator.employees:100000}") long employees,
+                         @Value("${generator.sales:1000000}") long sales,
+                         @Value("${generator.departments:20}") int departments,
+                         @Value("${generator.skew:1.0}") double skew,
+                         @Value("${generator.chunk-size:10000}") int chunkSize,
+                         @Value("${generator.parallelism:0}") int parallelism) {
+        if (departments < 1 || skew <= 0 || chunkSize < 1) {
+            throw new IllegalArgumentException("At least one department, a positive skew and chunk size are required");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.departmentCache = departmentCache;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.seed = seed;
+        this.products = products;
+        this.clients = clients;
+        this.employees = employees;
+        this.sales = sales;
+        this.departments = departments;
+        this.skew = skew;
+        this.chunkSize = chunkSize;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException, ExecutionException {
+        try {
+            generate();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Generate all the rows
+     */
+    public void generate() throws InterruptedException, ExecutionException {
+        logger.info("Generating {} products, {} clients, {} employees and {} sales with seed {}",
+                products, clients, employees, sales, seed);
+        long start = System.nanoTime();
+
+        long firstProduct = maxId("product") + 1;
+        insert("product", INSERT_PRODUCT, products, i -> product(firstProduct, i));
+
+        long firstClient = maxId("client") + 1;
+        insert("client", INSERT_CLIENT, clients, i -> client(firstClient, i));
+        insert("pay_methods", INSERT_PAY_METHOD, clients, i -> payMethods(firstClient, i));
+
+        int[] departmentIds = new int[departments];
+        for (int d = 0; d < departments; d++) {
+            departmentIds[d] = departmentCache.intern("Department " + (d + 1));
+        }
+        long firstEmployee = maxId("employee") + 1;
+        long firstNss = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(nss), 0) FROM employee", Long.class) + 1;
+        // The chunk of a supervisor may be written after the chunks of its reports
+        jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        try {
+            insert("employee", INSERT_EMPLOYEE, employees, i -> employee(firstEmployee, firstNss, departmentIds, i));
+        } finally {
+            jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+
+        if (products > 0 && clients > 0) {
+            ZipfSampler hotProducts = new ZipfSampler(products, skew);
+            long firstSale = maxId("sale") + 1;
+            insert("sale", INSERT_SALE, sales, i -> sale(firstSale, firstProduct, firstClient, hotProducts, i));
+        }
+
+        restartIdentity("product");
+        restartIdentity("sale");
+        restartSequence("hibernate_sequence", "client");
+        restartSequence("employee_seq", "employee");
+        // Written behind the back of the second-level and query cache
+        entityManagerFactory.getCache().unwrap(Cache.class).evictAllRegions();
+        logger.info("Data generated in {} s", (System.nanoTime() - start) / 1_000_000_000);
+    }
+
+    /**
+     * Write `count` rows, chunk by chunk, in parallel
+     *
+     * @param rows the parameters of the statements of row i, any number of them
+     */
+    private void insert(String table, String sql, long count, LongFunction<List<Object[]>> rows)
+            throws InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        long chunks = (count + chunkSize - 1) / chunkSize;
+        pool.submit(() -> LongStream.range(0, chunks).parallel().forEach(chunk -> {
+            List<Object[]> batch = new ArrayList<>(chunkSize);
+            for (long i = chunk * chunkSize; i < Math.min(count, (chunk + 1) * chunkSize); i++) {
+                batch.addAll(rows.apply(i));
+            }
+            transaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(sql, batch));
+        })).get();
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        logger.info("Generated {} {} rows in {} ms ({} rows/s)", count, table, elapsedMillis, count * 1000 / elapsedMillis);
+    }
+
+    private SplittableRandom random(long table, long row) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + table * 0xC2B2AE3D27D4EB4FL + row);
+    }
+
+    private List<Object[]> product(long first, long i) {
+        SplittableRandom random = random(PRODUCTS, i);
+        return List.<Object[]>of(new Object[] { first + i, "Product " + (first + i), price(random), random.nextInt(1_000) });
+    }
+
+    // Prices between 0.50 and 500, most of them low
+    private static float price(SplittableRandom random) {
+        return Math.round(Math.exp(random.nextDouble(Math.log(0.5), Math.log(500))) * 100) / 100f;
+    }
+
+    // The price drawn for product i, which is the first value drawn
+    private float productPrice(long i) {
+        return price(random(PRODUCTS, i));
+    }
+
+    private List<Object[]> client(long first, long i) {
+        SplittableRandom random = random(CLIENTS, i);
+        long id = first + i;
+        String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String surname = SURNAMES[random.nextInt(SURNAMES.length)];
+        return List.<Object[]>of(new Object[] { id, name, surname, "client" + id + "@example.com",
+                "+34 6" + String.format("%08d", random.nextInt(100_000_000)), "Street " + random.nextInt(1, 500) + ", " + id });
+    }
+
+    private List<Object[]> payMethods(long first, long i) {
+        SplittableRandom random = random(CLIENT_PAY_METHODS, i);
+        List<Object[]> methods = new ArrayList<>(3);
+        int count = random.nextInt(4);
+        int firstMethod = random.nextInt(PAY_METHODS);
+        for (int m = 0; m < count; m++) {
+            methods.add(new Object[] { first + i, (long) (firstMethod + m) % PAY_METHODS + 1 });
+        }
+        return methods;
+    }
+
+    /**
+     * Supervisor of employee i (0 based): none for the head, the head for the
+     * department managers, and an earlier employee for everyone else
+     */
+    private long supervisorOf(long i) {
+        if (i == 0) {
+            return -1;
+        }
+        if (i <= departments) {
+            return 0;
+        }
+        // Between i/8 and i/3: about five reports per supervisor, and a depth logarithmic in the size
+        long lowest = Math.max(1, i / 8);
+        long highest = Math.max(lowest + 1, i / 3);
+        return random(EMPLOYEE_TREE, i).nextLong(lowest, highest);
+    }
+
+    private int departmentOf(long i) {
+        while (i > departments) {
+            i = supervisorOf(i);
+        }
+        return i == 0 ? 0 : (int) i - 1;
+    }
+
+    private List<Object[]> employee(long first, long firstNss, int[] departmentIds, long i) {
+        SplittableRandom random = random(EMPLOYEES, i);
+        String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + SURNAMES[random.nextInt(SURNAMES.length)];
+        int age = random.nextInt(20, 66);
+        // Managers earn more, and so does experience
+        double base = i <= departments ? 5_000 : 1_300;
+        double salary = Math.round((base + (age - 20) * 40 + random.nextDouble(0, 1_500)) * 100) / 100.0;
+        long supervisor = supervisorOf(i);
+        return List.<Object[]>of(new Object[] { first + i, name, "Street " + random.nextInt(1, 500) + ", " + (first + i),
+                age, salary, firstNss + i, departmentIds[departmentOf(i)], supervisor < 0 ? null : first + supervisor });
+    }
+
+    private List<Object[]> sale(long first, long firstProduct, long firstClient, ZipfSampler hotProducts, long i) {
+        SplittableRandom random = random(SALES, i);
+        long product = hotProducts.sample(random);
+        int quantity = random.nextInt(1, 6);
+        LocalDateTime date = FIRST_SALE.plusSeconds(random.nextLong(SALE_PERIOD_SECONDS));
+        return List.<Object[]>of(new Object[] { first + i, firstProduct + product, firstClient + random.nextLong(clients),
+                quantity, productPrice(product) * quantity, Timestamp.valueOf(date) });
+    }
+
+    private long maxId(String table) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+    }
+
+    private void restartIdentity(String table) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + (maxId(table) + 1));
+    }
+
+    // Past the ids used, and past a whole block of ids that Hibernate may have already reserved
+    private void restartSequence(String sequence, String table) {
+        var current = jdbcTemplate.queryForMap(
+                "SELECT CURRENT_VALUE, INCREMENT FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?",
+                sequence.toUpperCase());
+        long increment = ((Number) current.get("INCREMENT")).longValue();
+        long next = Math.max(((Number) current.get("CURRENT_VALUE")).longValue(), maxId(table)) + increment + 1;
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + next);
+    }
+
+    /**
+     * Zipf distributed ranks in [0, n): rank k is drawn with a probability
+     * proportional to 1 / (k + 1)^skew. The continuous inverse CDF is used, so
+     * sampling takes constant time and no table.
+     *
+     * Ranks are then scattered over the products with a fixed permutation, so
+     * that the hot products are not simply the first ones.
+     */
+    private static class ZipfSampler {
+
+        private final long n;
+
+        private final double skew;
+
+        private final long stride;
+
+        ZipfSampler(long n, double skew) {
+            this.n = n;
+            this.skew = skew;
+            long stride = 1_000_003;
+            while (gcd(stride, n) != 1) {
+                stride += 2;
+            }
+            this.stride = stride % n;
+        }
+
+        long sample(SplittableRandom random) {
+            double u = random.nextDouble();
+            double x = skew == 1.0
+                    ? Math.exp(u * Math.log(n + 1.0))
+                    : Math.pow(u * (Math.pow(n + 1.0, 1 - skew) - 1) + 1, 1 / (1 - skew));
+            long rank = Math.min(n - 1, Math.max(0, (long) x - 1));
+            return Math.floorMod(rank * stride, n);
+        }
+
+        private static long gcd(long a, long b) {
+            return b == 0 ? a : gcd(b, a % b);
+        }
+    }
+}
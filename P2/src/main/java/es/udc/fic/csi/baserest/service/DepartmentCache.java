@@ -0,0 +1,122 @@
+package es.udc.fic.csi.baserest.service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.udc.fic.csi.baserest.entity.Department;
+import es.udc.fic.csi.baserest.repository.DepartmentRepository;
+
+/**
+ * In-memory, bidirectional name to id map of the department lookup table.
+ *
+ * Departments are never renamed nor deleted, so once a name and its id are
+ * known they are cached for the life of the application. The table is loaded
+ * at startup and any miss falls back to the database. New names are interned
+ * in their own transaction, so the id handed out is committed even if the
+ * transaction of the caller rolls back.
+ *
+ * @author angelotefic
+ */
+@Component
+public class DepartmentCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DepartmentCache.class);
+
+    private final DepartmentRepository departmentRepository;
+
+    private final TransactionTemplate newTransaction;
+
+    private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+
+    private final Map<Integer, String> namesById = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DepartmentCache(DepartmentRepository departmentRepository, PlatformTransactionManager transactionManager) {
+        this.departmentRepository = departmentRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Load every department into the cache
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        departmentRepository.findAll().forEach(this::register);
+        logger.info("Department cache loaded with {} departments", namesById.size());
+    }
+
+    /**
+     * Get the id of a department
+     *
+     * @param name the department name
+     * @return the id, or an empty Optional if there is no department with that name
+     */
+    public Optional<Integer> idOf(String name) {
+        Integer id = idsByName.get(name);
+        if (id != null) {
+            return Optional.of(id);
+        }
+        return departmentRepository.findByName(name).map(this::register);
+    }
+
+    /**
+     * Get the name of a department
+     *
+     * @param id the department id
+     * @return the name, or null if there is no department with that id
+     */
+    public String nameOf(Integer id) {
+        String name = namesById.get(id);
+        if (name != null) {
+            return name;
+        }
+        return departmentRepository.findById(id)
+                .map(department -> {
+                    register(department);
+                    return department.getName();
+                })
+                .orElse(null);
+    }
+
+    /**
+     * Get the id of a department, creating the department if it does not exist
+     *
+     * @param name the department name
+     * @return the id
+     */
+    public int intern(String name) {
+        Integer id = idsByName.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            return idOf(name).orElseGet(() -> {
+                try {
+                    return register(newTransaction.execute(status -> departmentRepository.save(new Department(name))));
+                } catch (DataIntegrityViolationException e) {
+                    // Created by someone else since the lookup
+                    return idOf(name).orElseThrow(() -> e);
+                }
+            });
+        }
+    }
+
+    private Integer register(Department department) {
+        idsByName.put(department.getName(), department.getId());
+        namesById.put(department.getId(), department.getName());
+        return department.getId();
+    }
+}
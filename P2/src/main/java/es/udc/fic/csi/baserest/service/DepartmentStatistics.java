@@ -0,0 +1,308 @@
+package es.udc.fic.csi.baserest.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.udc.fic.csi.baserest.config.RemoteInvalidationEvent;
+import es.udc.fic.csi.baserest.dto.DepartmentStatsDto;
+import es.udc.fic.csi.baserest.entity.Employee;
+import es.udc.fic.csi.baserest.repository.EmployeeRepository;
+
+/**
+ * In-memory headcount and salary statistics per department.
+ *
+ * The accumulators are rebuilt from the employee table at startup and then
+ * kept up to date with the deltas of every employee creation and update, so
+ * the statistics never need a full scan of the table. Deltas are applied once
+ * the surrounding transaction commits, so rolled back changes are not counted.
+ * A transaction carrying deltas cannot commit while a rebuild reads the table,
+ * so its deltas are either part of the rebuilt accumulators or applied to
+ * them afterwards, never both.
+ *
+ * Changes made to the table behind the back of this component (e.g. bulk
+ * deletes) require a call to {@link #rebuild()}. Those of the other instances
+ * of a cluster mark the statistics stale, and they are rebuilt on the next
+ * read.
+ *
+ * @author angelotefic
+ */
+@Component
+public class DepartmentStatistics {
+
+    private static final Logger logger = LoggerFactory.getLogger(DepartmentStatistics.class);
+
+    private final EmployeeRepository employeeRepository;
+
+    private final DepartmentCache departmentCache;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    // By department id, guarded by this
+    private Map<Integer, DepartmentAccumulator> departments = new HashMap<>();
+
+    // Held for reading by the transactions from their commit until their deltas are applied, and for writing
+    // by the rebuilds while they read the table
+    private final ReentrantReadWriteLock commits = new ReentrantReadWriteLock();
+
+    private volatile boolean stale;
+
+    @Autowired
+    public DepartmentStatistics(EmployeeRepository employeeRepository, DepartmentCache departmentCache,
+                                PlatformTransactionManager transactionManager) {
+        this.employeeRepository = employeeRepository;
+        this.departmentCache = departmentCache;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Never joins the transaction that just committed, when rebuilt after it
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Rebuild every accumulator from the employee table
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (commits.getReadHoldCount() > 0) {
+            // Committing deltas of this thread, which could never wait for itself: on the next read
+            stale = true;
+            return;
+        }
+        // Changes made elsewhere from now on mark them stale again
+        stale = false;
+        Map<Integer, DepartmentAccumulator> rebuilt = new HashMap<>();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            // With its own connection already, not to wait for those of the transactions waiting to commit
+            commits.writeLock().lock();
+            try (Stream<Object[]> figures = employeeRepository.streamDepartmentFigures()) {
+                figures.forEach(row -> rebuilt
+                        .computeIfAbsent((Integer) row[0], department -> new DepartmentAccumulator())
+                        .add((Double) row[1], (Integer) row[2]));
+                synchronized (this) {
+                    departments = rebuilt;
+                }
+            } finally {
+                commits.writeLock().unlock();
+            }
+        });
+        logger.info("Department statistics rebuilt for {} departments", rebuilt.size());
+    }
+
+    /**
+     * Account for a new employee
+     *
+     * @param created the created employee
+     */
+    public void employeeCreated(Employee created) {
+        Figures after = Figures.of(created);
+        applyAfterCommit(() -> apply(null, after));
+    }
+
+    /**
+     * Account for a batch of new employees
+     *
+     * @param created the figures of the created employees
+     */
+    public void employeesCreated(Collection<Figures> created) {
+        applyAfterCommit(() -> created.forEach(after -> apply(null, after)));
+    }
+
+    /**
+     * Account for an employee update, moving it between departments if needed
+     *
+     * @param before  the figures of the employee before the update
+     * @param updated the updated employee
+     */
+    public void employeeUpdated(Figures before, Employee updated) {
+        Figures after = Figures.of(updated);
+        applyAfterCommit(() -> apply(before, after));
+    }
+
+    /**
+     * Rebuild every accumulator once the surrounding transaction commits, for
+     * set-based changes whose rows are not known one by one
+     */
+    public void rebuildAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuild();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                rebuild();
+            }
+        });
+    }
+
+    /**
+     * Mark the statistics stale when another instance changed the employees
+     *
+     * @param event the entities changed by the other instance
+     */
+    @EventListener
+    public void remoteChange(RemoteInvalidationEvent event) {
+        if (event.entityNames().contains(Employee.class.getName())) {
+            stale = true;
+        }
+    }
+
+    /**
+     * Get the statistics of every department
+     *
+     * @return the statistics by department name, sorted by name
+     */
+    public Map<String, DepartmentStatsDto> getAll() {
+        if (stale) {
+            rebuild();
+        }
+        Map<String, DepartmentStatsDto> stats = new TreeMap<>();
+        synchronized (this) {
+            departments.forEach((department, accumulator) -> stats.put(departmentCache.nameOf(department), accumulator.toDto()));
+        }
+        return stats;
+    }
+
+    /**
+     * Get the statistics of a department
+     *
+     * @param department the department name
+     * @return the statistics, or an empty Optional if the department has no employees
+     */
+    public Optional<DepartmentStatsDto> get(String department) {
+        if (stale) {
+            rebuild();
+        }
+        synchronized (this) {
+            return departmentCache.idOf(department).map(departments::get).map(DepartmentAccumulator::toDto);
+        }
+    }
+
+    private synchronized void apply(Figures before, Figures after) {
+        if (before != null) {
+            DepartmentAccumulator accumulator = departments.get(before.department());
+            if (accumulator != null) {
+                accumulator.remove(before.salary(), before.age());
+                if (accumulator.isEmpty()) {
+                    departments.remove(before.department());
+                }
+            }
+        }
+        if (after != null) {
+            departments.computeIfAbsent(after.department(), department -> new DepartmentAccumulator())
+                    .add(after.salary(), after.age());
+        }
+    }
+
+    private void applyAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            private boolean committing;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commits.readLock().lock();
+                committing = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                try {
+                    action.run();
+                } finally {
+                    release();
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                // The commit failed
+                release();
+            }
+
+            private void release() {
+                if (committing) {
+                    committing = false;
+                    commits.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    /**
+     * The employee attributes the statistics depend on
+     *
+     * @param department the department id
+     * @param salary     the salary
+     * @param age        the age
+     */
+    public record Figures(Integer department, double salary, int age) {
+
+        public static Figures of(Employee employee) {
+            return new Figures(employee.getDepartment().getId(), employee.getSalary(), employee.getAge());
+        }
+    }
+
+    /**
+     * Running totals of a single department. Not thread safe.
+     */
+    private static class DepartmentAccumulator {
+
+        private long headcount;
+        private double totalSalary;
+        private final TreeMap<Integer, Long> ageDistribution = new TreeMap<>();
+        private final SalarySketch salaries = new SalarySketch();
+
+        void add(double salary, int age) {
+            headcount++;
+            totalSalary += salary;
+            ageDistribution.merge(decadeOf(age), 1L, Long::sum);
+            salaries.add(salary);
+        }
+
+        void remove(double salary, int age) {
+            headcount--;
+            totalSalary -= salary;
+            ageDistribution.computeIfPresent(decadeOf(age), (decade, count) -> count > 1 ? count - 1 : null);
+            salaries.remove(salary);
+        }
+
+        boolean isEmpty() {
+            return headcount <= 0;
+        }
+
+        DepartmentStatsDto toDto() {
+            Map<String, Double> percentiles = new LinkedHashMap<>();
+            percentiles.put("p50", salaries.quantile(0.5));
+            percentiles.put("p90", salaries.quantile(0.9));
+            percentiles.put("p99", salaries.quantile(0.99));
+            return new DepartmentStatsDto(headcount, totalSalary, totalSalary / headcount,
+                    salaries.min(), salaries.max(), percentiles, new TreeMap<>(ageDistribution));
+        }
+
+        private static int decadeOf(int age) {
+            return age / 10 * 10;
+        }
+    }
+}
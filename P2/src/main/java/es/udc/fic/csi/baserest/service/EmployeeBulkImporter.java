@@ -0,0 +1,206 @@
+package es.udc.fic.csi.baserest.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import es.udc.fic.csi.baserest.conversors.EmployeeConversors;
+import es.udc.fic.csi.baserest.dto.BulkImportResultDto;
+import es.udc.fic.csi.baserest.dto.EmployeeImportDto;
+import es.udc.fic.csi.baserest.entity.Department;
+import es.udc.fic.csi.baserest.entity.Employee;
+import es.udc.fic.csi.baserest.repository.EmployeeRepository;
+
+/**
+ * Imports a whole org file in a single transaction.
+ *
+ * Entries are ordered so that every supervisor is inserted before its
+ * reports, whatever the order of the file. Supervisors are never loaded:
+ * stored ones are checked with a query per thousand ids and referenced through
+ * proxies, and the ones in the same file are resolved by nss to the ids
+ * assigned during the import. Rows are inserted in JDBC batches and the
+ * persistence context is cleared after each batch to keep memory flat.
+ *
+ * @author angelotefic
+ */
+@Component
+public class EmployeeBulkImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmployeeBulkImporter.class);
+
+    /**
+     * Values bound per query when looking up the stored supervisors and nss
+     */
+    private static final int LOOKUP_CHUNK = 1_000;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final EmployeeRepository employeeRepository;
+
+    private final DepartmentStatistics departmentStatistics;
+
+    private final DepartmentCache departmentCache;
+
+    private final int batchSize;
+
+    @Autowired
+    public EmployeeBulkImporter(EmployeeRepository employeeRepository, DepartmentStatistics departmentStatistics,
+                                DepartmentCache departmentCache,
+                                @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.employeeRepository = employeeRepository;
+        this.departmentStatistics = departmentStatistics;
+        this.departmentCache = departmentCache;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Import the given employees
+     *
+     * Must be called inside a transaction. Entries are validated before anything
+     * is written, so an invalid import leaves the transaction untouched.
+     *
+     * @param employees the employees to import, in any order
+     * @return the number of imported employees and the throughput
+     * @throws IllegalArgumentException if an entry is invalid, a nss is
+     *                                  already stored, a supervisor does not
+     *                                  exist or supervisors form a cycle
+     */
+    public BulkImportResultDto importEmployees(List<EmployeeImportDto> employees) {
+        long start = System.nanoTime();
+
+        List<EmployeeImportDto> ordered = supervisorsFirst(employees);
+        checkStoredSupervisors(ordered);
+        checkStoredNss(ordered);
+
+        Map<Integer, Long> idsByNss = new HashMap<>();
+        List<DepartmentStatistics.Figures> figures = new ArrayList<>(ordered.size());
+        int pending = 0;
+        for (EmployeeImportDto dto : ordered) {
+            Employee supervisor = null;
+            if (dto.supervisorNss() != null) {
+                supervisor = em.getReference(Employee.class, idsByNss.get(dto.supervisorNss()));
+            } else if (dto.idSupervisor() != null) {
+                supervisor = em.getReference(Employee.class, dto.idSupervisor());
+            }
+
+            Department department = EmployeeConversors.toDepartment(dto.department(), em, departmentCache);
+            Employee employee = EmployeeConversors.toEmployee(dto, supervisor, department);
+            em.persist(employee);
+            idsByNss.put(dto.nss(), employee.getId());
+            figures.add(DepartmentStatistics.Figures.of(employee));
+
+            if (++pending == batchSize) {
+                em.flush();
+                em.clear();
+                pending = 0;
+            }
+        }
+        em.flush();
+        em.clear();
+        departmentStatistics.employeesCreated(figures);
+
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        double rowsPerSecond = ordered.size() * 1000.0 / elapsedMillis;
+        logger.info("Imported {} employees in {} ms ({} rows/s)", ordered.size(), elapsedMillis, Math.round(rowsPerSecond));
+        return new BulkImportResultDto(ordered.size(), elapsedMillis, rowsPerSecond);
+    }
+
+    /**
+     * Topologically sort the entries so that in-file supervisors come before
+     * their reports (Kahn's algorithm, linear in the number of entries)
+     */
+    private static List<EmployeeImportDto> supervisorsFirst(List<EmployeeImportDto> employees) {
+        Map<Integer, EmployeeImportDto> byNss = new HashMap<>();
+        for (EmployeeImportDto dto : employees) {
+            if (dto.nss() == null) {
+                throw new IllegalArgumentException("Every employee must have a nss");
+            }
+            if (dto.department() == null) {
+                throw new IllegalArgumentException("Employee " + dto.nss() + " has no department");
+            }
+            if (dto.idSupervisor() != null && dto.supervisorNss() != null) {
+                throw new IllegalArgumentException("Employee " + dto.nss() + " has both a stored and an imported supervisor");
+            }
+            if (byNss.put(dto.nss(), dto) != null) {
+                throw new IllegalArgumentException("Duplicated nss " + dto.nss());
+            }
+        }
+
+        Map<Integer, List<EmployeeImportDto>> reports = new HashMap<>();
+        Deque<EmployeeImportDto> ready = new ArrayDeque<>();
+        for (EmployeeImportDto dto : employees) {
+            if (dto.supervisorNss() == null) {
+                ready.add(dto);
+            } else if (byNss.containsKey(dto.supervisorNss())) {
+                reports.computeIfAbsent(dto.supervisorNss(), nss -> new ArrayList<>()).add(dto);
+            } else {
+                throw new IllegalArgumentException("Supervisor with nss " + dto.supervisorNss() + " is not in the import");
+            }
+        }
+
+        List<EmployeeImportDto> ordered = new ArrayList<>(employees.size());
+        while (!ready.isEmpty()) {
+            EmployeeImportDto dto = ready.poll();
+            ordered.add(dto);
+            ready.addAll(reports.getOrDefault(dto.nss(), List.of()));
+        }
+        if (ordered.size() != employees.size()) {
+            throw new IllegalArgumentException("Supervisors form a cycle");
+        }
+        return ordered;
+    }
+
+    private void checkStoredSupervisors(Collection<EmployeeImportDto> employees) {
+        Set<Long> ids = employees.stream()
+                .map(EmployeeImportDto::idSupervisor)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(HashSet::new));
+        if (ids.isEmpty()) {
+            return;
+        }
+        ids.removeAll(lookUp(List.copyOf(ids), employeeRepository::findExistingIds));
+        if (!ids.isEmpty()) {
+            throw new IllegalArgumentException("Supervisors not found: " + ids);
+        }
+    }
+
+    private void checkStoredNss(Collection<EmployeeImportDto> employees) {
+        Set<Integer> stored = lookUp(employees.stream()
+                .map(EmployeeImportDto::nss)
+                .toList(), employeeRepository::findExistingNss);
+        if (!stored.isEmpty()) {
+            throw new IllegalArgumentException("Employees already stored with nss: " + stored);
+        }
+    }
+
+    /**
+     * The values a lookup finds, {@value #LOOKUP_CHUNK} per query, so that no
+     * query binds the whole file
+     */
+    private static <T> Set<T> lookUp(List<T> values, Function<Collection<T>, Set<T>> lookup) {
+        Set<T> found = new HashSet<>();
+        for (int from = 0; from < values.size(); from += LOOKUP_CHUNK) {
+            found.addAll(lookup.apply(values.subList(from, Math.min(values.size(), from + LOOKUP_CHUNK))));
+        }
+        return found;
+    }
+}
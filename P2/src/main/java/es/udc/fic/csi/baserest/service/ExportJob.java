@@ -0,0 +1,252 @@
+package es.udc.fic.csi.baserest.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.udc.fic.csi.baserest.dto.ExportDto;
+
+/**
+ * Export of every table to gzip compressed, newline delimited JSON files.
+ *
+ * Each table is read by a single forward-only query, fetching
+ * `export.fetch-size` rows at a time, and every row is written as soon as it
+ * is read, so no table is ever held on the heap. All the tables of an export
+ * are read in one read-only transaction, serializable because H2 only keeps
+ * one snapshot across statements at that level (without blocking writers), so
+ * the files of an export are consistent with each other. The
+ * files of an export are written to `export.directory/<id>` with a `.part`
+ * suffix and renamed once complete, so only finished files are served. The
+ * last `export.keep` exports are kept, older ones are deleted.
+ *
+ * Exports are executed one at a time in a background thread.
+ *
+ * @author angelotefic
+ */
+@Component
+public class ExportJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportJob.class);
+
+    public static final List<String> TABLES = List.of("user", "department", "employee", "client", "pay_methods",
+            "product", "sale", "payroll_run", "payroll_entry");
+
+    public static final String EXTENSION = ".ndjson.gz";
+
+    private static final String PART = ".part";
+
+    private static final int GZIP_BUFFER = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate snapshot;
+
+    private final ObjectMapper objectMapper;
+
+    private final Path directory;
+
+    private final int keep;
+
+    // Exports started and not finished yet
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    private long lastId;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "export-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public ExportJob(DataSource dataSource, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                     @Value("${export.directory}") Path directory,
+                     @Value("${export.fetch-size:1000}") int fetchSize,
+                     @Value("${export.keep:7}") int keep) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.snapshot = new TransactionTemplate(transactionManager);
+        this.snapshot.setReadOnly(true);
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        this.objectMapper = objectMapper;
+        this.directory = directory.toAbsolutePath();
+        this.keep = keep;
+    }
+
+    /**
+     * Start an export of every table in the background
+     *
+     * @return the export, running
+     */
+    public synchronized ExportDto start() {
+        // Ids are the start time, so they sort as the exports were started
+        long id = Math.max(System.currentTimeMillis(), lastId + 1);
+        lastId = id;
+        pending.add(id);
+        runner.submit(() -> execute(id));
+        return new ExportDto(id, "RUNNING", Map.of());
+    }
+
+    /**
+     * @param id the export id
+     * @return the export, or an empty Optional if it does not exist
+     */
+    public Optional<ExportDto> get(long id) {
+        boolean running = pending.contains(id);
+        if (!running && !Files.isDirectory(exportDirectory(id))) {
+            return Optional.empty();
+        }
+        Map<String, Long> files = new LinkedHashMap<>();
+        for (String table : TABLES) {
+            file(id, table).ifPresent(file -> files.put(table, file.toFile().length()));
+        }
+        String status = running ? "RUNNING" : files.size() == TABLES.size() ? "COMPLETED" : "FAILED";
+        return Optional.of(new ExportDto(id, status, files));
+    }
+
+    /**
+     * @param id    the export id
+     * @param table the table
+     * @return the finished file of the table, or an empty Optional if the table
+     *         is not exported or not yet
+     */
+    public Optional<Path> file(long id, String table) {
+        if (!TABLES.contains(table)) {
+            return Optional.empty();
+        }
+        Path file = exportDirectory(id).resolve(table + EXTENSION);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    /**
+     * Export every table, in the calling thread
+     *
+     * @param id the export id
+     */
+    void execute(long id) {
+        long start = System.nanoTime();
+        LongAdder rows = new LongAdder();
+        try {
+            Path export = Files.createDirectories(exportDirectory(id));
+            snapshot.executeWithoutResult(status -> {
+                for (String table : TABLES) {
+                    try {
+                        rows.add(exportTable(table, export.resolve(table + EXTENSION)));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+            logger.info("Export {} completed: {} rows in {} ms", id, rows, (System.nanoTime() - start) / 1_000_000);
+            deleteOldExports();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Export {} failed after {} rows", id, rows, e);
+        } finally {
+            pending.remove(id);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    private Path exportDirectory(long id) {
+        return directory.resolve(Long.toString(id));
+    }
+
+    private long exportTable(String table, Path file) throws IOException {
+        Path part = file.resolveSibling(file.getFileName() + PART);
+        try {
+            long rows;
+            try (JsonGenerator generator = objectMapper.getFactory()
+                    .createGenerator(new GZIPOutputStream(Files.newOutputStream(part), GZIP_BUFFER))) {
+                generator.setRootValueSeparator(null);
+                rows = jdbcTemplate.query("SELECT * FROM " + table, resultSet -> {
+                    try {
+                        return write(resultSet, generator);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            Files.move(part, file, StandardCopyOption.ATOMIC_MOVE);
+            return rows;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+    }
+
+    // One JSON object per row, with the lower case column names as fields
+    private static long write(ResultSet resultSet, JsonGenerator generator) throws SQLException, IOException {
+        ResultSetMetaData metadata = resultSet.getMetaData();
+        String[] columns = new String[metadata.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = metadata.getColumnLabel(i + 1).toLowerCase(Locale.ROOT);
+        }
+        long rows = 0;
+        while (resultSet.next()) {
+            generator.writeStartObject();
+            for (int i = 0; i < columns.length; i++) {
+                Object value = resultSet.getObject(i + 1);
+                generator.writeFieldName(columns[i]);
+                generator.writeObject(value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : value);
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            rows++;
+        }
+        return rows;
+    }
+
+    private void deleteOldExports() throws IOException {
+        List<Path> exports;
+        try (Stream<Path> listed = Files.list(directory)) {
+            exports = listed.filter(path -> path.getFileName().toString().matches("\\d+") && Files.isDirectory(path))
+                    .sorted(Comparator.comparingLong(path -> Long.parseLong(path.getFileName().toString())))
+                    .toList();
+        }
+        for (Path export : exports.subList(0, Math.max(0, exports.size() - keep))) {
+            if (!pending.contains(Long.parseLong(export.getFileName().toString()))) {
+                FileSystemUtils.deleteRecursively(export);
+            }
+        }
+    }
+}
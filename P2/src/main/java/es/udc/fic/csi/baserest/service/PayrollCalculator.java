@@ -0,0 +1,52 @@
+package es.udc.fic.csi.baserest.service;
+
+/**
+ * Monthly payroll figures from an annual salary.
+ *
+ * The gross amount is a twelfth of the annual salary. The net amount deducts
+ * the employee social security contribution and an income tax withholding
+ * computed with progressive brackets over the annual salary.
+ */
+public class PayrollCalculator {
+
+    /** Employee social security contribution, as a fraction of the gross amount */
+    static final double SOCIAL_SECURITY_RATE = 0.0635;
+
+    // Upper limit of each bracket and its marginal rate, the last one is unbounded
+    private static final double[] BRACKET_LIMITS = { 12_450, 20_200, 35_200, 60_000, 300_000, Double.MAX_VALUE };
+    private static final double[] BRACKET_RATES = { 0.19, 0.24, 0.30, 0.37, 0.45, 0.47 };
+
+    private PayrollCalculator() {
+    }
+
+    /**
+     * Monthly gross amount
+     *
+     * @param annualSalary the annual salary
+     * @return the monthly gross amount
+     */
+    public static double gross(double annualSalary) {
+        return round(annualSalary / 12);
+    }
+
+    /**
+     * Monthly net amount
+     *
+     * @param annualSalary the annual salary
+     * @return the monthly net amount
+     */
+    public static double net(double annualSalary) {
+        double annualTax = 0;
+        double lowerLimit = 0;
+        for (int i = 0; i < BRACKET_LIMITS.length && annualSalary > lowerLimit; i++) {
+            annualTax += (Math.min(annualSalary, BRACKET_LIMITS[i]) - lowerLimit) * BRACKET_RATES[i];
+            lowerLimit = BRACKET_LIMITS[i];
+        }
+        double gross = annualSalary / 12;
+        return round(gross - gross * SOCIAL_SECURITY_RATE - annualTax / 12);
+    }
+
+    private static double round(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+}
@@ -0,0 +1,185 @@
+package es.udc.fic.csi.baserest.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.udc.fic.csi.baserest.entity.PayrollRun;
+import es.udc.fic.csi.baserest.repository.EmployeeRepository;
+import es.udc.fic.csi.baserest.repository.PayrollRunRepository;
+
+/**
+ * Month-end payroll over every employee.
+ *
+ * A run reads employees in id ordered chunks, computes the payroll of each
+ * chunk on a fork-join pool and writes the {@link es.udc.fic.csi.baserest.entity.PayrollEntry}
+ * rows with a JDBC batch insert.
+ * The entries of a chunk and the checkpoint (the last processed id) are
+ * committed in the same transaction, so a run interrupted by a crash is
+ * resumed from its checkpoint at the next startup without duplicating or
+ * skipping employees.
+ *
+ * Runs are executed one at a time in a background thread.
+ */
+@Component
+public class PayrollJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayrollJob.class);
+
+    private static final String INSERT_ENTRY = "INSERT INTO payroll_entry (run_id, employee_id, gross, net) VALUES (?, ?, ?, ?)";
+
+    private final EmployeeRepository employeeRepository;
+
+    private final PayrollRunRepository payrollRunRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transaction;
+
+    private final int chunkSize;
+
+    private final ForkJoinPool computePool;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "payroll-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public PayrollJob(EmployeeRepository employeeRepository, PayrollRunRepository payrollRunRepository,
+                      JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                      @Value("${payroll.chunk-size:5000}") int chunkSize,
+                      @Value("${payroll.parallelism:0}") int parallelism) {
+        this.employeeRepository = employeeRepository;
+        this.payrollRunRepository = payrollRunRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.computePool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Start the payroll run of a period in the background, or resume it if it
+     * was interrupted
+     *
+     * @param period the period, e.g. "2025-05"
+     * @return the run, or an empty Optional if the period was already completed
+     */
+    public synchronized Optional<PayrollRun> start(String period) {
+        PayrollRun run = payrollRunRepository.findByPeriod(period)
+                .orElseGet(() -> payrollRunRepository.save(new PayrollRun(period, LocalDateTime.now())));
+        if (run.getStatus() == PayrollRun.Status.COMPLETED) {
+            return Optional.empty();
+        }
+        if (run.getStatus() == PayrollRun.Status.FAILED) {
+            run.setStatus(PayrollRun.Status.RUNNING);
+            run = payrollRunRepository.save(run);
+        }
+        Long runId = run.getId();
+        runner.submit(() -> execute(runId));
+        return Optional.of(run);
+    }
+
+    /**
+     * Resume the runs that were interrupted by a shutdown or a crash
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        for (PayrollRun run : payrollRunRepository.findByStatus(PayrollRun.Status.RUNNING)) {
+            logger.info("Resuming payroll run {} from employee {}", run.getId(), run.getLastProcessedId());
+            runner.submit(() -> execute(run.getId()));
+        }
+    }
+
+    /**
+     * Process a run from its checkpoint to the end, in the calling thread
+     *
+     * @param runId the run id
+     */
+    public void execute(Long runId) {
+        PayrollRun run = payrollRunRepository.findById(runId).orElseThrow();
+        if (run.getStatus() != PayrollRun.Status.RUNNING) {
+            return;
+        }
+        long cursor = run.getLastProcessedId();
+        long processed = run.getProcessed();
+        long previouslyElapsed = run.getElapsedMillis();
+        long start = System.nanoTime();
+
+        try {
+            int read;
+            do {
+                List<Object[]> chunk = employeeRepository.findSalariesAfter(cursor, PageRequest.ofSize(chunkSize));
+                read = chunk.size();
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                List<Object[]> entries = computePool.submit(() -> chunk.parallelStream()
+                        .map(row -> computeEntry(runId, row))
+                        .toList()).get();
+
+                long checkpoint = (Long) chunk.get(chunk.size() - 1)[0];
+                long total = processed + chunk.size();
+                long elapsed = previouslyElapsed + (System.nanoTime() - start) / 1_000_000;
+                transaction.executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate(INSERT_ENTRY, entries);
+                    payrollRunRepository.findById(runId).ifPresent(checkpointed -> {
+                        checkpointed.setLastProcessedId(checkpoint);
+                        checkpointed.setProcessed(total);
+                        checkpointed.setElapsedMillis(elapsed);
+                    });
+                });
+                cursor = checkpoint;
+                processed = total;
+            } while (read == chunkSize);
+
+            finish(runId, PayrollRun.Status.COMPLETED, previouslyElapsed + (System.nanoTime() - start) / 1_000_000);
+            logger.info("Payroll run {} completed: {} employees", runId, processed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Payroll run {} interrupted after employee {}", runId, cursor);
+        } catch (ExecutionException | RuntimeException e) {
+            logger.error("Payroll run {} failed after employee {}", runId, cursor, e);
+            finish(runId, PayrollRun.Status.FAILED, previouslyElapsed + (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        computePool.shutdownNow();
+    }
+
+    private void finish(Long runId, PayrollRun.Status status, long elapsedMillis) {
+        transaction.executeWithoutResult(tx -> payrollRunRepository.findById(runId).ifPresent(run -> {
+            run.setStatus(status);
+            run.setElapsedMillis(elapsedMillis);
+            run.setFinishedAt(LocalDateTime.now());
+        }));
+    }
+
+    // Parameters of the payroll_entry insert for a {id, salary} row
+    private static Object[] computeEntry(Long runId, Object[] row) {
+        double salary = (Double) row[1];
+        return new Object[] { runId, row[0], PayrollCalculator.gross(salary), PayrollCalculator.net(salary) };
+    }
+}
@@ -0,0 +1,107 @@
+package es.udc.fic.csi.baserest.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compact quantile sketch for salaries.
+ *
+ * Values are counted in logarithmic buckets, so any quantile is answered with
+ * a relative error bounded by {@link #RELATIVE_ACCURACY} while memory grows
+ * with the salary range instead of with the number of employees. Unlike most
+ * streaming sketches, values can also be removed, which lets the department
+ * accumulators apply updates as deltas.
+ *
+ * Not thread safe, callers must synchronize.
+ */
+class SalarySketch {
+
+    /** Maximum relative error of the values returned by the sketch */
+    static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    // Bucket index -> count, only for strictly positive values
+    private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+
+    // Zero and negative values are kept apart, they have no logarithm
+    private long nonPositiveCount;
+
+    private long count;
+
+    void add(double value) {
+        if (value <= 0) {
+            nonPositiveCount++;
+        } else {
+            buckets.merge(indexOf(value), 1L, Long::sum);
+        }
+        count++;
+    }
+
+    void remove(double value) {
+        if (value <= 0) {
+            if (nonPositiveCount == 0) {
+                return;
+            }
+            nonPositiveCount--;
+        } else {
+            int index = indexOf(value);
+            Long current = buckets.get(index);
+            if (current == null) {
+                return;
+            }
+            if (current == 1) {
+                buckets.remove(index);
+            } else {
+                buckets.put(index, current - 1);
+            }
+        }
+        count--;
+    }
+
+    long count() {
+        return count;
+    }
+
+    /**
+     * Estimate the value at the given quantile
+     *
+     * @param quantile the quantile, between 0 and 1
+     * @return the estimated value, or {@link Double#NaN} if the sketch is empty
+     */
+    double quantile(double quantile) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        if (rank <= nonPositiveCount) {
+            return 0;
+        }
+        long seen = nonPositiveCount;
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            seen += bucket.getValue();
+            if (seen >= rank) {
+                return valueOf(bucket.getKey());
+            }
+        }
+        return valueOf(buckets.lastKey());
+    }
+
+    double min() {
+        return quantile(0);
+    }
+
+    double max() {
+        return quantile(1);
+    }
+
+    private static int indexOf(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    private static double valueOf(int index) {
+        // Midpoint of the bucket (gamma^(i-1), gamma^i] in relative terms
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+}
@@ -0,0 +1,32 @@
+-- The schema as generated by Hibernate from the entities before the migrations, with its generated
+-- constraint names
+
+create sequence employee_seq start with 1 increment by 50;
+create sequence hibernate_sequence start with 1 increment by 1;
+create table client (id bigint not null, address varchar(255) not null, email varchar(255) not null, name varchar(255) not null, phone varchar(255) not null, surname varchar(255) not null, primary key (id));
+create table department (id integer generated by default as identity, name varchar(255) not null, primary key (id));
+create table employee (id bigint not null, address varchar(255) not null, age integer not null, name varchar(255) not null, nss integer not null, salary double not null, department_id integer not null, id_supervisor bigint, primary key (id));
+create table pay_methods (id bigint not null, pay_method_id bigint not null);
+create table payroll_entry (employee_id bigint not null, run_id bigint not null, gross double not null, net double not null, primary key (employee_id, run_id));
+create table payroll_run (id bigint generated by default as identity, elapsed_millis bigint not null, finished_at timestamp, last_processed_id bigint not null, period varchar(255) not null, processed bigint not null, started_at timestamp not null, status varchar(255) not null, primary key (id));
+create table product (id bigint generated by default as identity, name varchar(255) not null, price float not null, stock integer not null, primary key (id));
+create table sale (id bigint generated by default as identity, price float not null, quantity integer not null, sale_date timestamp not null, client_id bigint not null, product_id bigint not null, primary key (id));
+create table user (id bigint not null, age integer, name varchar(255), primary key (id));
+alter table client add constraint UK_bfgjs3fem0hmjhvih80158x29 unique (email);
+alter table department add constraint UK_1t68827l97cwyxo9r1u6t4p7d unique (name);
+create index idx_employee_department on employee (department_id, id);
+create index idx_employee_department_age on employee (department_id, age);
+create index idx_employee_department_salary on employee (department_id, salary);
+create index idx_employee_age on employee (age);
+create index idx_employee_salary on employee (salary);
+create index idx_employee_supervisor on employee (id_supervisor);
+alter table employee add constraint UK_32k8ofvaixpa3v7l72e5w4px5 unique (nss);
+alter table payroll_run add constraint UK_evwlgubvjo3ws597oyp5chuj3 unique (period);
+alter table product add constraint UK_jmivyxk9rmgysrmsqw15lqr5b unique (name);
+create index idx_user_age on user (age, id);
+alter table user add constraint UK_gj2fy3dcix7ph7k8684gka40c unique (name);
+alter table employee add constraint fk_employee_department foreign key (department_id) references department;
+alter table employee add constraint FKsqhe1tmxdlt614h3uc6n9yoli foreign key (id_supervisor) references employee;
+alter table pay_methods add constraint FKawhr3gw20unyv8fujxv6ivvm0 foreign key (id) references client;
+alter table sale add constraint FKon0o9ba5ajsnwivekhl1tfjiy foreign key (client_id) references client;
+alter table sale add constraint FKonrcqwf09u6spb6ty6sh11jh5 foreign key (product_id) references product;
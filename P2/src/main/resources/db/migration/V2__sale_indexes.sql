@@ -0,0 +1,3 @@
+-- Sales of a product or of a client, by date
+CREATE INDEX idx_sale_product_date ON sale (product_id, sale_date);
+CREATE INDEX idx_sale_client_date ON sale (client_id, sale_date);
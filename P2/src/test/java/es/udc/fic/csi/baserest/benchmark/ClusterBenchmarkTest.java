@@ -0,0 +1,216 @@
+package es.udc.fic.csi.baserest.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import es.udc.fic.csi.baserest.BaseRestApplication;
+import es.udc.fic.csi.baserest.dto.ClientDto;
+import es.udc.fic.csi.baserest.dto.ProductDto;
+
+/**
+ * Mixed reads and writes over 1 and 3 instances (the `cluster` profile).
+ *
+ * Every instance count starts its instances on one host, on its own H2 TCP
+ * server and invalidation bus, with the same clients and products created
+ * through the endpoints. Every client sends its next request as soon as the
+ * previous response arrives, to the instances in turn: mostly
+ * `GET /product/{id}`, served from the second-level cache of the instance,
+ * and otherwise `POST /sale/new`, which writes to the shared database and
+ * invalidates the product on the other instances. The instances only add
+ * throughput as far as the machine has cores for them: the throughput of
+ * every count is printed relative to the first one.
+ *
+ * Configured with system properties, e.g.
+ * `mvn -P benchmark test -Dtest=ClusterBenchmarkTest -Dbenchmark.instances=1,2,3`:
+ *
+ * - `benchmark.instances`: the instance counts compared (default `1,3`)
+ * - `benchmark.clients`: concurrent clients (default 32)
+ * - `benchmark.write-percent`: the share of sales among the requests (default 10)
+ * - `benchmark.warmup`, `benchmark.duration`: seconds of warm-up and of measurement (default 10 and 30)
+ * - `load.report-dir`: where the reports are written, a directory per instance count (default `target/load-report`)
+ *
+ * @author angelotefic
+ */
+@Tag("benchmark")
+class ClusterBenchmarkTest {
+
+    private static final int PRODUCTS = 1_000;
+
+    private static final int CLIENTS = 100;
+
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.clients", 32);
+
+    private static final int WRITE_PERCENT = Integer.getInteger("benchmark.write-percent", 10);
+
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("benchmark.warmup", 10L));
+
+    private static final Duration MEASUREMENT = Duration.ofSeconds(Long.getLong("benchmark.duration", 30L));
+
+    private static final String READ = "GET /product/{id}";
+
+    private static final String WRITE = "POST /sale/new";
+
+    @Test
+    void mixedLoadByInstanceCount() throws Exception {
+        int[] counts = Arrays.stream(System.getProperty("benchmark.instances", "1,3").split(","))
+                .mapToInt(count -> Integer.parseInt(count.trim())).toArray();
+        Map<Integer, LoadReport> reports = new LinkedHashMap<>();
+        for (int count : counts) {
+            reports.put(count, run(count));
+        }
+
+        System.out.println("Cluster benchmark, " + CONCURRENCY + " clients, " + WRITE_PERCENT + "% writes, "
+                + MEASUREMENT.toSeconds() + " s, " + Runtime.getRuntime().availableProcessors() + " cores");
+        double base = throughput(reports.get(counts[0]));
+        reports.forEach((count, report) -> {
+            System.out.printf("%d instances: %.0f requests/s (x%.2f)%n", count, throughput(report),
+                    throughput(report) / base);
+            report.print(System.out);
+        });
+    }
+
+    private LoadReport run(int count) throws Exception {
+        int busPort = freeUdpPorts(count);
+        List<String> common = List.of("server.port=0", "spring.profiles.active=cluster",
+                "cluster.h2.port=" + freeTcpPort(),
+                "cluster.datasource.url=jdbc:h2:tcp://localhost:${cluster.h2.port}/mem:cluster-benchmark-" + count
+                        + ";DB_CLOSE_DELAY=-1",
+                "cluster.bus.ports=" + busPort + "-" + (busPort + count - 1),
+                "logging.level.es.udc.fic.csi.baserest=WARN");
+        List<ConfigurableApplicationContext> instances = new ArrayList<>();
+        try {
+            List<String> baseUrls = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                List<String> properties = new ArrayList<>(common);
+                properties.add("cluster.h2.server=" + (i == 0));
+                ConfigurableApplicationContext context = new SpringApplicationBuilder(BaseRestApplication.class)
+                        // As arguments, which override the properties files
+                        .run(properties.stream().map(property -> "--" + property).toArray(String[]::new));
+                instances.add(context);
+                baseUrls.add("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort());
+            }
+
+            var restTemplate = new TestRestTemplate();
+            List<Long> productIds = new ArrayList<>();
+            for (int i = 0; i < PRODUCTS; i++) {
+                productIds.add(restTemplate.postForObject(baseUrls.get(0) + "/product/new",
+                        new ProductDto("Product" + i, 1.5f, 100_000_000), Long.class));
+            }
+            List<Long> clientIds = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                clientIds.add(restTemplate.postForObject(baseUrls.get(0) + "/client/new", new ClientDto("Client" + i,
+                        "Surname", "client" + i + "@example.com", "+34600000000", "Street", List.of(1L)), Long.class));
+            }
+
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            hit(client, baseUrls, productIds, clientIds, WARMUP);
+            LoadReport report = hit(client, baseUrls, productIds, clientIds, MEASUREMENT);
+            report.write(Path.of(System.getProperty("load.report-dir", "target/load-report"), "cluster",
+                    count + "-instances"));
+            assertThat(report.requests()).isPositive();
+            assertThat(report.serverErrors()).isZero();
+            return report;
+        } finally {
+            // The database server last
+            for (int i = instances.size() - 1; i >= 0; i--) {
+                instances.get(i).close();
+            }
+        }
+    }
+
+    private LoadReport hit(HttpClient client, List<String> baseUrls, List<Long> productIds, List<Long> clientIds,
+                           Duration duration) throws InterruptedException {
+        var report = new LoadReport(duration);
+        long deadline = System.nanoTime() + duration.toNanos();
+        var finished = new CountDownLatch(CONCURRENCY);
+        var turn = new AtomicLong();
+        for (int c = 0; c < CONCURRENCY; c++) {
+            send(client, baseUrls, turn, productIds, clientIds, deadline, report, finished);
+        }
+        finished.await(duration.toSeconds() + 120, TimeUnit.SECONDS);
+        return report;
+    }
+
+    private void send(HttpClient client, List<String> baseUrls, AtomicLong turn, List<Long> productIds,
+                      List<Long> clientIds, long deadline, LoadReport report, CountDownLatch finished) {
+        if (System.nanoTime() >= deadline) {
+            finished.countDown();
+            return;
+        }
+        var random = ThreadLocalRandom.current();
+        String baseUrl = baseUrls.get((int) (turn.getAndIncrement() % baseUrls.size()));
+        Long productId = productIds.get(random.nextInt(productIds.size()));
+        boolean write = random.nextInt(100) < WRITE_PERCENT;
+        var request = write
+                ? HttpRequest.newBuilder(URI.create(baseUrl + "/sale/new?productId=" + productId + "&clientId="
+                        + clientIds.get(random.nextInt(clientIds.size())) + "&quantity=1"))
+                        .POST(HttpRequest.BodyPublishers.noBody())
+                : HttpRequest.newBuilder(URI.create(baseUrl + "/product/" + productId)).GET();
+        long start = System.nanoTime();
+        client.sendAsync(request.timeout(Duration.ofMinutes(1)).build(), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    report.record(write ? WRITE : READ, start, System.nanoTime(),
+                            error == null ? response.statusCode() : 0);
+                    send(client, baseUrls, turn, productIds, clientIds, deadline, report, finished);
+                });
+    }
+
+    private static double throughput(LoadReport report) {
+        return report.requests() / (double) MEASUREMENT.toSeconds();
+    }
+
+    private static int freeTcpPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * The first of consecutive free UDP ports
+     */
+    private static int freeUdpPorts(int count) throws IOException {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        for (int first = 48_000; first < 49_000; first += count) {
+            List<DatagramSocket> sockets = new ArrayList<>();
+            try {
+                for (int port = first; port < first + count; port++) {
+                    sockets.add(new DatagramSocket(port, loopback));
+                }
+                return first;
+            } catch (IOException e) {
+                // Try the next ones
+            } finally {
+                for (DatagramSocket socket : sockets) {
+                    socket.close();
+                }
+            }
+        }
+        throw new IOException("No free UDP ports");
+    }
+}
@@ -0,0 +1,122 @@
+package es.udc.fic.csi.baserest.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency and throughput of every endpoint during a load test.
+ *
+ * Latencies are recorded in microseconds in an HDR histogram per endpoint,
+ * from the moment the request was due to be sent, so the time a request
+ * waits for a free client counts as well.
+ *
+ * @author angelotefic
+ */
+class LoadReport {
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentSkipListMap<>();
+
+    private final Duration duration;
+
+    LoadReport(Duration duration) {
+        this.duration = duration;
+    }
+
+    private static class Endpoint {
+
+        private final Histogram latencies = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+
+        private final LongAdder clientErrors = new LongAdder();
+
+        private final LongAdder serverErrors = new LongAdder();
+    }
+
+    /**
+     * Record a finished request
+     *
+     * @param endpoint  the endpoint, e.g. "GET /product/{id}"
+     * @param dueNanos  when the request was due to be sent, from {@link System#nanoTime()}
+     * @param doneNanos when the response was read, from {@link System#nanoTime()}
+     * @param status    the response status, or 0 if there was no response
+     */
+    void record(String endpoint, long dueNanos, long doneNanos, int status) {
+        var stats = endpoints.computeIfAbsent(endpoint, e -> new Endpoint());
+        long micros = TimeUnit.NANOSECONDS.toMicros(doneNanos - dueNanos);
+        stats.latencies.recordValue(Math.min(Math.max(micros, 1), HIGHEST_LATENCY_MICROS));
+        if (status >= 400 && status < 500) {
+            stats.clientErrors.increment();
+        } else if (status >= 500 || status == 0) {
+            stats.serverErrors.increment();
+        }
+    }
+
+    /**
+     * @return the number of requests with a 5xx or without a response
+     */
+    long serverErrors() {
+        return endpoints.values().stream().mapToLong(e -> e.serverErrors.sum()).sum();
+    }
+
+    /**
+     * @return the number of requests recorded
+     */
+    long requests() {
+        return endpoints.values().stream().mapToLong(e -> e.latencies.getTotalCount()).sum();
+    }
+
+    /**
+     * Write `summary.csv`, with a row per endpoint, and the full latency
+     * distribution of every endpoint as an `.hgrm` file, in milliseconds
+     *
+     * @param directory the report directory, created if needed
+     */
+    void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (var summary = new PrintStream(Files.newOutputStream(directory.resolve("summary.csv")))) {
+            summary.println("endpoint,requests,client_errors,server_errors,throughput_rps,"
+                    + "p50_ms,p90_ms,p99_ms,p99_9_ms,max_ms");
+            endpoints.forEach((name, stats) -> summary.println(row(name, stats, ",")));
+        }
+        for (var entry : endpoints.entrySet()) {
+            Path file = directory.resolve(entry.getKey().replaceAll("[^A-Za-z0-9]+", "_") + ".hgrm");
+            try (var out = new PrintStream(Files.newOutputStream(file))) {
+                entry.getValue().latencies.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    /**
+     * Print a table with a row per endpoint
+     */
+    void print(PrintStream out) {
+        out.printf("%-34s %8s %6s %6s %9s %9s %9s %9s %9s %9s%n", "endpoint", "requests", "4xx", "5xx", "req/s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        endpoints.forEach((name, stats) -> out.println(row(name, stats, null)));
+    }
+
+    private String row(String name, Endpoint stats, String separator) {
+        Histogram latencies = stats.latencies;
+        Object[] values = { name, latencies.getTotalCount(), stats.clientErrors.sum(), stats.serverErrors.sum(),
+                latencies.getTotalCount() / (duration.toMillis() / 1000.0),
+                latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(90) / 1000.0,
+                latencies.getValueAtPercentile(99) / 1000.0, latencies.getValueAtPercentile(99.9) / 1000.0,
+                latencies.getMaxValue() / 1000.0 };
+        String format = separator == null
+                ? "%-34s %8d %6d %6d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f"
+                : String.join(separator, "\"%s\"", "%d", "%d", "%d", "%.1f", "%.3f", "%.3f", "%.3f", "%.3f", "%.3f");
+        return String.format(Locale.ROOT, format, values);
+    }
+}
@@ -0,0 +1,193 @@
+package es.udc.fic.csi.baserest.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+
+import es.udc.fic.csi.baserest.benchmark.OpenModelLoad.Operation;
+import es.udc.fic.csi.baserest.dto.ClientDto;
+import es.udc.fic.csi.baserest.dto.EmployeeDto;
+import es.udc.fic.csi.baserest.entity.Client;
+import es.udc.fic.csi.baserest.entity.Product;
+import es.udc.fic.csi.baserest.repository.ClientRepository;
+import es.udc.fic.csi.baserest.repository.ProductRepository;
+
+/**
+ * Load test of the product, sale, employee and client endpoints.
+ *
+ * Boots the application on a random port, seeds it, and drives a mix of
+ * scenarios at a fixed arrival rate (see {@link OpenModelLoad}). After a
+ * warm-up, the latencies and throughput of every endpoint are printed and
+ * written to the report directory (see {@link LoadReport}), so that the
+ * reports of two releases can be compared.
+ *
+ * Configured with system properties, e.g.
+ * `mvn -P benchmark test -Dtest=LoadTest -Dload.rate=400 -Dload.report-dir=target/load-report/1.1.0`:
+ *
+ * - `load.rate`: requests per second (default 100)
+ * - `load.clients`: concurrent clients (default 32)
+ * - `load.warmup`, `load.duration`: seconds of warm-up and of measurement (default 10 and 30)
+ * - `load.mix`: weight of every scenario (default `product-read=50,stock-update=15,sale-create=15,employee-crud=10,client-crud=10`)
+ * - `load.seed`: seed of the arrivals and of the choice of requests (default 42)
+ * - `load.report-dir`: where the report is written (default `target/load-report`)
+ *
+ * @author angelotefic
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+class LoadTest {
+
+    private static final String DEFAULT_MIX = "product-read=50,stock-update=15,sale-create=15,employee-crud=10,client-crud=10";
+
+    private static final int PRODUCTS = 500;
+
+    private static final int CLIENTS = 200;
+
+    private static final int EMPLOYEES = 200;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    private String baseUrl;
+
+    private List<Long> productIds;
+
+    private List<Long> clientIds;
+
+    private final List<Long> employeeIds = new ArrayList<>();
+
+    private final AtomicInteger nextNumber = new AtomicInteger(1_000_000);
+
+    @Test
+    void load() throws Exception {
+        baseUrl = "http://localhost:" + port;
+        seed();
+
+        var load = new OpenModelLoad(Double.parseDouble(System.getProperty("load.rate", "100")),
+                Integer.getInteger("load.clients", 32), Long.getLong("load.seed", 42L));
+        mix(System.getProperty("load.mix", DEFAULT_MIX)).forEach((scenario, weight) ->
+                load.add(weight, scenario(scenario)));
+
+        load.run(Duration.ofSeconds(Long.getLong("load.warmup", 10L)));
+        LoadReport report = load.run(Duration.ofSeconds(Long.getLong("load.duration", 30L)));
+
+        report.print(System.out);
+        report.write(Path.of(System.getProperty("load.report-dir", "target/load-report")));
+        assertThat(report.requests()).isPositive();
+        assertThat(report.serverErrors()).isZero();
+    }
+
+    private void seed() {
+        var products = new ArrayList<Product>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new Product("Product" + i, 1.5f + i, 1_000_000));
+        }
+        productIds = productRepository.saveAll(products).stream().map(Product::getId).toList();
+
+        var clients = new ArrayList<Client>();
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.add(new Client("Client" + i, "Surname" + i, "client" + i + "@example.com", "+34600000" + i,
+                    "Street " + i, List.of(1L, 2L)));
+        }
+        clientIds = clientRepository.saveAll(clients).stream().map(Client::getId).toList();
+
+        // Through the API, which interns the departments
+        for (int i = 0; i < EMPLOYEES; i++) {
+            employeeIds.add(restTemplate.postForObject(baseUrl + "/employee/new", newEmployee(), Long.class));
+        }
+    }
+
+    private static Map<String, Integer> mix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + entry);
+            }
+            weights.put(parts[0].trim(), Integer.valueOf(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    private Operation[] scenario(String name) {
+        return switch (name) {
+            case "product-read" -> new Operation[] {
+                    new Operation("GET /product/{id}", () -> get("/product/" + any(productIds))),
+                    new Operation("GET /product/search", () -> get("/product/search?name=Product" + anyIndex(PRODUCTS))) };
+            case "stock-update" -> new Operation[] {
+                    new Operation("PUT /product/increaseStock",
+                            () -> send(HttpMethod.PUT, "/product/increaseStock?name=Product" + anyIndex(PRODUCTS) + "&amount=5", null)),
+                    new Operation("PUT /product/decreaseStock",
+                            () -> send(HttpMethod.PUT, "/product/decreaseStock?name=Product" + anyIndex(PRODUCTS) + "&amount=5", null)) };
+            case "sale-create" -> new Operation[] {
+                    new Operation("POST /sale/new", () -> send(HttpMethod.POST,
+                            "/sale/new?productId=" + any(productIds) + "&clientId=" + any(clientIds) + "&quantity=1", null)) };
+            case "employee-crud" -> new Operation[] {
+                    new Operation("POST /employee/new", () -> send(HttpMethod.POST, "/employee/new", newEmployee())),
+                    new Operation("GET /employee/{id}", () -> get("/employee/" + any(employeeIds))),
+                    new Operation("PUT /employee/update/{id}",
+                            () -> send(HttpMethod.PUT, "/employee/update/" + any(employeeIds), newEmployee())) };
+            case "client-crud" -> new Operation[] {
+                    new Operation("POST /client/new", () -> send(HttpMethod.POST, "/client/new", newClient())),
+                    new Operation("GET /client/{id}", () -> get("/client/" + any(clientIds))),
+                    new Operation("PUT /client/update/{id}",
+                            () -> send(HttpMethod.PUT, "/client/update/" + any(clientIds), newClient())) };
+            default -> throw new IllegalArgumentException("Unknown scenario: " + name);
+        };
+    }
+
+    private int get(String path) {
+        return send(HttpMethod.GET, path, null);
+    }
+
+    private int send(HttpMethod method, String path, Object body) {
+        return restTemplate.exchange(baseUrl + path, method, new HttpEntity<>(body), String.class).getStatusCodeValue();
+    }
+
+    private EmployeeDto newEmployee() {
+        int nss = nextNumber.getAndIncrement();
+        return new EmployeeDto("Employee" + nss, "Street " + nss, 20 + nss % 45, 1_500.0 + nss % 1_000, nss,
+                "Department" + nss % 10, null);
+    }
+
+    private ClientDto newClient() {
+        // Emails are unique
+        int n = nextNumber.getAndIncrement();
+        return new ClientDto("Client" + n, "Surname" + n, "client" + n + "@example.com", "+34611" + n, "Street " + n,
+                List.of(1L, 2L));
+    }
+
+    private static <T> T any(List<T> values) {
+        return values.get(anyIndex(values.size()));
+    }
+
+    private static int anyIndex(int bound) {
+        return ThreadLocalRandom.current().nextInt(bound);
+    }
+}
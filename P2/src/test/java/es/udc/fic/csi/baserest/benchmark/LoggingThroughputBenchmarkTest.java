@@ -0,0 +1,136 @@
+package es.udc.fic.csi.baserest.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import es.udc.fic.csi.baserest.BaseRestApplication;
+
+/**
+ * Request throughput of the hot GET paths of the product controller with the
+ * application logging switched off, with the default synchronous console
+ * output and with the structured (async, sampled) output.
+ *
+ * Every mode starts its own application on a random port and its own
+ * in-memory database, is warmed up, and then hit by a fixed number of client
+ * threads for a fixed time. Run it with `mvn -P benchmark test`.
+ *
+ * @author angelotefic
+ */
+@Tag("benchmark")
+class LoggingThroughputBenchmarkTest {
+
+    private static final int PRODUCTS = 100;
+
+    private static final int CLIENT_THREADS = Integer.getInteger("benchmark.threads",
+            Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    private static final int ROUNDS = 3;
+
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+
+    private static final Duration MEASUREMENT = Duration.ofSeconds(10);
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void throughputWithLoggingOnAndOff() throws Exception {
+        // The modes share the JVM, so the code is compiled as they go: run them in rounds and
+        // keep the best of every mode
+        Map<String, Double> results = new LinkedHashMap<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            results.merge("off", run("off", "logging.level.es.udc.fic.csi.baserest=OFF"), Math::max);
+            results.merge("sync console", run("sync"), Math::max);
+            results.merge("structured (async, sampled)",
+                    run("structured", "spring.profiles.active=structured-logging"), Math::max);
+        }
+
+        System.out.println("Logging throughput benchmark, " + CLIENT_THREADS + " client threads, best of "
+                + ROUNDS + " runs of " + MEASUREMENT.toSeconds() + " s per mode");
+        results.forEach((mode, rps) -> System.out.printf("  %-28s %10.0f requests/s%n", mode, rps));
+    }
+
+    private double run(String name, String... properties) throws Exception {
+        List<String> all = new ArrayList<>(List.of(properties));
+        all.add("server.port=0");
+        all.add("spring.datasource.url=jdbc:h2:mem:logging-benchmark-" + name);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BaseRestApplication.class)
+                // As arguments, which override the properties files
+                .run(all.stream().map(property -> "--" + property).toArray(String[]::new))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port + "/product/";
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < PRODUCTS; i++) {
+                String body = "{\"name\":\"Product" + i + "\",\"price\":" + (i + 1) + ".5,\"stock\":100}";
+                var response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "new"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(), HttpResponse.BodyHandlers.ofString());
+                ids.add(Long.valueOf(response.body()));
+            }
+
+            hit(baseUrl, ids, WARMUP);
+            long requests = hit(baseUrl, ids, MEASUREMENT);
+            return requests / (double) MEASUREMENT.toSeconds();
+        }
+    }
+
+    /**
+     * Alternate GET by id and GET by name from every client thread until the time is up
+     *
+     * @return the number of requests completed
+     */
+    private long hit(String baseUrl, List<Long> ids, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENT_THREADS);
+        try {
+            List<Future<Long>> workers = new ArrayList<>();
+            for (int t = 0; t < CLIENT_THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    long done = 0;
+                    while (System.nanoTime() < deadline) {
+                        int i = ThreadLocalRandom.current().nextInt(ids.size());
+                        String path = done % 2 == 0 ? String.valueOf(ids.get(i)) : "search?name=Product" + i;
+                        // HttpURLConnection keeps the connection alive once the body is read, and is
+                        // lighter than HttpClient, which matters when it shares the cores with the server
+                        var connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+                        assertThat(connection.getResponseCode()).isEqualTo(200);
+                        try (InputStream in = connection.getInputStream()) {
+                            in.readAllBytes();
+                        }
+                        done++;
+                    }
+                    return done;
+                }));
+            }
+            long total = 0;
+            for (Future<Long> worker : workers) {
+                total += worker.get();
+            }
+            return total;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package es.udc.fic.csi.baserest.benchmark;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntSupplier;
+
+/**
+ * Sends requests at a fixed average rate, whatever the response times.
+ *
+ * Arrivals follow a Poisson process: the gaps between them are exponentially
+ * distributed. Every request is handed to a pool of concurrent clients as soon
+ * as it is due, so a slow response delays neither the following requests nor
+ * their latency measurements (no coordinated omission): when all the clients
+ * are busy the request waits, and the wait counts in its latency.
+ *
+ * @author angelotefic
+ */
+class OpenModelLoad {
+
+    /**
+     * A request to one endpoint
+     *
+     * @param endpoint the name of the endpoint in the report
+     * @param call     sends the request and returns the response status
+     */
+    record Operation(String endpoint, IntSupplier call) {
+    }
+
+    private final List<List<Operation>> scenarios = new ArrayList<>();
+
+    private final List<Integer> cumulativeWeights = new ArrayList<>();
+
+    private int totalWeight;
+
+    private final double requestsPerSecond;
+
+    private final int clients;
+
+    private final Random random;
+
+    /**
+     * @param requestsPerSecond the average arrival rate
+     * @param clients           the number of concurrent clients
+     * @param seed              the seed of the arrivals and of the choice of operations
+     */
+    OpenModelLoad(double requestsPerSecond, int clients, long seed) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.clients = clients;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Add a scenario to the mix: every time it is picked, one of its operations is sent
+     *
+     * @param weight     the relative frequency of the scenario
+     * @param operations the operations of the scenario, equally likely
+     * @return this load
+     */
+    OpenModelLoad add(int weight, Operation... operations) {
+        if (weight > 0) {
+            totalWeight += weight;
+            scenarios.add(List.of(operations));
+            cumulativeWeights.add(totalWeight);
+        }
+        return this;
+    }
+
+    /**
+     * Send requests for the given time and wait for all of them to complete
+     *
+     * @param duration for how long requests are sent
+     * @return the latencies and throughput of every endpoint
+     */
+    LoadReport run(Duration duration) throws InterruptedException {
+        if (scenarios.isEmpty()) {
+            throw new IllegalStateException("No scenarios in the mix");
+        }
+        var report = new LoadReport(duration);
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        double due = start;
+        try {
+            while (true) {
+                due += -Math.log(1 - random.nextDouble()) * meanGapNanos;
+                if (due >= end) {
+                    break;
+                }
+                long dueNanos = (long) due;
+                for (long wait = dueNanos - System.nanoTime(); wait > 0; wait = dueNanos - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+                Operation operation = pick();
+                pool.execute(() -> {
+                    int status;
+                    try {
+                        status = operation.call().getAsInt();
+                    } catch (RuntimeException e) {
+                        status = 0;
+                    }
+                    report.record(operation.endpoint(), dueNanos, System.nanoTime(), status);
+                });
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        return report;
+    }
+
+    private Operation pick() {
+        int ticket = random.nextInt(totalWeight);
+        for (int i = 0; i < scenarios.size(); i++) {
+            if (ticket < cumulativeWeights.get(i)) {
+                List<Operation> operations = scenarios.get(i);
+                return operations.get(random.nextInt(operations.size()));
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+}
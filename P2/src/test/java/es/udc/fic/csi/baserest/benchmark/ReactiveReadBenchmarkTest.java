@@ -0,0 +1,158 @@
+package es.udc.fic.csi.baserest.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import es.udc.fic.csi.baserest.benchmark.OpenModelLoad.Operation;
+import es.udc.fic.csi.baserest.config.ReactiveReadServer;
+import es.udc.fic.csi.baserest.entity.Client;
+import es.udc.fic.csi.baserest.entity.Product;
+import es.udc.fic.csi.baserest.entity.Sale;
+import es.udc.fic.csi.baserest.repository.ClientRepository;
+import es.udc.fic.csi.baserest.repository.ProductRepository;
+import es.udc.fic.csi.baserest.repository.SaleRepository;
+
+/**
+ * The product and sale queries served by the servlet controllers and by the
+ * reactive read path of the `reactive` profile, under the same open-model
+ * load (see {@link OpenModelLoad}).
+ *
+ * Both stacks run in the same application on the same database; the servlet
+ * one is measured first, then the reactive one, each after its own warm-up.
+ * Configured with the system properties of {@link LoadTest}: `load.rate`,
+ * `load.clients`, `load.warmup`, `load.duration`, `load.seed` and
+ * `load.report-dir`, where a report per stack is written.
+ *
+ * @author angelotefic
+ */
+@Tag("benchmark")
+@ActiveProfiles("reactive")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+        properties = { "reactive.port=0", "logging.level.es.udc.fic.csi.baserest=WARN" })
+class ReactiveReadBenchmarkTest {
+
+    private static final int PRODUCTS = 500;
+
+    private static final int CLIENTS = 200;
+
+    private static final int SALES = 20_000;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ReactiveReadServer reactiveReadServer;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    private List<Long> productIds;
+
+    private List<Long> clientIds;
+
+    @Test
+    void servletAndReactive() throws Exception {
+        seed();
+        LoadReport servlet = run("http://localhost:" + port);
+        LoadReport reactive = run("http://localhost:" + reactiveReadServer.getPort());
+
+        System.out.println("Servlet (Tomcat, JPA):");
+        servlet.print(System.out);
+        System.out.println("Reactive (WebFlux, R2DBC):");
+        reactive.print(System.out);
+
+        Path reports = Path.of(System.getProperty("load.report-dir", "target/load-report"), "read-path");
+        servlet.write(reports.resolve("servlet"));
+        reactive.write(reports.resolve("reactive"));
+        assertThat(servlet.serverErrors()).isZero();
+        assertThat(reactive.serverErrors()).isZero();
+    }
+
+    private LoadReport run(String baseUrl) throws InterruptedException {
+        var load = new OpenModelLoad(Double.parseDouble(System.getProperty("load.rate", "100")),
+                Integer.getInteger("load.clients", 32), Long.getLong("load.seed", 42L));
+        load.add(60, new Operation("GET /product/{id}", () -> get(baseUrl + "/product/" + any(productIds))),
+                new Operation("GET /product/search", () -> get(baseUrl + "/product/search?name=Product" + anyIndex(PRODUCTS))));
+        load.add(30, new Operation("GET /sale/client/{clientId}", () -> get(baseUrl + "/sale/client/" + any(clientIds))));
+        load.add(10, new Operation("GET /sale/product/{productId}", () -> get(baseUrl + "/sale/product/" + any(productIds))));
+
+        load.run(Duration.ofSeconds(Long.getLong("load.warmup", 10L)));
+        return load.run(Duration.ofSeconds(Long.getLong("load.duration", 30L)));
+    }
+
+    private void seed() {
+        var products = new ArrayList<Product>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new Product("Product" + i, 1.5f + i, 1_000));
+        }
+        products = new ArrayList<>(productRepository.saveAll(products));
+        productIds = products.stream().map(Product::getId).toList();
+
+        var clients = new ArrayList<Client>();
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.add(new Client("Client" + i, "Surname" + i, "reactive" + i + "@example.com", "+34600000" + i,
+                    "Street " + i, List.of(1L, 2L)));
+        }
+        clients = new ArrayList<>(clientRepository.saveAll(clients));
+        clientIds = clients.stream().map(Client::getId).toList();
+
+        var sales = new ArrayList<Sale>();
+        var start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < SALES; i++) {
+            var product = products.get(i % PRODUCTS);
+            sales.add(new Sale(product, clients.get(i % CLIENTS), 1 + i % 5, product.getPrice(), start.plusMinutes(i)));
+        }
+        saleRepository.saveAll(sales);
+    }
+
+    /**
+     * Read the whole response, so the connection is reused
+     */
+    private static int get(String url) {
+        try {
+            var connection = (HttpURLConnection) new URL(url).openConnection();
+            int status = connection.getResponseCode();
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (in != null) {
+                    in.readAllBytes();
+                }
+            }
+            return status;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <T> T any(List<T> values) {
+        return values.get(anyIndex(values.size()));
+    }
+
+    private static int anyIndex(int bound) {
+        return ThreadLocalRandom.current().nextInt(bound);
+    }
+}
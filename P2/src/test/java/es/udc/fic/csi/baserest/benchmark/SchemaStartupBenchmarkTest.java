@@ -0,0 +1,74 @@
+package es.udc.fic.csi.baserest.benchmark;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.util.FileSystemUtils;
+
+import es.udc.fic.csi.baserest.BaseRestApplication;
+
+/**
+ * Startup time of the application on a large disk database, with the schema
+ * generated by Hibernate (`ddl-auto=update`, as `spring.jpa.generate-ddl` did)
+ * and with the Flyway migrations and schema validation.
+ *
+ * The database is filled first by the generator of the `generate-data`
+ * profile, sized by the `generator.*` system properties (the profile defaults
+ * otherwise). Then each mode starts and stops the application
+ * `benchmark.runs` times, alternating with the other, and the fastest and
+ * median startups are printed. Run it with `mvn -P benchmark test`.
+ *
+ * @author angelotefic
+ */
+@Tag("benchmark")
+class SchemaStartupBenchmarkTest {
+
+    private static final int RUNS = Integer.getInteger("benchmark.runs", 5);
+
+    private static final Path DATABASE = Path.of("target", "schema-startup").toAbsolutePath();
+
+    private static final String URL = "--spring.datasource.url=jdbc:h2:file:" + DATABASE.resolve("startup");
+
+    @Test
+    void generatedAndMigratedSchema() throws Exception {
+        FileSystemUtils.deleteRecursively(DATABASE);
+        new SpringApplicationBuilder(BaseRestApplication.class)
+                .profiles("generate-data")
+                // As arguments, which override the properties files
+                .run(URL)
+                .close();
+
+        Map<String, List<Long>> startups = new LinkedHashMap<>();
+        for (int run = 0; run < RUNS; run++) {
+            startups.computeIfAbsent("generate-ddl", mode -> new ArrayList<>())
+                    .add(startup("--spring.flyway.enabled=false", "--spring.jpa.hibernate.ddl-auto=update"));
+            startups.computeIfAbsent("migrations + validate", mode -> new ArrayList<>()).add(startup());
+        }
+
+        System.out.println("Startup on " + DATABASE + ", " + RUNS + " runs per mode");
+        startups.forEach((mode, millis) -> {
+            millis.sort(null);
+            System.out.printf("  %-24s fastest %6d ms, median %6d ms%n", mode, millis.get(0), millis.get(millis.size() / 2));
+        });
+    }
+
+    /**
+     * @return the milliseconds until the application is started
+     */
+    private static long startup(String... properties) {
+        List<String> arguments = new ArrayList<>(List.of(properties));
+        arguments.add(URL);
+        arguments.add("--server.port=0");
+        long start = System.nanoTime();
+        var context = new SpringApplicationBuilder(BaseRestApplication.class).run(arguments.toArray(String[]::new));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        context.close();
+        return millis;
+    }
+}
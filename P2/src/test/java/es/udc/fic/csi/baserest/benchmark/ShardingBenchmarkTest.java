@@ -0,0 +1,157 @@
+package es.udc.fic.csi.baserest.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import es.udc.fic.csi.baserest.BaseRestApplication;
+import es.udc.fic.csi.baserest.dto.ClientDto;
+import es.udc.fic.csi.baserest.dto.ProductDto;
+
+/**
+ * Sale writes over 1, 2 and 4 shards (the `sharding` profile).
+ *
+ * Every shard count starts its own application and in-memory databases,
+ * created through the endpoints with the same clients and products. Every
+ * writer sends its next `POST /sale/new`, for a random client and product,
+ * as soon as the previous response arrives. The sales of a client are
+ * written to its shard, and the stock of the product to every shard once
+ * committed, so the shards only scale the writes as far as the machine has
+ * cores for them: the throughput of every count is printed relative to the
+ * first one.
+ *
+ * Configured with system properties, e.g.
+ * `mvn -P benchmark test -Dtest=ShardingBenchmarkTest -Dbenchmark.shards=1,2,4,8`:
+ *
+ * - `benchmark.shards`: the shard counts compared (default `1,2,4`)
+ * - `benchmark.writers`: concurrent writers (default 32)
+ * - `benchmark.warmup`, `benchmark.duration`: seconds of warm-up and of measurement (default 10 and 30)
+ * - `load.report-dir`: where the reports are written, a directory per shard count (default `target/load-report`)
+ *
+ * @author angelotefic
+ */
+@Tag("benchmark")
+class ShardingBenchmarkTest {
+
+    private static final int PRODUCTS = 1_000;
+
+    private static final int CLIENTS = 1_000;
+
+    private static final int WRITERS = Integer.getInteger("benchmark.writers", 32);
+
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("benchmark.warmup", 10L));
+
+    private static final Duration MEASUREMENT = Duration.ofSeconds(Long.getLong("benchmark.duration", 30L));
+
+    private static final String ENDPOINT = "POST /sale/new";
+
+    @Test
+    void saleWritesByShardCount() throws Exception {
+        int[] counts = Arrays.stream(System.getProperty("benchmark.shards", "1,2,4").split(","))
+                .mapToInt(count -> Integer.parseInt(count.trim())).toArray();
+        Map<Integer, LoadReport> reports = new LinkedHashMap<>();
+        for (int count : counts) {
+            reports.put(count, run(count));
+        }
+
+        System.out.println("Sharding benchmark, " + WRITERS + " writers, " + MEASUREMENT.toSeconds() + " s, "
+                + Runtime.getRuntime().availableProcessors() + " cores");
+        double base = throughput(reports.get(counts[0]));
+        reports.forEach((count, report) -> {
+            System.out.printf("%d shards: %.0f sales/s (x%.2f)%n", count, throughput(report),
+                    throughput(report) / base);
+            report.print(System.out);
+        });
+    }
+
+    private LoadReport run(int count) throws Exception {
+        List<String> properties = List.of("server.port=0", "spring.profiles.active=sharding",
+                "sharding.shards=" + count,
+                "spring.datasource.url=jdbc:h2:mem:sharding-benchmark-" + count + "-0",
+                "sharding.url=jdbc:h2:mem:sharding-benchmark-" + count + "-{shard}",
+                "logging.level.es.udc.fic.csi.baserest=WARN");
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BaseRestApplication.class)
+                // As arguments, which override the properties files
+                .run(properties.stream().map(property -> "--" + property).toArray(String[]::new))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port;
+
+            // Through the endpoints, which spread the clients and copy the products
+            var restTemplate = new TestRestTemplate();
+            List<Long> productIds = new ArrayList<>();
+            for (int i = 0; i < PRODUCTS; i++) {
+                productIds.add(restTemplate.postForObject(baseUrl + "/product/new",
+                        new ProductDto("Product" + i, 1.5f, 100_000_000), Long.class));
+            }
+            List<Long> clientIds = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                clientIds.add(restTemplate.postForObject(baseUrl + "/client/new", new ClientDto("Client" + i,
+                        "Surname", "client" + i + "@example.com", "+34600000000", "Street", List.of(1L)), Long.class));
+            }
+
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            hit(client, baseUrl, productIds, clientIds, WARMUP);
+            LoadReport report = hit(client, baseUrl, productIds, clientIds, MEASUREMENT);
+            report.write(Path.of(System.getProperty("load.report-dir", "target/load-report"), "sharding",
+                    count + "-shards"));
+            assertThat(report.requests()).isPositive();
+            assertThat(report.serverErrors()).isZero();
+            return report;
+        }
+    }
+
+    private LoadReport hit(HttpClient client, String baseUrl, List<Long> productIds, List<Long> clientIds,
+                           Duration duration) throws InterruptedException {
+        var report = new LoadReport(duration);
+        long deadline = System.nanoTime() + duration.toNanos();
+        var finished = new CountDownLatch(WRITERS);
+        for (int w = 0; w < WRITERS; w++) {
+            send(client, baseUrl, productIds, clientIds, deadline, report, finished);
+        }
+        finished.await(duration.toSeconds() + 120, TimeUnit.SECONDS);
+        return report;
+    }
+
+    private void send(HttpClient client, String baseUrl, List<Long> productIds, List<Long> clientIds, long deadline,
+                      LoadReport report, CountDownLatch finished) {
+        if (System.nanoTime() >= deadline) {
+            finished.countDown();
+            return;
+        }
+        var random = ThreadLocalRandom.current();
+        var request = HttpRequest.newBuilder(URI.create(baseUrl + "/sale/new?productId="
+                        + productIds.get(random.nextInt(productIds.size())) + "&clientId="
+                        + clientIds.get(random.nextInt(clientIds.size())) + "&quantity=1"))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofMinutes(1)).build();
+        long start = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            report.record(ENDPOINT, start, System.nanoTime(), error == null ? response.statusCode() : 0);
+            send(client, baseUrl, productIds, clientIds, deadline, report, finished);
+        });
+    }
+
+    private static double throughput(LoadReport report) {
+        return report.requests() / (double) MEASUREMENT.toSeconds();
+    }
+}
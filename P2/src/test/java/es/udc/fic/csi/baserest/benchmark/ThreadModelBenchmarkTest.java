@@ -0,0 +1,151 @@
+package es.udc.fic.csi.baserest.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import es.udc.fic.csi.baserest.BaseRestApplication;
+import es.udc.fic.csi.baserest.entity.Product;
+import es.udc.fic.csi.baserest.repository.ProductRepository;
+
+/**
+ * Product reads from thousands of concurrent connections, served by Tomcat's
+ * platform thread pool and by virtual threads (the `virtual-threads` profile).
+ *
+ * Every mode starts its own application and in-memory database. Each
+ * connection sends its next request as soon as the previous response
+ * arrives, so as many requests as connections are always in flight. The
+ * virtual thread mode is skipped below Java 21 (build with `-P java21`).
+ *
+ * Configured with system properties, e.g.
+ * `mvn -P java21,benchmark test -Dtest=ThreadModelBenchmarkTest -Dbenchmark.connections=10000`:
+ *
+ * - `benchmark.connections`: concurrent connections (default 10000). The
+ *   client and the server share the process, which needs twice as many file
+ *   descriptors (`ulimit -n`)
+ * - `benchmark.warmup`, `benchmark.duration`: seconds of warm-up and of measurement (default 10 and 30)
+ * - `load.report-dir`: where the reports are written, a directory per mode (default `target/load-report`)
+ *
+ * @author angelotefic
+ */
+@Tag("benchmark")
+class ThreadModelBenchmarkTest {
+
+    private static final int PRODUCTS = 1_000;
+
+    private static final int CONNECTIONS = Integer.getInteger("benchmark.connections", 10_000);
+
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("benchmark.warmup", 10L));
+
+    private static final Duration MEASUREMENT = Duration.ofSeconds(Long.getLong("benchmark.duration", 30L));
+
+    private static final String ENDPOINT = "GET /product/{id}";
+
+    @Test
+    void platformAndVirtualThreads() throws Exception {
+        List<String> common = List.of("server.port=0", "server.tomcat.max-connections=" + (2 * CONNECTIONS),
+                "server.tomcat.accept-count=1000", "logging.level.es.udc.fic.csi.baserest=WARN");
+
+        List<String> platform = new ArrayList<>(common);
+        platform.add("spring.datasource.url=jdbc:h2:mem:platform-threads");
+        LoadReport platformReport = run("platform", platform);
+
+        LoadReport virtualReport = null;
+        if (Runtime.version().feature() >= 21) {
+            List<String> virtual = new ArrayList<>(common);
+            virtual.add("spring.datasource.url=jdbc:h2:mem:virtual-threads");
+            virtual.add("spring.profiles.active=virtual-threads");
+            virtualReport = run("virtual", virtual);
+        }
+
+        System.out.println("Thread model benchmark, " + CONNECTIONS + " connections, " + MEASUREMENT.toSeconds() + " s");
+        System.out.println("Platform threads (Tomcat pool):");
+        platformReport.print(System.out);
+        if (virtualReport != null) {
+            System.out.println("Virtual threads:");
+            virtualReport.print(System.out);
+        } else {
+            System.out.println("Virtual threads: skipped, they need Java 21 (-P java21)");
+        }
+    }
+
+    private LoadReport run(String mode, List<String> properties) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BaseRestApplication.class)
+                // As arguments, which override the properties files
+                .run(properties.stream().map(property -> "--" + property).toArray(String[]::new))) {
+            var products = new ArrayList<Product>();
+            for (int i = 0; i < PRODUCTS; i++) {
+                products.add(new Product("Product" + i, 1.5f + i, 1_000));
+            }
+            List<Long> ids = context.getBean(ProductRepository.class).saveAll(products).stream()
+                    .map(Product::getId).toList();
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port + "/product/";
+            // A connection per request in flight
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofMinutes(1)).build();
+
+            hit(client, baseUrl, ids, WARMUP);
+            LoadReport report = hit(client, baseUrl, ids, MEASUREMENT);
+            report.write(Path.of(System.getProperty("load.report-dir", "target/load-report"), "thread-model", mode));
+            assertThat(report.requests()).isPositive();
+            assertThat(report.serverErrors()).isZero();
+            return report;
+        }
+    }
+
+    /**
+     * Keep a request in flight on every connection until the time is up.
+     *
+     * The connections are opened over the first second, so that they do not
+     * all hit the accept queue at once.
+     */
+    private LoadReport hit(HttpClient client, String baseUrl, List<Long> ids, Duration duration)
+            throws InterruptedException {
+        var report = new LoadReport(duration);
+        long deadline = System.nanoTime() + duration.toNanos();
+        var finished = new CountDownLatch(CONNECTIONS);
+        long stagger = TimeUnit.SECONDS.toNanos(1) / CONNECTIONS;
+        for (int c = 0; c < CONNECTIONS; c++) {
+            long due = System.nanoTime() + stagger;
+            while (System.nanoTime() < due) {
+                Thread.onSpinWait();
+            }
+            send(client, baseUrl, ids, deadline, report, finished);
+        }
+        finished.await(duration.toSeconds() + 120, TimeUnit.SECONDS);
+        return report;
+    }
+
+    private void send(HttpClient client, String baseUrl, List<Long> ids, long deadline, LoadReport report,
+                      CountDownLatch finished) {
+        if (System.nanoTime() >= deadline) {
+            finished.countDown();
+            return;
+        }
+        var request = HttpRequest.newBuilder(URI.create(baseUrl + ids.get(ThreadLocalRandom.current().nextInt(ids.size()))))
+                .timeout(Duration.ofMinutes(1)).build();
+        long start = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            report.record(ENDPOINT, start, System.nanoTime(), error == null ? response.statusCode() : 0);
+            send(client, baseUrl, ids, deadline, report, finished);
+        });
+    }
+}
@@ -0,0 +1,191 @@
+package es.udc.fic.csi.baserest.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+
+import es.udc.fic.csi.baserest.BaseRestApplication;
+import es.udc.fic.csi.baserest.dto.ClientDto;
+import es.udc.fic.csi.baserest.dto.DepartmentStatsDto;
+import es.udc.fic.csi.baserest.dto.EmployeeDto;
+import es.udc.fic.csi.baserest.dto.ProductDto;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * The `cluster` profile: three instances on one database, where what one
+ * writes is read by the others, whatever they had cached
+ *
+ * @author angelotefic
+ */
+class ClusterTest {
+
+    private static final int INSTANCES = 3;
+
+    private static final long CONVERGENCE_MILLIS = 5_000;
+
+    private static final List<ConfigurableApplicationContext> instances = new ArrayList<>();
+
+    private static final List<String> urls = new ArrayList<>();
+
+    private final TestRestTemplate restTemplate = new TestRestTemplate();
+
+    @BeforeAll
+    static void startInstances() throws IOException {
+        int busPort = freeUdpPorts(INSTANCES);
+        List<String> common = List.of("server.port=0", "spring.profiles.active=cluster",
+                "cluster.h2.port=" + freeTcpPort(),
+                "cluster.datasource.url=jdbc:h2:tcp://localhost:${cluster.h2.port}/mem:cluster-test;DB_CLOSE_DELAY=-1",
+                "cluster.bus.ports=" + busPort + "-" + (busPort + INSTANCES - 1),
+                "logging.level.es.udc.fic.csi.baserest=WARN");
+        for (int i = 0; i < INSTANCES; i++) {
+            List<String> properties = new ArrayList<>(common);
+            // The first one runs the database server
+            properties.add("cluster.h2.server=" + (i == 0));
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(BaseRestApplication.class)
+                    // As arguments, which override the properties files
+                    .run(properties.stream().map(property -> "--" + property).toArray(String[]::new));
+            instances.add(context);
+            urls.add("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort());
+        }
+    }
+
+    @AfterAll
+    static void stopInstances() {
+        // The database server last
+        for (int i = instances.size() - 1; i >= 0; i--) {
+            instances.get(i).close();
+        }
+    }
+
+    @Test
+    void productUpdates() {
+        Long id = restTemplate.postForObject(urls.get(0) + "/product/new", new ProductDto("Clustered", 1.0f, 10),
+                Long.class);
+        // Cached by the others
+        for (int i = 1; i < INSTANCES; i++) {
+            product(i, id);
+            product(i, id);
+        }
+
+        restTemplate.put(urls.get(0) + "/product/update/" + id, new ProductDto("Clustered", 2.0f, 20));
+        for (int i = 0; i < INSTANCES; i++) {
+            int instance = i;
+            awaitEquals(() -> product(instance, id).stock(), 20);
+        }
+
+        // A bulk update
+        restTemplate.put(urls.get(1) + "/product/increaseStock?name=Clustered&amount=5", null);
+        for (int i = 0; i < INSTANCES; i++) {
+            int instance = i;
+            awaitEquals(() -> product(instance, id).stock(), 25);
+        }
+
+        assertThat(instances.get(2).getBean(MeterRegistry.class).get("cluster.invalidations")
+                .tag("direction", "received").functionCounter().count()).isPositive();
+    }
+
+    @Test
+    void clientPayMethods() {
+        Long id = restTemplate.postForObject(urls.get(2) + "/client/new", new ClientDto("Clus", "Ter",
+                "cluster@example.com", "+34600000004", "Street 4", List.of(1L, 2L)), Long.class);
+        assertThat(client(0, id).payMethods()).containsExactlyInAnyOrder(1L, 2L);
+
+        restTemplate.exchange(urls.get(1) + "/client/update/" + id, HttpMethod.PUT, new HttpEntity<>(new ClientDto(
+                "Clus", "Ter", "cluster@example.com", "+34600000004", "Street 5", List.of(3L))), ClientDto.class);
+        awaitEquals(() -> client(0, id).address(), "Street 5");
+        awaitEquals(() -> client(0, id).payMethods(), List.of(3L));
+    }
+
+    @Test
+    void departmentStatistics() {
+        restTemplate.postForObject(urls.get(0) + "/employee/new", new EmployeeDto("Clus", "Street 6", 40, 1000.0,
+                901_001, "Cluster department", null), Long.class);
+        awaitEquals(() -> headcount(1), 1L);
+
+        restTemplate.postForObject(urls.get(2) + "/employee/new", new EmployeeDto("Ter", "Street 7", 41, 3000.0,
+                901_002, "Cluster department", null), Long.class);
+        awaitEquals(() -> headcount(1), 2L);
+        awaitEquals(() -> headcount(0), 2L);
+    }
+
+    private ProductDto product(int instance, Long id) {
+        return restTemplate.getForObject(urls.get(instance) + "/product/" + id, ProductDto.class);
+    }
+
+    private ClientDto client(int instance, Long id) {
+        return restTemplate.getForObject(urls.get(instance) + "/client/" + id, ClientDto.class);
+    }
+
+    private long headcount(int instance) {
+        Map<String, DepartmentStatsDto> stats = restTemplate.exchange(urls.get(instance)
+                        + "/employee/stats?department=Cluster department", HttpMethod.GET, null,
+                new ParameterizedTypeReference<Map<String, DepartmentStatsDto>>() {}).getBody();
+        return stats == null || !stats.containsKey("Cluster department") ? 0
+                : stats.get("Cluster department").headcount();
+    }
+
+    /**
+     * The invalidations arrive asynchronously, shortly after the commit
+     */
+    private static <T> void awaitEquals(Supplier<T> actual, T expected) {
+        long deadline = System.currentTimeMillis() + CONVERGENCE_MILLIS;
+        T value = actual.get();
+        while (!expected.equals(value) && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            value = actual.get();
+        }
+        assertThat(value).isEqualTo(expected);
+    }
+
+    private static int freeTcpPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * The first of consecutive free UDP ports
+     */
+    private static int freeUdpPorts(int count) throws IOException {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        for (int first = 47_200; first < 48_000; first += count) {
+            List<DatagramSocket> sockets = new ArrayList<>();
+            try {
+                for (int port = first; port < first + count; port++) {
+                    sockets.add(new DatagramSocket(port, loopback));
+                }
+                return first;
+            } catch (IOException e) {
+                // Try the next ones
+            } finally {
+                for (DatagramSocket socket : sockets) {
+                    socket.close();
+                }
+            }
+        }
+        throw new IOException("No free UDP ports");
+    }
+}
@@ -0,0 +1,137 @@
+package es.udc.fic.csi.baserest.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.Cache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.udc.fic.csi.baserest.dto.ClientDto;
+import es.udc.fic.csi.baserest.dto.ProductDto;
+import es.udc.fic.csi.baserest.entity.Product;
+import es.udc.fic.csi.baserest.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * The `read-replica` profile: writes reach the replica through the
+ * replicator, and read-only transactions read from it
+ *
+ * @author angelotefic
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary",
+        "datasource.replica.url=jdbc:h2:mem:routing-replica" })
+@ActiveProfiles("read-replica")
+class ReadReplicaRoutingTest {
+
+    private static final String[] TABLES = { "product", "client", "pay_methods" };
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primary;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replica;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ReplicaReplicator replicator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void writesReachTheReplica() throws Exception {
+        String baseUrl = "http://localhost:" + port;
+        restTemplate.postForObject(baseUrl + "/product/new", new ProductDto("Replicated", 2.5f, 10), Long.class);
+        restTemplate.put(baseUrl + "/product/increaseStock?name=Replicated&amount=5", null);
+        Long clientId = restTemplate.postForObject(baseUrl + "/client/new",
+                new ClientDto("Rep", "Lica", "replica@example.com", "+34600000000", "Street 1", List.of(1L, 1L, 2L)),
+                Long.class);
+        // Rows without a primary key
+        restTemplate.exchange(baseUrl + "/client/update/" + clientId, HttpMethod.PUT, new HttpEntity<>(
+                new ClientDto("Rep", "Lica", "replica@example.com", "+34600000000", "Street 2", List.of(1L, 3L))),
+                ClientDto.class);
+        // Plain JDBC writes
+        jdbcTemplate.batchUpdate("INSERT INTO product (name, price, stock) VALUES (?, 1.0, 1)",
+                List.of(new Object[] { "Batch 1" }, new Object[] { "Batch 2" }));
+        jdbcTemplate.update("DELETE FROM product WHERE name = 'Batch 1'");
+
+        assertThat(replicator.awaitCaughtUp(10_000)).isTrue();
+        for (String table : TABLES) {
+            String query = "SELECT * FROM " + table + " ORDER BY 1, 2";
+            assertThat(new JdbcTemplate(replica).queryForList(query)).as(table)
+                    .isEqualTo(new JdbcTemplate(primary).queryForList(query));
+        }
+        assertThat(new JdbcTemplate(replica).queryForObject("SELECT stock FROM product WHERE name = 'Replicated'",
+                Integer.class)).isEqualTo(15);
+        assertThat(meterRegistry.get("datasource.replica.changes").functionCounter().count()).isPositive();
+        assertThat(meterRegistry.get("datasource.replica.lag").gauge().value()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    void readOnlyTransactionsReadTheReplica() {
+        // Only in the replica, with an id the primary does not reach
+        var replicaTemplate = new JdbcTemplate(replica);
+        replicaTemplate.update("INSERT INTO product (id, name, price, stock) VALUES (1000000, 'Replica only', 1.0, 1)");
+        try {
+            double replicaConnections = routed("replica");
+
+            var readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            Optional<Product> readOnlyProduct = readOnly.execute(status -> productRepository.findByName("Replica only"));
+            Integer readOnlyCount = readOnly.execute(status -> jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM product WHERE name = 'Replica only'", Integer.class));
+            assertThat(readOnlyProduct).isPresent();
+            assertThat(readOnlyCount).isEqualTo(1);
+            assertThat(routed("replica")).isEqualTo(replicaConnections + 2);
+
+            // Otherwise served by the second-level and query cache
+            entityManagerFactory.getCache().unwrap(Cache.class).evictAllRegions();
+            var readWrite = new TransactionTemplate(transactionManager);
+            Optional<Product> readWriteProduct = readWrite.execute(status -> productRepository.findByName("Replica only"));
+            assertThat(readWriteProduct).isEmpty();
+            assertThat(productRepository.findByName("Replica only")).isEmpty();
+        } finally {
+            replicaTemplate.update("DELETE FROM product WHERE id = 1000000");
+        }
+    }
+
+    private double routed(String target) {
+        return meterRegistry.get("datasource.routing").tag("target", target).functionCounter().count();
+    }
+}
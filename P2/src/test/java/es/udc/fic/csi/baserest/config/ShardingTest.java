@@ -0,0 +1,169 @@
+package es.udc.fic.csi.baserest.config;
+
+import static es.udc.fic.csi.baserest.utils.TestRestTemplateUtils.getForList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import es.udc.fic.csi.baserest.dto.ClientDto;
+import es.udc.fic.csi.baserest.dto.ProductDto;
+import es.udc.fic.csi.baserest.dto.SaleDto;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * The `sharding` profile: clients and their sales are written to and read
+ * from the shard of the client id, products are copied to every shard, also
+ * after failing, and the sales of a product are merged from every shard
+ *
+ * @author angelotefic
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "sharding.shards=3",
+        "spring.datasource.url=jdbc:h2:mem:sharding-test-0",
+        "sharding.url=jdbc:h2:mem:sharding-test-{shard}",
+        "sharding.copy-retry-millis=100" })
+@ActiveProfiles("sharding")
+class ShardingTest {
+
+    private static final int SHARDS = 3;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ShardRoutingDataSource routingDataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void clientsAndSalesStayOnTheirShard() {
+        String baseUrl = "http://localhost:" + port;
+        Long productId = restTemplate.postForObject(baseUrl + "/product/new", new ProductDto("Sharded", 2.0f, 100),
+                Long.class);
+
+        List<Long> clientIds = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) {
+            clientIds.add(restTemplate.postForObject(baseUrl + "/client/new", new ClientDto("Sha", "Rded " + i,
+                    "sharded" + i + "@example.com", "+3460000000" + i, "Street " + i, List.of(1L, 2L)), Long.class));
+        }
+        // One new client for every shard, with an id of its shard
+        assertThat(clientIds.stream().map(id -> Math.floorMod(id, SHARDS)).distinct()).hasSize(SHARDS);
+
+        List<Long> saleIds = new ArrayList<>();
+        for (Long clientId : clientIds) {
+            for (int quantity = 1; quantity <= 2; quantity++) {
+                ResponseEntity<Long> sale = restTemplate.postForEntity(baseUrl + "/sale/new?productId=" + productId
+                        + "&clientId=" + clientId + "&quantity=" + quantity, null, Long.class);
+                assertThat(sale.getStatusCode()).isEqualTo(HttpStatus.OK);
+                assertThat(Math.floorMod(sale.getBody(), SHARDS)).isEqualTo(Math.floorMod(clientId, SHARDS));
+                saleIds.add(sale.getBody());
+            }
+        }
+
+        for (int shard = 0; shard < SHARDS; shard++) {
+            var jdbc = shard(shard);
+            int current = shard;
+            assertThat(jdbc.queryForList("SELECT id FROM client", Long.class))
+                    .containsExactly(clientIds.stream().filter(id -> Math.floorMod(id, SHARDS) == current).toArray(Long[]::new));
+            assertThat(jdbc.queryForList("SELECT client_id FROM sale", Long.class))
+                    .hasSize(2).allMatch(id -> Math.floorMod(id, SHARDS) == current);
+            // Every sale took its quantity from every copy
+            assertThat(jdbc.queryForObject("SELECT stock FROM product WHERE id = ?", Integer.class, productId))
+                    .as("stock on shard %d", shard).isEqualTo(100 - SHARDS * 3);
+        }
+
+        for (Long clientId : clientIds) {
+            assertThat(restTemplate.getForEntity(baseUrl + "/client/" + clientId, ClientDto.class).getBody().email())
+                    .startsWith("sharded");
+            var sales = getForList(restTemplate, baseUrl + "/sale/client/" + clientId, SaleDto.class);
+            assertThat(sales).extracting(SaleDto::quantity).containsExactly(1, 2);
+            assertThat(sales).allSatisfy(sale -> assertThat(sale.client().getId()).isEqualTo(clientId));
+        }
+        for (Long saleId : saleIds) {
+            assertThat(restTemplate.getForEntity(baseUrl + "/sale/" + saleId, SaleDto.class).getStatusCode())
+                    .isEqualTo(HttpStatus.OK);
+        }
+
+        // Every shard, in id order
+        List<Object[]> rows = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            rows.addAll(shard(shard).query("SELECT id, client_id, quantity FROM sale WHERE product_id = ?",
+                    (row, i) -> new Object[] { row.getLong(1), row.getLong(2) + "x" + row.getInt(3) }, productId));
+        }
+        rows.sort(Comparator.comparing(row -> (Long) row[0]));
+        var sales = getForList(restTemplate, baseUrl + "/sale/product/" + productId, SaleDto.class);
+        assertThat(sales).extracting(sale -> sale.client().getId() + "x" + sale.quantity())
+                .containsExactlyElementsOf(rows.stream().map(row -> (String) row[1]).toList());
+        assertThat(sales).allSatisfy(sale -> assertThat(sale.client().getPayMethods()).containsExactlyInAnyOrder(1L, 2L));
+
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertThat(meterRegistry.get("datasource.routing").tag("target", "shard-" + shard).functionCounter()
+                    .count()).isPositive();
+        }
+    }
+
+    @Test
+    void productChangesReachEveryShard() {
+        String baseUrl = "http://localhost:" + port;
+        Long productId = restTemplate.postForObject(baseUrl + "/product/new", new ProductDto("Copied", 1.5f, 10),
+                Long.class);
+        restTemplate.put(baseUrl + "/product/increaseStock?name=Copied&amount=5", null);
+
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertThat(shard(shard).queryForMap("SELECT name, stock FROM product WHERE id = ?", productId))
+                    .as("shard %d", shard).containsEntry("NAME", "Copied").containsEntry("STOCK", 15);
+        }
+    }
+
+    @Test
+    void productChangesFailingOnAShardAreCopiedLater() throws InterruptedException {
+        String baseUrl = "http://localhost:" + port;
+        double failures = meterRegistry.get("sharding.copy.failures").functionCounter().count();
+        var unreachable = shard(SHARDS - 1);
+        unreachable.execute("ALTER TABLE product RENAME TO product_away");
+        Long productId;
+        try {
+            productId = restTemplate.postForObject(baseUrl + "/product/new", new ProductDto("Delayed", 1.5f, 10),
+                    Long.class);
+            // Behind the first change, without trying it
+            restTemplate.put(baseUrl + "/product/increaseStock?name=Delayed&amount=5", null);
+
+            assertThat(meterRegistry.get("sharding.copy.failures").functionCounter().count()).isEqualTo(failures + 1);
+            assertThat(meterRegistry.get("sharding.copy.pending").gauge().value()).isEqualTo(2);
+        } finally {
+            unreachable.execute("ALTER TABLE product_away RENAME TO product");
+        }
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (meterRegistry.get("sharding.copy.pending").gauge().value() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertThat(shard(shard).queryForMap("SELECT name, stock FROM product WHERE id = ?", productId))
+                    .as("shard %d", shard).containsEntry("NAME", "Delayed").containsEntry("STOCK", 15);
+        }
+        // Logged by the home shard, where the product was written
+        assertThat(shard(ShardContext.HOME).queryForObject("SELECT COUNT(*) FROM product_copy_log", Integer.class))
+                .isZero();
+    }
+
+    private JdbcTemplate shard(int shard) {
+        return new JdbcTemplate(routingDataSource.getShards().get(shard));
+    }
+}
@@ -0,0 +1,81 @@
+package es.udc.fic.csi.baserest.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import es.udc.fic.csi.baserest.BaseRestApplication;
+
+/**
+ * The `virtual-threads` profile: serves requests on Java 21, and refuses to
+ * start on older versions
+ *
+ * @author angelotefic
+ */
+class VirtualThreadsConfigurationTest {
+
+    private static boolean hasVirtualThreads() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    @Test
+    void refusedWithoutVirtualThreads() {
+        assumeTrue(!hasVirtualThreads(), "Virtual threads are available");
+        assertThatThrownBy(() -> VirtualThreadsConfiguration.newVirtualThreadPerTaskExecutor("test-"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Java 21");
+    }
+
+    @Test
+    void tasksKeepTheShardOfTheRequest() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AsyncTaskExecutor taskExecutor = VirtualThreadsConfiguration.taskExecutor(executor,
+                new ShardingConfiguration().shardContextDecorator());
+        try {
+            assertThat(ShardContext.call(2, () -> taskExecutor.submit(ShardContext::current)).get()).isEqualTo(2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void requestsOnVirtualThreads() throws Exception {
+        assumeTrue(hasVirtualThreads(), "Virtual threads need Java 21, build with -P java21");
+
+        ExecutorService executor = VirtualThreadsConfiguration.newVirtualThreadPerTaskExecutor("test-");
+        Thread thread = executor.submit(Thread::currentThread).get();
+        assertThat(Thread.class.getMethod("isVirtual").invoke(thread)).isEqualTo(true);
+        assertThat(thread.getName()).isEqualTo("test-0");
+        executor.shutdown();
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BaseRestApplication.class)
+                .profiles("virtual-threads")
+                // As arguments, which override the properties files
+                .run("--server.port=0", "--spring.datasource.url=jdbc:h2:mem:virtual-threads",
+                        "--virtual-threads.connections=3")) {
+            assertThat(context.getBean(HikariDataSource.class).getMaximumPoolSize()).isEqualTo(3);
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            var response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/product/search?name=None")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            // Not found, after querying the database
+            assertThat(response.statusCode()).isEqualTo(404);
+        }
+    }
+}
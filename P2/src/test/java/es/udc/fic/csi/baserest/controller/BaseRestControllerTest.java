@@ -3,6 +3,9 @@ package es.udc.fic.csi.baserest.controller;
 import static es.udc.fic.csi.baserest.utils.TestRestTemplateUtils.getForList;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,9 +14,17 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import es.udc.fic.csi.baserest.dto.UserDto;
+import es.udc.fic.csi.baserest.entity.User;
 import es.udc.fic.csi.baserest.repository.UserRepository;
 
 /**
@@ -33,6 +44,9 @@ class BaseRestControllerTest {
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     private String baseUrl;
 
     @BeforeEach
@@ -76,4 +90,98 @@ class BaseRestControllerTest {
         assertThat(response2).isEqualTo(user);
     }
 
+    @Test
+    void getAllUsersPaginated() {
+        var users = new ArrayList<UserDto>();
+        for (int i = 0; i < 5; i++) {
+            var user = new UserDto("User" + i, 20 + i);
+            restTemplate.postForObject(baseUrl + "/new", user, Long.class);
+            users.add(user);
+        }
+
+        // Walk the listing with the cursor of every full page
+        var read = new ArrayList<UserDto>();
+        String url = baseUrl + "/all?limit=2";
+        ResponseEntity<UserDto[]> page;
+        do {
+            page = restTemplate.getForEntity(url, UserDto[].class);
+            assertThat(page.getStatusCode()).isEqualTo(HttpStatus.OK);
+            read.addAll(List.of(page.getBody()));
+            url = baseUrl + "/all?limit=2&after=" + page.getHeaders().getFirst(BaseRestController.NEXT_CURSOR_HEADER);
+        } while (page.getHeaders().containsKey(BaseRestController.NEXT_CURSOR_HEADER));
+        assertThat(read).containsExactlyElementsOf(users);
+
+        var count = restTemplate.getForObject(baseUrl + "/all?count=true", Long.class);
+        assertThat(count).isEqualTo(5L);
+
+        var invalid = restTemplate.getForEntity(baseUrl + "/all?limit=0", String.class);
+        assertThat(invalid.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void searchOlderThanPaginated() {
+        int[] ages = { 40, 25, 31, 31, 18, 52, 31 };
+        for (int i = 0; i < ages.length; i++) {
+            restTemplate.postForObject(baseUrl + "/new", new UserDto("User" + i, ages[i]), Long.class);
+        }
+
+        // Users older than 30 come in (age, id) order
+        var read = new ArrayList<UserDto>();
+        String url = baseUrl + "/search?older-than=30&limit=2";
+        ResponseEntity<UserDto[]> page;
+        do {
+            page = restTemplate.getForEntity(url, UserDto[].class);
+            assertThat(page.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(page.getBody()).hasSizeLessThanOrEqualTo(2);
+            read.addAll(List.of(page.getBody()));
+            url = baseUrl + "/search?older-than=30&limit=2&after=" + page.getHeaders().getFirst(BaseRestController.NEXT_CURSOR_HEADER);
+        } while (page.getHeaders().containsKey(BaseRestController.NEXT_CURSOR_HEADER));
+        assertThat(read).containsExactly(new UserDto("User2", 31), new UserDto("User3", 31), new UserDto("User6", 31),
+                new UserDto("User0", 40), new UserDto("User5", 52));
+
+        // Count-only mode
+        assertThat(restTemplate.getForObject(baseUrl + "/search?older-than=30&count=true", Long.class)).isEqualTo(5L);
+        assertThat(restTemplate.getForObject(baseUrl + "/search?older-than=60&count=true", Long.class)).isZero();
+        assertThat(restTemplate.getForObject(baseUrl + "/search?name=User0&count=true", Long.class)).isEqualTo(1L);
+        assertThat(restTemplate.getForObject(baseUrl + "/search?name=User0&older-than=40&count=true", Long.class)).isZero();
+
+        // Name searches are not paginated
+        var byName = getForList(restTemplate, baseUrl + "/search?name=User5&older-than=30", UserDto.class);
+        assertThat(byName).containsExactly(new UserDto("User5", 52));
+
+        var invalidCursor = restTemplate.getForEntity(baseUrl + "/search?older-than=30&after=abc", String.class);
+        assertThat(invalidCursor.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        var noCriteria = restTemplate.getForEntity(baseUrl + "/search?count=true", String.class);
+        assertThat(noCriteria.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void streamAllUsers() throws Exception {
+        // More users than rows written between flushes
+        var users = new ArrayList<User>();
+        for (int i = 0; i < 1200; i++) {
+            users.add(new User("User" + i, 18 + i % 60));
+        }
+        userRepository.saveAll(users);
+
+        var headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.parseMediaType("application/x-ndjson")));
+        var response = restTemplate.exchange(baseUrl + "/all", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().toString()).startsWith("application/x-ndjson");
+
+        var streamed = new ArrayList<UserDto>();
+        for (String line : response.getBody().split("\n")) {
+            streamed.add(objectMapper.readValue(line, UserDto.class));
+        }
+        assertThat(streamed).hasSize(1200);
+        assertThat(streamed.get(0)).isEqualTo(new UserDto("User0", 18));
+        assertThat(streamed.get(1199)).isEqualTo(new UserDto("User1199", 18 + 1199 % 60));
+
+        // The cursor skips the users already seen
+        var rest = restTemplate.exchange(baseUrl + "/all?after=" + users.get(1189).getId(), HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+        assertThat(rest.getBody().split("\n")).hasSize(10);
+    }
+
 }
@@ -1,7 +1,14 @@
 package es.udc.fic.csi.baserest.controller;
 
+import es.udc.fic.csi.baserest.dto.BulkImportResultDto;
+import es.udc.fic.csi.baserest.dto.DepartmentStatsDto;
 import es.udc.fic.csi.baserest.dto.EmployeeDto;
+import es.udc.fic.csi.baserest.dto.EmployeeImportDto;
+import es.udc.fic.csi.baserest.dto.SalaryAdjustmentDto;
+import es.udc.fic.csi.baserest.repository.DepartmentRepository;
 import es.udc.fic.csi.baserest.repository.EmployeeRepository;
+import es.udc.fic.csi.baserest.service.DepartmentCache;
+import es.udc.fic.csi.baserest.service.DepartmentStatistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,11 +17,18 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 import static org.junit.jupiter.api.Assertions.*;
 
 
@@ -27,9 +41,21 @@ public class EmployeeRestControllerTest {
     @Autowired
     EmployeeRepository employeeRepository;
 
+    @Autowired
+    DepartmentStatistics departmentStatistics;
+
+    @Autowired
+    DepartmentRepository departmentRepository;
+
+    @Autowired
+    DepartmentCache departmentCache;
+
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     private String baseUrl;
 
     @BeforeEach
@@ -41,6 +67,7 @@ public class EmployeeRestControllerTest {
     @AfterEach
     private void resetEmployees() {
         employeeRepository.deleteAll();
+        departmentStatistics.rebuild();
     }
 
 
@@ -114,22 +141,21 @@ public class EmployeeRestControllerTest {
         var supervisorSales = new EmployeeDto("John", "Avenida Ejemplo 7", 40, 90000.0, 111223344, "Sales", null);
         var supervisorIT = new EmployeeDto("Eva", "Calle Ejemplo 8", 38, 85000.0, 445566778, "IT", null);
 
-        restTemplate.postForEntity(baseUrl + "/new", supervisorSales, Long.class);
-        restTemplate.postForEntity(baseUrl + "/new", supervisorIT, Long.class);
+        var idSupervisorSales = restTemplate.postForEntity(baseUrl + "/new", supervisorSales, Long.class).getBody();
+        var idSupervisorIT = restTemplate.postForEntity(baseUrl + "/new", supervisorIT, Long.class).getBody();
 
         // Create employees
-        var employee1 = new EmployeeDto("Adrian", "Avenida Ejemplo 1", 25, 50000.0, 123456789, "Sales", 1L);
-        var employee2 = new EmployeeDto("Carlos", "Avenida Ejemplo 2", 30, 60000.0, 987654321, "Sales", 2L);
-        var employee3 = new EmployeeDto("Laura", "Calle Ejemplo 3", 28, 45000.0, 123987654, "IT", 3L);
-        var employee4 = new EmployeeDto("Maria", "Calle Ejemplo 4", 35, 75000.0, 456789123, "HR", null);
-        var employee5 = new EmployeeDto("Juan", "Calle Ejemplo 5", 22, 40000.0, 789654123, "Sales", 5L);
-        var employee6 = new EmployeeDto("Ana", "Avenida Ejemplo 6", 29, 55000.0, 321654987, "IT", 6L);
-
-        restTemplate.postForEntity(baseUrl + "/new", employee1, Long.class);
+        var employee1 = new EmployeeDto("Adrian", "Avenida Ejemplo 1", 25, 50000.0, 123456789, "Sales", idSupervisorSales);
+        var idEmployee1 = restTemplate.postForEntity(baseUrl + "/new", employee1, Long.class).getBody();
+        var employee2 = new EmployeeDto("Carlos", "Avenida Ejemplo 2", 30, 60000.0, 987654321, "Sales", idSupervisorIT);
         restTemplate.postForEntity(baseUrl + "/new", employee2, Long.class);
-        restTemplate.postForEntity(baseUrl + "/new", employee3, Long.class);
-        restTemplate.postForEntity(baseUrl + "/new", employee4, Long.class);
+        var employee3 = new EmployeeDto("Laura", "Calle Ejemplo 3", 28, 45000.0, 123987654, "IT", idEmployee1);
+        var idEmployee3 = restTemplate.postForEntity(baseUrl + "/new", employee3, Long.class).getBody();
+        var employee4 = new EmployeeDto("Maria", "Calle Ejemplo 4", 35, 75000.0, 456789123, "HR", null);
+        var idEmployee4 = restTemplate.postForEntity(baseUrl + "/new", employee4, Long.class).getBody();
+        var employee5 = new EmployeeDto("Juan", "Calle Ejemplo 5", 22, 40000.0, 789654123, "Sales", idEmployee3);
         restTemplate.postForEntity(baseUrl + "/new", employee5, Long.class);
+        var employee6 = new EmployeeDto("Ana", "Avenida Ejemplo 6", 29, 55000.0, 321654987, "IT", idEmployee4);
         restTemplate.postForEntity(baseUrl + "/new", employee6, Long.class);
 
 
@@ -176,8 +202,333 @@ public class EmployeeRestControllerTest {
         assertThat(employeesEmpty).containsExactly(supervisorSales, supervisorIT, employee1, employee2, employee3, employee4, employee5, employee6);
     }
 
+    @Test
+    void getSubordinatesAndChainTest() {
+        // Build a small org chart: ceo <- manager <- (dev1 <- intern, dev2)
+        var ceo = new EmployeeDto("Ceo", "Calle Ejemplo 1", 50, 120000.0, 100000001, "Board", null);
+        var idCeo = restTemplate.postForEntity(baseUrl + "/new", ceo, Long.class).getBody();
+        var manager = new EmployeeDto("Manager", "Calle Ejemplo 2", 45, 80000.0, 100000002, "IT", idCeo);
+        var idManager = restTemplate.postForEntity(baseUrl + "/new", manager, Long.class).getBody();
+        var dev1 = new EmployeeDto("Dev1", "Calle Ejemplo 3", 30, 50000.0, 100000003, "IT", idManager);
+        var idDev1 = restTemplate.postForEntity(baseUrl + "/new", dev1, Long.class).getBody();
+        var dev2 = new EmployeeDto("Dev2", "Calle Ejemplo 4", 31, 51000.0, 100000004, "IT", idManager);
+        restTemplate.postForEntity(baseUrl + "/new", dev2, Long.class);
+        var intern = new EmployeeDto("Intern", "Calle Ejemplo 5", 20, 15000.0, 100000005, "IT", idDev1);
+        var idIntern = restTemplate.postForEntity(baseUrl + "/new", intern, Long.class).getBody();
+
+        // Whole subtree, ordered by level
+        var subordinates = restTemplate.exchange(baseUrl + "/" + idCeo + "/subordinates", HttpMethod.GET, null, new ParameterizedTypeReference<List<EmployeeDto>>() {});
+        assertThat(subordinates.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(subordinates.getBody()).containsExactly(manager, dev1, dev2, intern);
+
+        // Limited depth
+        var direct = restTemplate.exchange(baseUrl + "/" + idCeo + "/subordinates?depth=2", HttpMethod.GET, null, new ParameterizedTypeReference<List<EmployeeDto>>() {});
+        assertThat(direct.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(direct.getBody()).containsExactly(manager, dev1, dev2);
+
+        // Leaf employee has no subordinates
+        var none = restTemplate.exchange(baseUrl + "/" + idIntern + "/subordinates", HttpMethod.GET, null, new ParameterizedTypeReference<List<EmployeeDto>>() {});
+        assertThat(none.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(none.getBody()).isEmpty();
+
+        // Management chain from the direct supervisor to the top
+        var chain = restTemplate.exchange(baseUrl + "/" + idIntern + "/chain", HttpMethod.GET, null, new ParameterizedTypeReference<List<EmployeeDto>>() {});
+        assertThat(chain.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(chain.getBody()).containsExactly(dev1, manager, ceo);
+
+        // Top employee has no chain
+        var top = restTemplate.exchange(baseUrl + "/" + idCeo + "/chain", HttpMethod.GET, null, new ParameterizedTypeReference<List<EmployeeDto>>() {});
+        assertThat(top.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(top.getBody()).isEmpty();
+
+        // Invalid depth
+        var badDepth = restTemplate.getForEntity(baseUrl + "/" + idCeo + "/subordinates?depth=0", String.class);
+        assertThat(badDepth.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
 
+    @Test
+    void getSubordinatesAndChainNotFoundTest() {
+        var nonExistingId = 1000L;
+        var subordinates = restTemplate.getForEntity(baseUrl + "/" + nonExistingId + "/subordinates", String.class);
+        assertThat(subordinates.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
 
+        var chain = restTemplate.getForEntity(baseUrl + "/" + nonExistingId + "/chain", String.class);
+        assertThat(chain.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
 
-}
+    @Test
+    void getDepartmentStatsTest() {
+        var sales1 = new EmployeeDto("Adrian", "Avenida Ejemplo 1", 25, 30000.0, 200000001, "Sales", null);
+        var sales2 = new EmployeeDto("Carlos", "Avenida Ejemplo 2", 38, 40000.0, 200000002, "Sales", null);
+        var sales3 = new EmployeeDto("Juan", "Avenida Ejemplo 3", 31, 50000.0, 200000003, "Sales", null);
+        var it1 = new EmployeeDto("Eva", "Calle Ejemplo 4", 45, 60000.0, 200000004, "IT", null);
+        restTemplate.postForEntity(baseUrl + "/new", sales1, Long.class);
+        restTemplate.postForEntity(baseUrl + "/new", sales2, Long.class);
+        var idSales3 = restTemplate.postForEntity(baseUrl + "/new", sales3, Long.class).getBody();
+        restTemplate.postForEntity(baseUrl + "/new", it1, Long.class);
+
+        // Move an employee between departments with a raise
+        var moved = new EmployeeDto("Juan", "Avenida Ejemplo 3", 31, 70000.0, 200000003, "IT", null);
+        restTemplate.put(baseUrl + "/update/" + idSales3, moved);
+
+        var response = restTemplate.exchange(baseUrl + "/stats", HttpMethod.GET, null, new ParameterizedTypeReference<Map<String, DepartmentStatsDto>>() {});
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        var stats = response.getBody();
+        assertThat(stats).containsOnlyKeys("IT", "Sales");
+
+        var sales = stats.get("Sales");
+        assertThat(sales.headcount()).isEqualTo(2);
+        assertThat(sales.totalSalary()).isEqualTo(70000.0);
+        assertThat(sales.averageSalary()).isEqualTo(35000.0);
+        assertThat(sales.minSalary()).isCloseTo(30000.0, within(300.0));
+        assertThat(sales.maxSalary()).isCloseTo(40000.0, within(400.0));
+        assertThat(sales.ageDistribution()).containsExactly(Map.entry(20, 1L), Map.entry(30, 1L));
+
+        var it = stats.get("IT");
+        assertThat(it.headcount()).isEqualTo(2);
+        assertThat(it.totalSalary()).isEqualTo(130000.0);
+        assertThat(it.salaryPercentiles().get("p50")).isCloseTo(60000.0, within(600.0));
+        assertThat(it.salaryPercentiles().get("p99")).isCloseTo(70000.0, within(700.0));
+        assertThat(it.ageDistribution()).containsExactly(Map.entry(30, 1L), Map.entry(40, 1L));
+
+        // Single department
+        var responseIT = restTemplate.exchange(baseUrl + "/stats?department=IT", HttpMethod.GET, null, new ParameterizedTypeReference<Map<String, DepartmentStatsDto>>() {});
+        assertThat(responseIT.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseIT.getBody()).containsOnlyKeys("IT");
+
+        // Department not found
+        var responseNotFound = restTemplate.getForEntity(baseUrl + "/stats?department=NotFound", String.class);
+        assertThat(responseNotFound.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+
+        // Rebuilding from the table gives the same figures
+        departmentStatistics.rebuild();
+        assertThat(departmentStatistics.getAll()).isEqualTo(stats);
+    }
+
+    @Test
+    void getEmployeesPaginatedTest() {
+        var created = new ArrayList<EmployeeDto>();
+        for (int i = 0; i < 7; i++) {
+            var employee = new EmployeeDto("Employee" + i, "Calle Ejemplo " + i, 20 + i, 30000.0 + i, 300000000 + i, i % 2 == 0 ? "Sales" : "IT", null);
+            restTemplate.postForEntity(baseUrl + "/new", employee, Long.class);
+            created.add(employee);
+        }
+
+        // Cursor pagination over every employee
+        var firstPage = restTemplate.exchange(baseUrl + "?size=3", HttpMethod.GET, null, new ParameterizedTypeReference<List<EmployeeDto>>() {});
+        assertThat(firstPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(firstPage.getBody()).containsExactlyElementsOf(created.subList(0, 3));
+        var cursor = firstPage.getHeaders().getFirst("X-Next-Cursor");
+        assertThat(cursor).isNotNull();
+
+        var secondPage = restTemplate.exchange(baseUrl + "?size=3&after=" + cursor, HttpMethod.GET, null, new ParameterizedTypeReference<List<EmployeeDto>>() {});
+        assertThat(secondPage.getBody()).containsExactlyElementsOf(created.subList(3, 6));
+        cursor = secondPage.getHeaders().getFirst("X-Next-Cursor");
+
+        var lastPage = restTemplate.exchange(baseUrl + "?size=3&after=" + cursor, HttpMethod.GET, null, new ParameterizedTypeReference<List<EmployeeDto>>() {});
+        assertThat(lastPage.getBody()).containsExactly(created.get(6));
+        assertThat(lastPage.getHeaders().getFirst("X-Next-Cursor")).isNull();
+
+        // Page number pagination within a department
+        var salesPage = restTemplate.exchange(baseUrl + "?department=Sales&size=2&page=1", HttpMethod.GET, null, new ParameterizedTypeReference<List<EmployeeDto>>() {});
+        assertThat(salesPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(salesPage.getBody()).containsExactly(created.get(4), created.get(6));
+
+        // Past the end of a department is not a missing department
+        var pastTheEnd = restTemplate.exchange(baseUrl + "?department=Sales&size=2&page=5", HttpMethod.GET, null, new ParameterizedTypeReference<List<EmployeeDto>>() {});
+        assertThat(pastTheEnd.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(pastTheEnd.getBody()).isEmpty();
+
+        // Page and cursor cannot be combined
+        var badRequest = restTemplate.getForEntity(baseUrl + "?page=0&after=1", String.class);
+        assertThat(badRequest.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void streamEmployeesTest() throws Exception {
+        var created = new ArrayList<EmployeeDto>();
+        for (int i = 0; i < 5; i++) {
+            var employee = new EmployeeDto("Employee" + i, "Calle Ejemplo " + i, 20 + i, 30000.0 + i, 400000000 + i, i % 2 == 0 ? "Sales" : "IT", null);
+            restTemplate.postForEntity(baseUrl + "/new", employee, Long.class);
+            created.add(employee);
+        }
+
+        var headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.parseMediaType("application/x-ndjson")));
+        var response = restTemplate.exchange(baseUrl + "?department=IT", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().toString()).startsWith("application/x-ndjson");
+
+        var streamed = new ArrayList<EmployeeDto>();
+        for (String line : response.getBody().split("\n")) {
+            streamed.add(objectMapper.readValue(line, EmployeeDto.class));
+        }
+        assertThat(streamed).containsExactly(created.get(1), created.get(3));
+
+        // Without an explicit Accept header the regular JSON list is returned
+        var anyHeaders = new HttpHeaders();
+        anyHeaders.setAccept(List.of(MediaType.ALL));
+        var json = restTemplate.exchange(baseUrl, HttpMethod.GET, new HttpEntity<>(anyHeaders), String.class);
+        assertThat(json.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON)).isTrue();
+    }
+
+    @Test
+    void bulkImportTest() {
+        var stored = new EmployeeDto("Ceo", "Calle Ejemplo 1", 55, 150000.0, 500000000, "Board", null);
+        var idStored = restTemplate.postForEntity(baseUrl + "/new", stored, Long.class).getBody();
+
+        // Reports come before their supervisors in the file
+        var intern = new EmployeeImportDto("Intern", "Calle Ejemplo 4", 20, 15000.0, 500000003, "IT", null, 500000002);
+        var developer = new EmployeeImportDto("Developer", "Calle Ejemplo 3", 30, 40000.0, 500000002, "IT", null, 500000001);
+        var manager = new EmployeeImportDto("Manager", "Calle Ejemplo 2", 45, 80000.0, 500000001, "IT", idStored, null);
+
+        var response = restTemplate.postForEntity(baseUrl + "/bulk", List.of(intern, developer, manager), BulkImportResultDto.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().imported()).isEqualTo(3);
+        assertThat(response.getBody().rowsPerSecond()).isPositive();
+
+        var itEmployees = restTemplate.exchange(baseUrl + "?department=IT", HttpMethod.GET, null, new ParameterizedTypeReference<List<EmployeeDto>>() {});
+        assertThat(itEmployees.getBody()).extracting(EmployeeDto::name).containsExactly("Manager", "Developer", "Intern");
+
+        var subordinates = restTemplate.exchange(baseUrl + "/" + idStored + "/subordinates", HttpMethod.GET, null, new ParameterizedTypeReference<List<EmployeeDto>>() {});
+        assertThat(subordinates.getBody()).extracting(EmployeeDto::name).containsExactly("Manager", "Developer", "Intern");
+        assertThat(departmentStatistics.get("IT")).hasValueSatisfying(stats -> assertThat(stats.headcount()).isEqualTo(3));
+    }
 
+    @Test
+    void bulkImportInvalidTest() {
+        // Cycle between imported supervisors
+        var first = new EmployeeImportDto("First", "Calle Ejemplo 1", 30, 40000.0, 600000001, "IT", null, 600000002);
+        var second = new EmployeeImportDto("Second", "Calle Ejemplo 2", 30, 40000.0, 600000002, "IT", null, 600000001);
+        var cycle = restTemplate.postForEntity(baseUrl + "/bulk", List.of(first, second), String.class);
+        assertThat(cycle.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        // Stored supervisor that does not exist
+        var orphan = new EmployeeImportDto("Orphan", "Calle Ejemplo 3", 30, 40000.0, 600000003, "IT", 1000L, null);
+        var notFound = restTemplate.postForEntity(baseUrl + "/bulk", List.of(orphan), String.class);
+        assertThat(notFound.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        // Imported supervisor missing from the file
+        var missing = new EmployeeImportDto("Missing", "Calle Ejemplo 4", 30, 40000.0, 600000004, "IT", null, 600000999);
+        var missingResponse = restTemplate.postForEntity(baseUrl + "/bulk", List.of(missing), String.class);
+        assertThat(missingResponse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        assertThat(employeeRepository.count()).isZero();
+
+        // Nss of a stored employee
+        var stored = new EmployeeDto("Stored", "Calle Ejemplo 5", 30, 40000.0, 600000005, "IT", null);
+        restTemplate.postForEntity(baseUrl + "/new", stored, Long.class);
+        var duplicate = new EmployeeImportDto("Duplicate", "Calle Ejemplo 6", 30, 40000.0, 600000005, "IT", null, null);
+        var other = new EmployeeImportDto("Other", "Calle Ejemplo 7", 30, 40000.0, 600000006, "IT", null, null);
+        var duplicateResponse = restTemplate.postForEntity(baseUrl + "/bulk", List.of(other, duplicate), String.class);
+        assertThat(duplicateResponse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(employeeRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void searchEmployeesTest() {
+        var boss = new EmployeeDto("Boss", "Calle Ejemplo 1", 50, 90000.0, 800000001, "Sales", null);
+        var idBoss = restTemplate.postForEntity(baseUrl + "/new", boss, Long.class).getBody();
+        var junior = new EmployeeDto("Junior", "Calle Ejemplo 2", 23, 25000.0, 800000002, "Sales", idBoss);
+        var senior = new EmployeeDto("Senior", "Calle Ejemplo 3", 38, 55000.0, 800000003, "Sales", idBoss);
+        var analyst = new EmployeeDto("Analyst", "Calle Ejemplo 4", 35, 52000.0, 800000004, "IT", idBoss);
+        var admin = new EmployeeDto("Admin", "Calle Ejemplo 5", 41, 30000.0, 800000005, "IT", null);
+        restTemplate.postForEntity(baseUrl + "/new", junior, Long.class);
+        restTemplate.postForEntity(baseUrl + "/new", senior, Long.class);
+        restTemplate.postForEntity(baseUrl + "/new", analyst, Long.class);
+        restTemplate.postForEntity(baseUrl + "/new", admin, Long.class);
+
+        var type = new ParameterizedTypeReference<List<EmployeeDto>>() {};
+
+        var byDepartmentAndAge = restTemplate.exchange(baseUrl + "/search?department=Sales&min-age=30", HttpMethod.GET, null, type);
+        assertThat(byDepartmentAndAge.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(byDepartmentAndAge.getBody()).containsExactly(boss, senior);
+
+        var bySalary = restTemplate.exchange(baseUrl + "/search?min-salary=50000&max-salary=60000", HttpMethod.GET, null, type);
+        assertThat(bySalary.getBody()).containsExactly(senior, analyst);
+
+        var byAgeRange = restTemplate.exchange(baseUrl + "/search?min-age=35&max-age=41", HttpMethod.GET, null, type);
+        assertThat(byAgeRange.getBody()).containsExactly(senior, analyst, admin);
+
+        var bySupervisorAndDepartment = restTemplate.exchange(baseUrl + "/search?supervisor=" + idBoss + "&department=IT", HttpMethod.GET, null, type);
+        assertThat(bySupervisorAndDepartment.getBody()).containsExactly(analyst);
+
+        var secondPage = restTemplate.exchange(baseUrl + "/search?supervisor=" + idBoss + "&page=1&size=2", HttpMethod.GET, null, type);
+        assertThat(secondPage.getBody()).containsExactly(analyst);
+
+        var noMatch = restTemplate.exchange(baseUrl + "/search?department=HR", HttpMethod.GET, null, type);
+        assertThat(noMatch.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(noMatch.getBody()).isEmpty();
+
+        var noCriteria = restTemplate.getForEntity(baseUrl + "/search", String.class);
+        assertThat(noCriteria.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void salaryAdjustmentTest() {
+        var boss = new EmployeeDto("Boss", "Calle Ejemplo 1", 50, 100000.0, 900000001, "Sales", null);
+        var idBoss = restTemplate.postForEntity(baseUrl + "/new", boss, Long.class).getBody();
+        var manager = new EmployeeDto("Manager", "Calle Ejemplo 2", 40, 50000.0, 900000002, "IT", idBoss);
+        var idManager = restTemplate.postForEntity(baseUrl + "/new", manager, Long.class).getBody();
+        var developer = new EmployeeDto("Developer", "Calle Ejemplo 3", 30, 40000.0, 900000003, "IT", idManager);
+        var idDeveloper = restTemplate.postForEntity(baseUrl + "/new", developer, Long.class).getBody();
+        var seller = new EmployeeDto("Seller", "Calle Ejemplo 4", 30, 20000.0, 900000004, "Sales", null);
+        var idSeller = restTemplate.postForEntity(baseUrl + "/new", seller, Long.class).getBody();
+
+        // Percentage raise for a department
+        var department = restTemplate.postForEntity(baseUrl + "/salary-adjustment", new SalaryAdjustmentDto("Sales", null, 10.0, null), Integer.class);
+        assertThat(department.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(department.getBody()).isEqualTo(2);
+        assertThat(restTemplate.getForObject(baseUrl + "/" + idBoss, EmployeeDto.class).salary()).isCloseTo(110000.0, within(0.001));
+        assertThat(restTemplate.getForObject(baseUrl + "/" + idSeller, EmployeeDto.class).salary()).isCloseTo(22000.0, within(0.001));
+
+        // Fixed raise for the subtree below the boss
+        var subtree = restTemplate.postForEntity(baseUrl + "/salary-adjustment", new SalaryAdjustmentDto(null, idBoss, null, 1000.0), Integer.class);
+        assertThat(subtree.getBody()).isEqualTo(2);
+        assertThat(restTemplate.getForObject(baseUrl + "/" + idBoss, EmployeeDto.class).salary()).isCloseTo(110000.0, within(0.001));
+        assertThat(restTemplate.getForObject(baseUrl + "/" + idManager, EmployeeDto.class).salary()).isCloseTo(51000.0, within(0.001));
+        assertThat(restTemplate.getForObject(baseUrl + "/" + idDeveloper, EmployeeDto.class).salary()).isCloseTo(41000.0, within(0.001));
+
+        // Statistics follow the set-based updates
+        assertThat(departmentStatistics.get("IT")).hasValueSatisfying(stats -> assertThat(stats.totalSalary()).isCloseTo(92000.0, within(0.001)));
+        assertThat(departmentStatistics.get("Sales")).hasValueSatisfying(stats -> assertThat(stats.totalSalary()).isCloseTo(132000.0, within(0.001)));
+
+        // Invalid adjustments
+        var twoScopes = restTemplate.postForEntity(baseUrl + "/salary-adjustment", new SalaryAdjustmentDto("Sales", idBoss, 10.0, null), String.class);
+        assertThat(twoScopes.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        var noRaise = restTemplate.postForEntity(baseUrl + "/salary-adjustment", new SalaryAdjustmentDto("Sales", null, null, null), String.class);
+        assertThat(noRaise.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        var notFound = restTemplate.postForEntity(baseUrl + "/salary-adjustment", new SalaryAdjustmentDto(null, 1000L, 5.0, null), String.class);
+        assertThat(notFound.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void departmentInternedTest() {
+        var first = new EmployeeDto("First", "Calle Ejemplo 1", 30, 30000.0, 910000001, "Logistics", null);
+        var idFirst = restTemplate.postForEntity(baseUrl + "/new", first, Long.class).getBody();
+        var second = new EmployeeDto("Second", "Calle Ejemplo 2", 40, 40000.0, 910000002, "Logistics", idFirst);
+        var idSecond = restTemplate.postForEntity(baseUrl + "/new", second, Long.class).getBody();
+
+        // A single lookup row, known by the cache in both directions
+        var department = departmentRepository.findByName("Logistics");
+        assertThat(department).isPresent();
+        assertThat(departmentRepository.findAll()).filteredOn(d -> d.getName().equals("Logistics")).hasSize(1);
+        assertThat(departmentCache.idOf("Logistics")).contains(department.get().getId());
+        assertThat(departmentCache.nameOf(department.get().getId())).isEqualTo("Logistics");
+        assertThat(employeeRepository.findById(idSecond)).hasValueSatisfying(employee ->
+                assertThat(employee.getDepartment().getId()).isEqualTo(department.get().getId()));
+
+        // Moving an employee to a new department interns it too
+        var moved = new EmployeeDto("Second", "Calle Ejemplo 2", 40, 40000.0, 910000002, "Purchasing", idFirst);
+        var updateResponse = restTemplate.exchange(baseUrl + "/update/" + idSecond, HttpMethod.PUT, new HttpEntity<>(moved), EmployeeDto.class);
+        assertThat(updateResponse.getBody()).isEqualTo(moved);
+        assertThat(departmentCache.idOf("Purchasing")).isPresent();
+        assertThat(restTemplate.getForObject(baseUrl + "/" + idSecond, EmployeeDto.class)).isEqualTo(moved);
+
+        // Unknown departments are not created by reads
+        var unknown = restTemplate.getForEntity(baseUrl + "/search?department=Unknown", String.class);
+        assertThat(unknown.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(departmentCache.idOf("Unknown")).isEmpty();
+    }
+
+}
@@ -0,0 +1,146 @@
+package es.udc.fic.csi.baserest.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.FileSystemUtils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.udc.fic.csi.baserest.dto.ExportDto;
+import es.udc.fic.csi.baserest.entity.Client;
+import es.udc.fic.csi.baserest.entity.Product;
+import es.udc.fic.csi.baserest.entity.Sale;
+import es.udc.fic.csi.baserest.repository.ClientRepository;
+import es.udc.fic.csi.baserest.repository.ProductRepository;
+import es.udc.fic.csi.baserest.repository.SaleRepository;
+import es.udc.fic.csi.baserest.service.ExportJob;
+
+/**
+ * Checks the exports started, polled and downloaded through `/export`
+ *
+ * @author angelotefic
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+        properties = { "export.directory=target/export-test", "export.keep=1" })
+class ExportRestControllerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @AfterAll
+    static void deleteExports() {
+        FileSystemUtils.deleteRecursively(Path.of("target", "export-test").toFile());
+    }
+
+    @Test
+    void exportAndDownload() throws Exception {
+        Product product = productRepository.save(new Product("Exported", 2.5f, 10));
+        Client client = clientRepository.save(new Client("Ex", "Ported", "exported@example.com", "+34600000003",
+                "Street 3", List.of(1L)));
+        Sale sale = saleRepository.save(new Sale(product, client, 3, 2.5f, LocalDateTime.of(2024, 5, 1, 10, 30)));
+
+        ExportDto export = completed(start());
+        assertThat(export.status()).isEqualTo("COMPLETED");
+        assertThat(export.files()).containsOnlyKeys(ExportJob.TABLES);
+
+        ResponseEntity<byte[]> download = restTemplate.getForEntity(url("/export/" + export.id() + "/sale"), byte[].class);
+        assertThat(download.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(download.getHeaders().getContentType()).hasToString("application/gzip");
+        assertThat(download.getHeaders().getContentDisposition().getFilename()).isEqualTo("sale.ndjson.gz");
+        assertThat((long) download.getBody().length).isEqualTo(export.files().get("sale"));
+
+        List<Map<String, Object>> rows;
+        try (var reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(download.getBody())), StandardCharsets.UTF_8))) {
+            rows = reader.lines().map(line -> read(line)).toList();
+        }
+        assertThat(rows).hasSize((int) saleRepository.count());
+        assertThat(rows).anySatisfy(row -> assertThat(row)
+                .containsEntry("id", sale.getId().intValue())
+                .containsEntry("product_id", product.getId().intValue())
+                .containsEntry("client_id", client.getId().intValue())
+                .containsEntry("quantity", 3)
+                .containsEntry("sale_date", "2024-05-01T10:30:00"));
+    }
+
+    @Test
+    void missingExportsAndTables() throws InterruptedException {
+        ExportDto export = completed(start());
+        assertThat(restTemplate.getForEntity(url("/export/" + export.id() + "/flyway_schema_history"), String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(restTemplate.getForEntity(url("/export/1"), String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(restTemplate.getForEntity(url("/export/1/sale"), String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+
+        // Only the last one is kept
+        completed(start());
+        assertThat(restTemplate.getForEntity(url("/export/" + export.id()), String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    private ExportDto start() {
+        ResponseEntity<ExportDto> response = restTemplate.postForEntity(url("/export"), null, ExportDto.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(response.getBody().status()).isEqualTo("RUNNING");
+        return response.getBody();
+    }
+
+    private ExportDto completed(ExportDto started) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            var export = restTemplate.getForObject(url("/export/" + started.id()), ExportDto.class);
+            if (!export.status().equals("RUNNING")) {
+                return export;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Export " + started.id() + " did not finish");
+    }
+
+    private Map<String, Object> read(String line) {
+        try {
+            return objectMapper.readValue(line, new TypeReference<>() {});
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
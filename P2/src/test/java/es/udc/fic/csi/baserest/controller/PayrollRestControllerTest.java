@@ -0,0 +1,131 @@
+package es.udc.fic.csi.baserest.controller;
+
+import es.udc.fic.csi.baserest.dto.EmployeeDto;
+import es.udc.fic.csi.baserest.dto.PayrollEntryDto;
+import es.udc.fic.csi.baserest.dto.PayrollRunDto;
+import es.udc.fic.csi.baserest.entity.PayrollRun;
+import es.udc.fic.csi.baserest.repository.EmployeeRepository;
+import es.udc.fic.csi.baserest.repository.PayrollEntryRepository;
+import es.udc.fic.csi.baserest.repository.PayrollRunRepository;
+import es.udc.fic.csi.baserest.service.PayrollJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Small chunks so that runs go through several checkpoints
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "payroll.chunk-size=2")
+public class PayrollRestControllerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private PayrollRunRepository payrollRunRepository;
+
+    @Autowired
+    private PayrollEntryRepository payrollEntryRepository;
+
+    @Autowired
+    private PayrollJob payrollJob;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private String baseUrl;
+
+    @BeforeEach
+    private void initBaseUrl() {
+        baseUrl = "http://localhost:" + port + "/payroll";
+    }
+
+    @BeforeEach
+    @AfterEach
+    private void resetPayroll() {
+        payrollEntryRepository.deleteAll();
+        payrollRunRepository.deleteAll();
+        employeeRepository.deleteAll();
+    }
+
+    private List<Long> createEmployees(int count) {
+        var ids = new ArrayList<Long>();
+        for (int i = 0; i < count; i++) {
+            var employee = new EmployeeDto("Employee" + i, "Calle Ejemplo " + i, 30, 24000.0 * (i + 1), 910000000 + i, "Sales", null);
+            ids.add(restTemplate.postForEntity("http://localhost:" + port + "/employee/new", employee, Long.class).getBody());
+        }
+        return ids;
+    }
+
+    private PayrollRunDto waitForCompletion(Long id) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            var run = restTemplate.getForObject(baseUrl + "/" + id, PayrollRunDto.class);
+            if (!run.status().equals("RUNNING")) {
+                return run;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Payroll run " + id + " did not finish");
+    }
+
+    @Test
+    public void runPayrollTest() throws InterruptedException {
+        var ids = createEmployees(5);
+
+        var response = restTemplate.postForEntity(baseUrl + "/run?period=2025-05", null, PayrollRunDto.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+
+        var run = waitForCompletion(response.getBody().id());
+        assertThat(run.status()).isEqualTo("COMPLETED");
+        assertThat(run.processed()).isEqualTo(5);
+        assertThat(run.lastProcessedId()).isEqualTo(ids.get(4));
+        assertThat(payrollEntryRepository.countByIdRunId(run.id())).isEqualTo(5);
+
+        // 24000 a year: 2000 gross, minus 127 of social security and 447.13 of income tax
+        var entry = restTemplate.getForObject(baseUrl + "/" + run.id() + "/employee/" + ids.get(0), PayrollEntryDto.class);
+        assertThat(entry).isEqualTo(new PayrollEntryDto(ids.get(0), 2000.0, 1425.88));
+
+        // A completed period is not run again
+        var again = restTemplate.postForEntity(baseUrl + "/run?period=2025-05", null, PayrollRunDto.class);
+        assertThat(again.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    public void resumePayrollTest() {
+        var ids = createEmployees(5);
+
+        // A run that crashed after checkpointing the first chunk
+        var interrupted = new PayrollRun("2025-06", LocalDateTime.now());
+        interrupted.setLastProcessedId(ids.get(1));
+        interrupted.setProcessed(2L);
+        interrupted = payrollRunRepository.save(interrupted);
+
+        payrollJob.execute(interrupted.getId());
+
+        var run = payrollRunRepository.findById(interrupted.getId()).orElseThrow();
+        assertThat(run.getStatus()).isEqualTo(PayrollRun.Status.COMPLETED);
+        assertThat(run.getProcessed()).isEqualTo(5);
+        assertThat(payrollEntryRepository.findByIdRunIdOrderByIdEmployeeId(run.getId()))
+                .extracting(entry -> entry.getId().getEmployeeId())
+                .containsExactlyElementsOf(ids.subList(2, 5));
+    }
+
+    @Test
+    public void payrollNotFoundTest() {
+        assertThat(restTemplate.getForEntity(baseUrl + "/1000", String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(restTemplate.getForEntity(baseUrl + "/1000/employee/1", String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(restTemplate.postForEntity(baseUrl + "/run?period=May", null, String.class).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+}
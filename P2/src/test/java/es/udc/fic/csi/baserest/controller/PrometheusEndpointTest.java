@@ -0,0 +1,64 @@
+package es.udc.fic.csi.baserest.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+
+import es.udc.fic.csi.baserest.dto.ProductDto;
+import es.udc.fic.csi.baserest.repository.ProductRepository;
+
+/**
+ * Checks that the metrics scraped from `/actuator/prometheus` include the
+ * per-method latency histograms and the persistence, pool and JVM meters.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@AutoConfigureMetrics
+public class PrometheusEndpointTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @AfterEach
+    private void resetProducts() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void scrapeTest() {
+        String baseUrl = "http://localhost:" + port;
+        var id = restTemplate.postForObject(baseUrl + "/product/new", new ProductDto("Metered", 1.0f, 1), Long.class);
+        restTemplate.getForObject(baseUrl + "/product/" + id, ProductDto.class);
+
+        var response = restTemplate.getForEntity(baseUrl + "/actuator/prometheus", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String scrape = response.getBody();
+
+        // Latency histogram buckets tagged with the controller method
+        assertThat(scrape).containsPattern("http_server_requests_seconds_bucket\\{[^}]*handler=\"ProductRestController.getProductById\"");
+        assertThat(scrape).containsPattern("http_server_requests_seconds_bucket\\{[^}]*handler=\"ProductRestController.createProduct\"");
+        // Hibernate statistics
+        assertThat(scrape).contains("hibernate_query_executions_total", "hibernate_entities_loads_total",
+                "hibernate_flushes_total", "hibernate_cache_query_requests_total");
+        // Second-level cache, per region
+        assertThat(scrape).containsPattern("hibernate_second_level_cache_requests_total\\{[^}]*region=\"product\"");
+        // Connection pool saturation
+        assertThat(scrape).contains("hikaricp_connections_active", "hikaricp_connections_pending",
+                "hikaricp_connections_acquire_seconds");
+        // JVM
+        assertThat(scrape).contains("jvm_memory_used_bytes", "jvm_gc_pause_seconds", "jvm_threads_live_threads");
+    }
+}
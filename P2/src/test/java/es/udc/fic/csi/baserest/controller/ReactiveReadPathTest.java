@@ -0,0 +1,128 @@
+package es.udc.fic.csi.baserest.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import es.udc.fic.csi.baserest.config.ReactiveReadServer;
+import es.udc.fic.csi.baserest.entity.Client;
+import es.udc.fic.csi.baserest.entity.Product;
+import es.udc.fic.csi.baserest.entity.Sale;
+import es.udc.fic.csi.baserest.repository.ClientRepository;
+import es.udc.fic.csi.baserest.repository.ProductRepository;
+import es.udc.fic.csi.baserest.repository.SaleRepository;
+
+/**
+ * The reactive read path answers exactly as the servlet controllers
+ *
+ * @author angelotefic
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "reactive.port=0")
+@ActiveProfiles("reactive")
+class ReactiveReadPathTest {
+
+    private static final int SALES = 1_200;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ReactiveReadServer reactiveReadServer;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    private Product product;
+
+    private Client client;
+
+    private Long saleId;
+
+    @BeforeEach
+    void setUp() {
+        saleRepository.deleteAll();
+        product = productRepository.save(new Product("Reactive product " + System.nanoTime(), 12.5f, 40));
+        client = clientRepository.save(new Client("Ana", "Reactiva", "ana" + System.nanoTime() + "@example.com",
+                "+34600111222", "Rúa Nova 1", List.of(3L, 1L, 2L)));
+        var other = clientRepository.save(new Client("Xan", "SenPago", "xan" + System.nanoTime() + "@example.com",
+                "+34600111333", "Rúa Vella 2", List.of()));
+        var sales = new ArrayList<Sale>();
+        var start = LocalDateTime.of(2024, 3, 1, 10, 30, 15);
+        for (int i = 0; i < SALES; i++) {
+            sales.add(new Sale(product, i % 3 == 0 ? other : client, 1 + i % 4, 12.5f, start.plusSeconds(i)));
+        }
+        saleId = saleRepository.saveAll(sales).get(0).getId();
+    }
+
+    @Test
+    void productQueries() {
+        assertSameResponses("/product/" + product.getId(), null);
+        assertSameResponses("/product/search?name=" + product.getName(), null);
+        assertSameResponses("/product/" + Long.MAX_VALUE, null);
+        assertSameResponses("/product/search?name=None", null);
+        assertThat(reactive("/product/abc", null).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void saleQueries() {
+        assertSameResponses("/sale/" + saleId, null);
+        assertSameResponses("/sale/" + Long.MAX_VALUE, null);
+    }
+
+    @Test
+    void saleHistories() {
+        for (MediaType accept : new MediaType[] { null, MediaType.APPLICATION_JSON, ResponseStreamer.NDJSON }) {
+            ResponseEntity<String> byProduct = assertSameResponses("/sale/product/" + product.getId(), accept);
+            assertThat(byProduct.getBody()).contains("\"payMethods\":[3,1,2]").contains("\"payMethods\":[]");
+            assertSameResponses("/sale/client/" + client.getId(), accept);
+            assertSameResponses("/sale/product/" + Long.MAX_VALUE, accept);
+            assertSameResponses("/sale/client/" + Long.MAX_VALUE, accept);
+        }
+    }
+
+    private ResponseEntity<String> assertSameResponses(String path, MediaType accept) {
+        ResponseEntity<String> servlet = get("http://localhost:" + port + path, accept);
+        ResponseEntity<String> reactive = reactive(path, accept);
+        assertThat(reactive.getStatusCode()).as(path).isEqualTo(servlet.getStatusCode());
+        assertThat(reactive.getHeaders().getContentType()).as(path).isEqualTo(servlet.getHeaders().getContentType());
+        assertThat(reactive.getBody()).as(path).isEqualTo(servlet.getBody());
+        return reactive;
+    }
+
+    private ResponseEntity<String> reactive(String path, MediaType accept) {
+        return get("http://localhost:" + reactiveReadServer.getPort() + path, accept);
+    }
+
+    private ResponseEntity<String> get(String url, MediaType accept) {
+        var headers = new HttpHeaders();
+        if (accept != null) {
+            headers.setAccept(List.of(accept));
+        }
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+}
@@ -0,0 +1,94 @@
+package es.udc.fic.csi.baserest.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+
+import es.udc.fic.csi.baserest.dto.ProductDto;
+import es.udc.fic.csi.baserest.entity.Client;
+import es.udc.fic.csi.baserest.entity.Department;
+import es.udc.fic.csi.baserest.entity.Employee;
+import es.udc.fic.csi.baserest.entity.Product;
+import es.udc.fic.csi.baserest.entity.User;
+import es.udc.fic.csi.baserest.repository.ClientRepository;
+import es.udc.fic.csi.baserest.repository.DepartmentRepository;
+import es.udc.fic.csi.baserest.repository.EmployeeRepository;
+import es.udc.fic.csi.baserest.repository.ProductRepository;
+import es.udc.fic.csi.baserest.repository.UserRepository;
+
+/**
+ * Checks that the GET endpoints of the transactional controllers load their
+ * entities in read-only transactions, which Hibernate never flushes, while
+ * the other endpoints still do
+ *
+ * @author angelotefic
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+class ReadOnlyTransactionsTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void getsAreNotFlushed() {
+        Long userId = userRepository.save(new User("Reader", 40)).getId();
+        Department department = departmentRepository.save(new Department("Read only"));
+        Long employeeId = employeeRepository.save(new Employee("Reader", "Street 1", 40, 1000.0, 876_543, department, null)).getId();
+        Long productId = productRepository.save(new Product("Read only", 1.0f, 1)).getId();
+        Long clientId = clientRepository.save(new Client("Read", "Only", "read.only@example.com", "+34600000002",
+                "Street 2", List.of(1L))).getId();
+        // Loaded from the database, not served by the second-level cache
+        entityManagerFactory.getCache().unwrap(Cache.class).evictAllRegions();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long flushes = statistics.getFlushCount();
+        long loads = statistics.getEntityLoadCount() + statistics.getEntityFetchCount();
+
+        String baseUrl = "http://localhost:" + port;
+        for (String path : List.of("/user/all", "/user/" + userId, "/user/search?name=Reader",
+                "/employee", "/employee/" + employeeId, "/employee?department=Read only",
+                "/employee/search?department=Read only", "/employee/" + employeeId + "/chain",
+                "/product/" + productId, "/product/search?name=Read only", "/client/" + clientId)) {
+            assertThat(restTemplate.getForEntity(baseUrl + path, String.class).getStatusCode()).as(path)
+                    .isEqualTo(HttpStatus.OK);
+        }
+        assertThat(statistics.getEntityLoadCount() + statistics.getEntityFetchCount()).isGreaterThan(loads);
+        assertThat(statistics.getFlushCount()).isEqualTo(flushes);
+
+        restTemplate.postForObject(baseUrl + "/product/new", new ProductDto("Read write", 1.0f, 1), Long.class);
+        assertThat(statistics.getFlushCount()).isGreaterThan(flushes);
+    }
+}
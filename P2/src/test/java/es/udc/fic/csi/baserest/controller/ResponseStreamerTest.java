@@ -0,0 +1,114 @@
+package es.udc.fic.csi.baserest.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The chunked mode of {@link ResponseStreamer}: a transaction per chunk, none
+ * while writing
+ *
+ * @author angelotefic
+ */
+class ResponseStreamerTest {
+
+    private static final int FLUSH_ROWS = 3;
+
+    /**
+     * Counts the transactions, and whether one is open
+     */
+    private static class CountingTransactionManager extends AbstractPlatformTransactionManager {
+
+        private int transactions;
+
+        private boolean open;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            assertThat(definition.isReadOnly()).isTrue();
+            transactions++;
+            open = true;
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            open = false;
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            open = false;
+        }
+    }
+
+    private final CountingTransactionManager transactionManager = new CountingTransactionManager();
+
+    private final ResponseStreamer streamer = new ResponseStreamer(new ObjectMapper(), transactionManager, FLUSH_ROWS);
+
+    @Test
+    void chunksReadInTheirOwnTransactions() throws IOException {
+        List<Integer> rows = IntStream.rangeClosed(1, 7).boxed().toList();
+        List<Integer> afters = new ArrayList<>();
+        ResponseEntity<StreamingResponseBody> response = streamer.streamChunks(ResponseStreamer.NDJSON,
+                (Integer last, Integer size) -> {
+                    assertThat(transactionManager.open).isTrue();
+                    int after = last == null ? 0 : last;
+                    afters.add(after);
+                    return rows.stream().filter(row -> row > after).limit(size).toList();
+                }, row -> "row" + row);
+
+        var written = new ByteArrayOutputStream();
+        response.getBody().writeTo(new OutputStream() {
+            @Override
+            public void write(int b) {
+                assertThat(transactionManager.open).isFalse();
+                written.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                assertThat(transactionManager.open).isFalse();
+                written.write(b, off, len);
+            }
+        });
+
+        assertThat(written.toString(StandardCharsets.UTF_8).split("\n"))
+                .containsExactly(rows.stream().map(row -> "\"row" + row + "\"").toArray(String[]::new));
+        assertThat(afters).containsExactly(0, 3, 6);
+        assertThat(transactionManager.transactions).isEqualTo(3);
+    }
+
+    @Test
+    void fullLastChunkEndsWithAnEmptyOne() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = streamer.streamChunks(
+                MediaType.APPLICATION_JSON,
+                (Integer last, Integer size) -> last == null ? List.of(1, 2, 3) : List.of(), row -> row);
+
+        var written = new ByteArrayOutputStream();
+        response.getBody().writeTo(written);
+
+        assertThat(written.toString(StandardCharsets.UTF_8)).isEqualTo("[1,2,3]");
+        assertThat(transactionManager.transactions).isEqualTo(2);
+    }
+}
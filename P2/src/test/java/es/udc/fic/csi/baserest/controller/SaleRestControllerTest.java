@@ -16,13 +16,20 @@ import org.springframework.boot.test.context.SpringBootTest;
 
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import static es.udc.fic.csi.baserest.utils.TestRestTemplateUtils.getForList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 public class SaleRestControllerTest {
@@ -42,6 +49,9 @@ public class SaleRestControllerTest {
     @Autowired
     private SaleRepository saleRepository;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     private String baseUrl;
 
     private Long productId;
@@ -136,6 +146,29 @@ public class SaleRestControllerTest {
         assertThat(response.get(1).product().getId()).isEqualTo(productId);
     }
 
+    @Test
+    void streamSalesByProductTest() throws Exception {
+        String url = baseUrl + "/new?productId=" + productId + "&clientId=" + clientId + "&quantity=";
+        for (int quantity = 1; quantity <= 3; quantity++) {
+            restTemplate.postForEntity(url + quantity, null, Long.class);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.parseMediaType("application/x-ndjson")));
+        ResponseEntity<String> response = restTemplate.exchange(baseUrl + "/product/" + productId, HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().toString()).startsWith("application/x-ndjson");
+        String[] lines = response.getBody().split("\n");
+        assertThat(lines).hasSize(3);
+        for (int i = 0; i < lines.length; i++) {
+            SaleDto sale = objectMapper.readValue(lines[i], SaleDto.class);
+            assertThat(sale.quantity()).isEqualTo(i + 1);
+            assertThat(sale.client().getId()).isEqualTo(clientId);
+        }
+    }
+
     @Test
     void getSalesByNonExistentProductTest() {
         Long nonExistentProductId = 9999L;
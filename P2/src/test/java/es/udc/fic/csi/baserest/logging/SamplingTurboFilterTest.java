@@ -0,0 +1,92 @@
+package es.udc.fic.csi.baserest.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * The sampling of {@link SamplingTurboFilter} by request method
+ *
+ * @author angelotefic
+ */
+class SamplingTurboFilterTest {
+
+    private static final String LOGGER = "es.udc.fic.csi.baserest.logging.Sampled";
+
+    private final SamplingTurboFilter filter = new SamplingTurboFilter();
+
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        var context = new LoggerContext();
+        logger = context.getLogger(LOGGER);
+        filter.setContext(context);
+        filter.setLoggers(LOGGER);
+        filter.setMethods("GET");
+        filter.setRate(2);
+        filter.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private List<FilterReply> decide(int events) {
+        List<FilterReply> replies = new ArrayList<>();
+        for (int i = 0; i < events; i++) {
+            replies.add(filter.decide(null, logger, Level.INFO, "Event {}", new Object[] { i }, null));
+        }
+        return replies;
+    }
+
+    private void bindRequest(String method) {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(method, "/")));
+    }
+
+    @Test
+    void samplesTheRequestsOfTheMethods() {
+        bindRequest("GET");
+        assertThat(decide(4)).containsExactly(FilterReply.NEUTRAL, FilterReply.DENY, FilterReply.NEUTRAL,
+                FilterReply.DENY);
+    }
+
+    @Test
+    void keepsTheRequestsOfOtherMethods() {
+        bindRequest("POST");
+        assertThat(decide(4)).containsOnly(FilterReply.NEUTRAL);
+    }
+
+    @Test
+    void keepsTheEventsOffRequestThreads() throws InterruptedException {
+        bindRequest("GET");
+        // e.g. a streamed response body, written by another thread
+        AtomicReference<Object> replies = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                replies.set(decide(4));
+            } catch (RuntimeException e) {
+                replies.set(e);
+            }
+        });
+        thread.start();
+        thread.join();
+        assertThat(replies.get()).isEqualTo(List.of(FilterReply.NEUTRAL, FilterReply.NEUTRAL, FilterReply.NEUTRAL,
+                FilterReply.NEUTRAL));
+    }
+}
@@ -0,0 +1,70 @@
+package es.udc.fic.csi.baserest.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import es.udc.fic.csi.baserest.entity.Department;
+import es.udc.fic.csi.baserest.entity.Employee;
+
+/**
+ * Checks that comparing and hashing employees leaves their lazy supervisors
+ * and departments unloaded
+ *
+ * @author angelotefic
+ */
+@SpringBootTest
+@Transactional
+class EmployeeEqualityTest {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void hashingKeepsTheSupervisorUninitialized() {
+        Department department = departmentRepository.save(new Department("Equality department"));
+        Employee boss = employeeRepository.save(new Employee("Boss", "Street 1", 50, 3000.0, 902_001, department, null));
+        Employee manager = employeeRepository.save(
+                new Employee("Manager", "Street 2", 40, 2000.0, 902_002, department, boss));
+        Long id = employeeRepository.save(
+                new Employee("Clerk", "Street 3", 30, 1000.0, 902_003, department, manager)).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        Employee employee = employeeRepository.findById(id).orElseThrow();
+        Set<Employee> employees = new HashSet<>();
+        employees.add(employee);
+
+        assertThat(employees).contains(employee);
+        assertThat(employee).isEqualTo(entityManager.getReference(Employee.class, id));
+        assertThat(Hibernate.isInitialized(employee.getSupervisor())).isFalse();
+        assertThat(Hibernate.isInitialized(employee.getDepartment())).isFalse();
+    }
+
+    @Test
+    void employeesWithOtherSupervisorsDiffer() {
+        Department department = departmentRepository.save(new Department("Equality department 2"));
+        Employee boss = employeeRepository.save(new Employee("Boss", "Street 1", 50, 3000.0, 902_011, department, null));
+
+        Employee employee = new Employee("Clerk", "Street 3", 30, 1000.0, 902_013, department, boss);
+        Employee unsupervised = new Employee("Clerk", "Street 3", 30, 1000.0, 902_013, department, null);
+
+        assertThat(employee).isNotEqualTo(unsupervised);
+        assertThat(employee).isEqualTo(new Employee("Clerk", "Street 3", 30, 1000.0, 902_013, department, boss));
+    }
+}
@@ -0,0 +1,149 @@
+package es.udc.fic.csi.baserest.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import es.udc.fic.csi.baserest.BaseRestApplication;
+import es.udc.fic.csi.baserest.controller.EmployeeRestController;
+
+/**
+ * Checks that every filter combination supported by `/employee/search` is
+ * answered through the index meant for it.
+ *
+ * The database is a disk one, filled by the data generator
+ * (`generate-data` profile) with 100,000 employees over 20 departments. Every
+ * combination goes through the search endpoint, the SQL Hibernate generates
+ * for it from {@link EmployeeSpecifications} is captured with a
+ * {@link StatementInspector}, and H2's EXPLAIN of that SQL must name the
+ * expected index for the employee table.
+ *
+ * H2 backs the department foreign key with an index of its own on
+ * department_id, and its entries end in the id (the row key) just like those
+ * of idx_employee_department: both cost the same for the department alone, and
+ * H2 takes the foreign key's.
+ *
+ * @author angelotefic
+ */
+public class EmployeeSearchQueryPlanTest {
+
+    private static final Path DATABASE = Path.of("target", "query-plan");
+
+    private static final Pattern EMPLOYEE_INDEX = Pattern.compile("\"PUBLIC\"\\.\"EMPLOYEE\" \"\\w+\"\\s*/\\* PUBLIC\\.(\\w+)");
+
+    private static final List<String> statements = new ArrayList<>();
+
+    private static ConfigurableApplicationContext context;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private static long supervisor;
+
+    /**
+     * Keeps the employee queries Hibernate prepares
+     */
+    public static class CapturingInspector implements StatementInspector {
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.contains("employee")) {
+                synchronized (statements) {
+                    statements.add(sql);
+                }
+            }
+            return sql;
+        }
+    }
+
+    @BeforeAll
+    static void generateEmployees() throws IOException {
+        if (Files.exists(DATABASE)) {
+            try (Stream<Path> files = Files.walk(DATABASE)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+        context = new SpringApplicationBuilder(BaseRestApplication.class)
+                .profiles("generate-data")
+                // As arguments, which override the properties files
+                .run("--spring.datasource.url=jdbc:h2:file:./" + DATABASE.resolve("employees").toString().replace('\\', '/'),
+                        "--spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                                + CapturingInspector.class.getName(),
+                        "--generator.products=0",
+                        "--generator.clients=0",
+                        "--generator.sales=0",
+                        "--generator.employees=100000",
+                        "--generator.departments=20",
+                        "--logging.level.es.udc.fic.csi.baserest=WARN");
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.execute("ANALYZE");
+        // A department manager, with reports
+        supervisor = jdbcTemplate.queryForObject("SELECT MIN(e.id) FROM employee e JOIN employee s"
+                + " ON e.id_supervisor = s.id WHERE s.id_supervisor IS NULL", Long.class);
+    }
+
+    @AfterAll
+    static void close() {
+        context.close();
+    }
+
+    private static Optional<String> value(String value) {
+        return value == null || value.isBlank() ? Optional.empty() : Optional.of(value.trim());
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', nullValues = "", value = {
+            // department, min-age, max-age, min-salary, max-salary, supervisor | index
+            "Department 7 |    |    |      |      |   | FK_EMPLOYEE_DEPARTMENT_INDEX_7",
+            "Department 7 | 30 | 35 |      |      |   | IDX_EMPLOYEE_DEPARTMENT_AGE",
+            "Department 7 | 64 |    |      |      |   | IDX_EMPLOYEE_DEPARTMENT_AGE",
+            "Department 7 |    |    | 2000 | 2100 |   | IDX_EMPLOYEE_DEPARTMENT_SALARY",
+            "Department 7 |    |    |      | 1400 |   | IDX_EMPLOYEE_DEPARTMENT_SALARY",
+            "             | 30 | 31 |      |      |   | IDX_EMPLOYEE_AGE",
+            "             | 65 |    |      |      |   | IDX_EMPLOYEE_AGE",
+            "             |    |    | 3000 | 3010 |   | IDX_EMPLOYEE_SALARY",
+            "             |    |    |      | 1350 |   | IDX_EMPLOYEE_SALARY",
+            "             |    |    |      |      | x | IDX_EMPLOYEE_SUPERVISOR",
+            "Department 7 |    |    |      |      | x | IDX_EMPLOYEE_SUPERVISOR",
+    })
+    public void searchUsesIndexTest(String department, String minAge, String maxAge, String minSalary,
+                                    String maxSalary, String supervised, String expectedIndex) {
+        synchronized (statements) {
+            statements.clear();
+        }
+        context.getBean(EmployeeRestController.class).search(value(department),
+                value(minAge).map(Integer::valueOf), value(maxAge).map(Integer::valueOf),
+                value(minSalary).map(Double::valueOf), value(maxSalary).map(Double::valueOf),
+                value(supervised).map(x -> supervisor), 0, 50);
+
+        String sql;
+        synchronized (statements) {
+            sql = statements.stream().filter(statement -> statement.contains("order by")).findFirst().orElseThrow();
+        }
+        // The page size is the only bound parameter
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, 50);
+
+        Matcher index = EMPLOYEE_INDEX.matcher(plan);
+        assertThat(index.find()).as(plan).isTrue();
+        assertThat(index.group(1)).as(plan).isEqualTo(expectedIndex);
+    }
+}
@@ -0,0 +1,63 @@
+package es.udc.fic.csi.baserest.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import es.udc.fic.csi.baserest.BaseRestApplication;
+
+/**
+ * Checks the schema created by the Flyway migrations
+ *
+ * @author angelotefic
+ */
+class SchemaMigrationTest {
+
+    // Products and clients
+    private static final int CUSTOMERS = 50;
+
+    private static final int SALES = 10_000;
+
+    private static ConfigurableApplicationContext start(String database, String... arguments) {
+        List<String> all = new ArrayList<>(List.of(arguments));
+        // Kept open between the applications of a test
+        all.add("--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1");
+        all.add("--spring.main.web-application-type=none");
+        // As arguments, which override the properties files
+        return new SpringApplicationBuilder(BaseRestApplication.class).run(all.toArray(String[]::new));
+    }
+
+    @Test
+    void salesUseTheirIndexes() {
+        try (var context = start("migrated")) {
+            var jdbc = context.getBean(JdbcTemplate.class);
+            // Enough rows for the planner to tell the indexes apart
+            for (int i = 0; i < CUSTOMERS; i++) {
+                jdbc.update("INSERT INTO product (id, name, price, stock) VALUES (?, ?, 1.0, 1)", i, "Product" + i);
+                jdbc.update("INSERT INTO client (id, name, surname, email, phone, address) VALUES (?, 'Name', 'Surname', ?, '+34600000000', 'Street')",
+                        i, i + "@example.com");
+            }
+            List<Object[]> sales = new ArrayList<>();
+            for (int i = 0; i < SALES; i++) {
+                sales.add(new Object[] { i % CUSTOMERS, i % CUSTOMERS, Timestamp.valueOf(LocalDateTime.of(2023, 1, 1, 0, 0).plusHours(i)) });
+            }
+            jdbc.batchUpdate("INSERT INTO sale (product_id, client_id, quantity, price, sale_date) VALUES (?, ?, 1, 1.0, ?)", sales);
+            jdbc.execute("ANALYZE");
+
+            assertThat(jdbc.queryForObject("EXPLAIN SELECT * FROM sale WHERE product_id = 1"
+                    + " AND sale_date >= TIMESTAMP '2024-01-01 00:00:00'", String.class))
+                    .contains("IDX_SALE_PRODUCT_DATE");
+            assertThat(jdbc.queryForObject("EXPLAIN SELECT * FROM sale WHERE client_id = 1"
+                    + " AND sale_date BETWEEN TIMESTAMP '2023-02-01 00:00:00' AND TIMESTAMP '2023-03-01 00:00:00'",
+                    String.class)).contains("IDX_SALE_CLIENT_DATE");
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package es.udc.fic.csi.baserest.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import javax.cache.CacheManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.ehcache.config.CacheRuntimeConfiguration;
+import org.ehcache.config.ResourceType;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.udc.fic.csi.baserest.entity.Client;
+import es.udc.fic.csi.baserest.entity.Department;
+import es.udc.fic.csi.baserest.entity.Employee;
+import es.udc.fic.csi.baserest.entity.Product;
+
+/**
+ * Checks what the second-level and query cache serve, and that the bulk
+ * stock updates do not leave stale products behind
+ *
+ * @author angelotefic
+ */
+@SpringBootTest
+class SecondLevelCacheTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager hibernateCacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void clearCache() {
+        entityManagerFactory.getCache().unwrap(Cache.class).evictAllRegions();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void regionSettings() {
+        var product = (CacheRuntimeConfiguration<?, ?>) hibernateCacheManager.getCache("product")
+                .getConfiguration(Eh107Configuration.class).unwrap(CacheRuntimeConfiguration.class);
+        assertThat(product.getResourcePools().getPoolForResource(ResourceType.Core.HEAP).getSize()).isEqualTo(10_000);
+    }
+
+    @Test
+    void productsById() {
+        Long id = productRepository.save(new Product("Cached by id", 1.0f, 1)).getId();
+        entityManagerFactory.getCache().unwrap(Cache.class).evictAllRegions();
+        long hits = regionHits("product");
+
+        productRepository.findById(id);
+        assertThat(regionHits("product")).isEqualTo(hits);
+        productRepository.findById(id);
+        assertThat(regionHits("product")).isEqualTo(hits + 1);
+    }
+
+    @Test
+    void productsByName() {
+        productRepository.save(new Product("Cached by name", 1.0f, 1));
+        long hits = statistics.getQueryCacheHitCount();
+
+        productRepository.findByName("Cached by name");
+        productRepository.findByName("Cached by name");
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(hits + 1);
+    }
+
+    @Test
+    void clientPayMethods() {
+        Long id = clientRepository.save(new Client("Cached", "Client", "cached@example.com", "+34600000001",
+                "Street 1", List.of(1L, 2L))).getId();
+        entityManagerFactory.getCache().unwrap(Cache.class).evictAllRegions();
+        var transaction = new TransactionTemplate(transactionManager);
+        long hits = regionHits("client.payMethods");
+
+        for (int i = 0; i < 2; i++) {
+            List<Long> payMethods = transaction.execute(status -> List.copyOf(clientRepository.findById(id)
+                    .orElseThrow().getPayMethods()));
+            assertThat(payMethods).containsExactly(1L, 2L);
+        }
+        assertThat(regionHits("client.payMethods")).isEqualTo(hits + 1);
+    }
+
+    @Test
+    void employeesByDepartment() {
+        Department department = departmentRepository.save(new Department("Cached department"));
+        employeeRepository.save(new Employee("Cached", "Street 2", 30, 1000.0, 987_654, department, null));
+        long hits = statistics.getQueryCacheHitCount();
+
+        for (int i = 0; i < 2; i++) {
+            assertThat(employeeRepository.findByDepartment(department.getId(), PageRequest.of(0, 10)))
+                    .extracting(Employee::getName).containsExactly("Cached");
+        }
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(hits + 1);
+    }
+
+    @Test
+    void bulkStockUpdates() {
+        Long id = productRepository.save(new Product("Stocked", 1.0f, 10)).getId();
+        // Cached by id and by name
+        productRepository.findById(id);
+        productRepository.findByName("Stocked");
+
+        productRepository.increaseStock("Stocked", 5);
+        assertThat(productRepository.findById(id).orElseThrow().getStock()).isEqualTo(15);
+        assertThat(productRepository.findByName("Stocked").orElseThrow().getStock()).isEqualTo(15);
+
+        productRepository.decreaseStock("Stocked", 3);
+        assertThat(productRepository.findById(id).orElseThrow().getStock()).isEqualTo(12);
+        assertThat(productRepository.findByName("Stocked").orElseThrow().getStock()).isEqualTo(12);
+    }
+
+    private long regionHits(String region) {
+        return statistics.getDomainDataRegionStatistics(region).getHitCount();
+    }
+}
@@ -0,0 +1,61 @@
+package es.udc.fic.csi.baserest.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Checks that the age searches and counts of `/user/search` are answered
+ * through the (age, id) index and never with a table scan.
+ *
+ * The predicates are the ones {@link UserRepository} generates for the first
+ * page, a following page and the count-only mode.
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class UserSearchQueryPlanTest {
+
+    private static final int USERS = 20_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    public void loadUsers() {
+        jdbcTemplate.update("DELETE FROM user");
+        List<Object[]> rows = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            rows.add(new Object[] { "User" + i, 18 + i % 70 });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO user (id, name, age) VALUES (NEXT VALUE FOR hibernate_sequence, ?, ?)", rows);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterAll
+    public void deleteUsers() {
+        jdbcTemplate.update("DELETE FROM user");
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "SELECT * FROM user u WHERE u.age > 80 AND u.age >= 80 AND (u.age > 80 OR u.id > 0) ORDER BY u.age, u.id LIMIT 500",
+            "SELECT * FROM user u WHERE u.age > 30 AND u.age >= 84 AND (u.age > 84 OR u.id > 1000) ORDER BY u.age, u.id LIMIT 500",
+            "SELECT COUNT(*) FROM user u WHERE u.age > 80",
+    })
+    public void searchUsesIndexTest(String query) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + query, String.class);
+
+        assertThat(plan).as(plan).doesNotContain("tableScan");
+        assertThat(plan).as(plan).contains("IDX_USER_AGE");
+    }
+}
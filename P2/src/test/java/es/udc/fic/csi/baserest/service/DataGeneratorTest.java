@@ -0,0 +1,91 @@
+package es.udc.fic.csi.baserest.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import es.udc.fic.csi.baserest.BaseRestApplication;
+
+/**
+ * Runs the generator of the `generate-data` profile on empty in-memory
+ * databases
+ *
+ * @author angelotefic
+ */
+class DataGeneratorTest {
+
+    private static final String[] QUERIES = {
+            "SELECT * FROM product ORDER BY id",
+            "SELECT * FROM client ORDER BY id",
+            "SELECT * FROM pay_methods ORDER BY id, pay_method_id",
+            "SELECT e.*, d.name AS department FROM employee e JOIN department d ON d.id = e.department_id ORDER BY e.id",
+            "SELECT * FROM sale ORDER BY id" };
+
+    private static ConfigurableApplicationContext generate(String database, int chunkSize, int parallelism) {
+        return new SpringApplicationBuilder(BaseRestApplication.class)
+                .profiles("generate-data")
+                // As arguments, which override the properties files
+                .run("--spring.datasource.url=jdbc:h2:mem:" + database,
+                        "--generator.seed=7",
+                        "--generator.products=300",
+                        "--generator.clients=200",
+                        "--generator.employees=500",
+                        "--generator.departments=5",
+                        "--generator.sales=5000",
+                        "--generator.chunk-size=" + chunkSize,
+                        "--generator.parallelism=" + parallelism);
+    }
+
+    @Test
+    void sameSeedSameData() {
+        try (var sequential = generate("generator-sequential", 1000, 1);
+             var parallel = generate("generator-parallel", 64, 4)) {
+            var first = sequential.getBean(JdbcTemplate.class);
+            var second = parallel.getBean(JdbcTemplate.class);
+            for (String query : QUERIES) {
+                assertThat(second.queryForList(query)).as(query).isEqualTo(first.queryForList(query));
+            }
+        }
+    }
+
+    @Test
+    void generatedData() {
+        try (var context = generate("generator-shape", 100, 2)) {
+            var jdbc = context.getBean(JdbcTemplate.class);
+            assertThat(count(jdbc, "SELECT COUNT(*) FROM product")).isEqualTo(300);
+            assertThat(count(jdbc, "SELECT COUNT(*) FROM client")).isEqualTo(200);
+            assertThat(count(jdbc, "SELECT COUNT(*) FROM employee")).isEqualTo(500);
+            assertThat(count(jdbc, "SELECT COUNT(*) FROM sale")).isEqualTo(5000);
+            assertThat(count(jdbc, "SELECT COUNT(DISTINCT pay_method_id) FROM pay_methods")).isGreaterThan(1);
+
+            // A single head, with the department managers right below
+            assertThat(count(jdbc, "SELECT COUNT(*) FROM employee WHERE id_supervisor IS NULL")).isEqualTo(1);
+            assertThat(count(jdbc, "SELECT COUNT(*) FROM employee e JOIN employee s ON e.id_supervisor = s.id"
+                    + " WHERE s.id_supervisor IS NULL")).isEqualTo(5);
+            // Reports are in the department of their supervisor, below the managers
+            assertThat(count(jdbc, "SELECT COUNT(*) FROM employee e JOIN employee s ON e.id_supervisor = s.id"
+                    + " WHERE s.id_supervisor IS NOT NULL AND e.department_id <> s.department_id")).isZero();
+
+            // The ten hottest products get far more than their share (10 / 300) of the sales
+            List<Map<String, Object>> top = jdbc.queryForList(
+                    "SELECT product_id, COUNT(*) AS sales FROM sale GROUP BY product_id ORDER BY sales DESC LIMIT 10");
+            long hot = top.stream().mapToLong(row -> ((Number) row.get("SALES")).longValue()).sum();
+            assertThat(hot).isGreaterThan(5000 / 5);
+
+            // The next ids are free
+            Long productId = jdbc.queryForObject("SELECT MAX(id) FROM product", Long.class);
+            jdbc.update("INSERT INTO product (name, price, stock) VALUES ('New product', 1.0, 1)");
+            assertThat(jdbc.queryForObject("SELECT MAX(id) FROM product", Long.class)).isEqualTo(productId + 1);
+        }
+    }
+
+    private static long count(JdbcTemplate jdbc, String query) {
+        return jdbc.queryForObject(query, Long.class);
+    }
+}
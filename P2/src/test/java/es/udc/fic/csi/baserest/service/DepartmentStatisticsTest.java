@@ -0,0 +1,91 @@
+package es.udc.fic.csi.baserest.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.udc.fic.csi.baserest.entity.Department;
+import es.udc.fic.csi.baserest.entity.Employee;
+import es.udc.fic.csi.baserest.repository.DepartmentRepository;
+import es.udc.fic.csi.baserest.repository.EmployeeRepository;
+
+/**
+ * Rebuilds of {@link DepartmentStatistics} racing the deltas of committed
+ * transactions
+ *
+ * @author angelotefic
+ */
+@SpringBootTest
+class DepartmentStatisticsTest {
+
+    private static final String DEPARTMENT = "Statistics race";
+
+    @Autowired
+    private DepartmentStatistics departmentStatistics;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void deleteEmployees() {
+        employeeRepository.deleteAll();
+        departmentStatistics.rebuild();
+    }
+
+    @Test
+    void deltaCommittedBeforeARebuildIsCountedOnce() throws Exception {
+        Department department = departmentRepository.save(new Department(DEPARTMENT));
+        var committed = new CountDownLatch(1);
+        var resume = new CountDownLatch(1);
+
+        // Committed, with its delta not applied yet
+        CompletableFuture<Void> creation = CompletableFuture.runAsync(() -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> {
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            committed.countDown();
+                            await(resume);
+                        }
+                    });
+                    Employee employee = employeeRepository.save(
+                            new Employee("Racer", "Street 1", 30, 1000.0, 903_001, department, null));
+                    departmentStatistics.employeeCreated(employee);
+                }));
+        assertThat(committed.await(10, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Void> rebuild = CompletableFuture.runAsync(departmentStatistics::rebuild);
+        Thread.sleep(200);
+        resume.countDown();
+        creation.get(10, TimeUnit.SECONDS);
+        rebuild.get(10, TimeUnit.SECONDS);
+
+        assertThat(departmentStatistics.get(DEPARTMENT))
+                .hasValueSatisfying(stats -> assertThat(stats.headcount()).isEqualTo(1));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package es.udc.fic.csi.baserest.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The tables of an export are read from one snapshot of the database
+ *
+ * @author angelotefic
+ */
+@SpringBootTest
+class ExportJobTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tablesAreReadFromOneSnapshot() throws IOException {
+        // Commits a product once the first table is exported, before the products are read
+        ObjectMapper objectMapper = new ObjectMapper(new JsonFactory() {
+
+            private int files;
+
+            @Override
+            public JsonGenerator createGenerator(OutputStream out) throws IOException {
+                if (files++ == 1) {
+                    CompletableFuture.runAsync(() -> jdbcTemplate.update(
+                            "INSERT INTO product (name, price, stock) VALUES ('Late', 1.0, 1)")).join();
+                }
+                return super.createGenerator(out);
+            }
+        }).findAndRegisterModules();
+        ExportJob exportJob = new ExportJob(dataSource, transactionManager, objectMapper, directory, 1000, 7);
+        try {
+            exportJob.execute(1L);
+
+            assertThat(exportJob.get(1L)).hasValueSatisfying(export -> assertThat(export.status()).isEqualTo("COMPLETED"));
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product WHERE name = 'Late'", Integer.class))
+                    .isOne();
+            assertThat(lines(exportJob.file(1L, "product").orElseThrow())).noneMatch(line -> line.contains("Late"));
+        } finally {
+            exportJob.shutdown();
+            jdbcTemplate.update("DELETE FROM product WHERE name = 'Late'");
+        }
+    }
+
+    private static List<String> lines(Path file) throws IOException {
+        try (var reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)),
+                StandardCharsets.UTF_8))) {
+            return reader.lines().toList();
+        }
+    }
+}